@@ -0,0 +1,94 @@
+package com.amigoscode.testing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Time from launching a JVM until TestingApplication logs that it started, for the default
+// configuration and the fast-startup profile with and without the class-data-sharing archive.
+// Every invocation is a fresh JVM, so there is nothing to warm up. Needs the jar, classpath and
+// archive from ./mvnw -Pfast-startup package.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ApplicationStartupBenchmark {
+
+    @Param({"default", "fast-startup", "fast-startup-cds"})
+    public String mode;
+
+    private List<String> command;
+
+    @Setup
+    public void setUp() throws IOException {
+        // exec runs JMH in target/jmh-results
+        Path target = Paths.get(System.getProperty("user.dir")).getParent();
+        Path jar = target.resolve("testing-0.0.1-SNAPSHOT.jar");
+        Path classpath = target.resolve("cds-classpath.txt");
+        Path archive = target.resolve("app-cds.jsa");
+        if (!Files.exists(jar) || !Files.exists(classpath) || !Files.exists(archive)) {
+            throw new IllegalStateException("Run ./mvnw -Pfast-startup package first");
+        }
+
+        command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        switch (mode) {
+            case "default":
+                command.add("-Dspring.index.ignore=true");
+                break;
+            case "fast-startup-cds":
+                command.add("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+                // fall through
+            case "fast-startup":
+                command.add("-Dspring.profiles.active=fast-startup");
+                break;
+            default:
+                throw new IllegalArgumentException(mode);
+        }
+        command.add("-Dserver.port=0");
+        command.add("-classpath");
+        command.add(jar.toAbsolutePath() + File.pathSeparator
+                + new String(Files.readAllBytes(classpath), StandardCharsets.UTF_8).trim());
+        command.add(TestingApplication.class.getName());
+    }
+
+    @Benchmark
+    public void startUntilReady() throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.contains("Started TestingApplication")) {
+                    return;
+                }
+            }
+            throw new IllegalStateException("Application exited with " + process.waitFor() + " before it started");
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.amigoscode.testing;
+
+import com.amigoscode.testing.customer.CustomerRegistrationRequest;
+import com.amigoscode.testing.payment.PaymentRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Deserializes request bodies with an ObjectMapper configured like the one Spring MVC uses, from
+// JSON and from the same requests encoded as Smile. Prints each body's size on the wire.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestDeserializationBenchmark {
+
+    private static final byte[] PAYMENT_REQUEST = ("{\"payment\":{\"paymentId\":1," +
+            "\"customerId\":\"1f4bd6a4-8a3e-4f2c-9a8b-3f2d1c0b9e7a\",\"amount\":1000.00,\"currency\":\"GPD\"," +
+            "\"source\":\"0x0x0x0\",\"description\":\"Shoes\"}}").getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] CUSTOMER_REGISTRATION_REQUEST = ("{\"customer\":{" +
+            "\"id\":\"1f4bd6a4-8a3e-4f2c-9a8b-3f2d1c0b9e7a\",\"name\":\"James\"," +
+            "\"phoneNumber\":\"+447000000000\"}}").getBytes(StandardCharsets.UTF_8);
+
+    @Param({"json", "smile"})
+    public String format;
+
+    private ObjectReader paymentRequestReader;
+    private ObjectReader customerRegistrationRequestReader;
+    private byte[] paymentRequest;
+    private byte[] customerRegistrationRequest;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper objectMapper;
+        switch (format) {
+            case "json":
+                objectMapper = jsonMapper;
+                break;
+            case "smile":
+                objectMapper = Jackson2ObjectMapperBuilder.smile().build();
+                break;
+            default:
+                throw new IllegalArgumentException(format);
+        }
+        paymentRequestReader = objectMapper.readerFor(PaymentRequest.class);
+        customerRegistrationRequestReader = objectMapper.readerFor(CustomerRegistrationRequest.class);
+        // Re-encoding what the JSON bodies parse to keeps the payloads identical across formats
+        paymentRequest = objectMapper.writeValueAsBytes(
+                jsonMapper.readValue(PAYMENT_REQUEST, PaymentRequest.class));
+        customerRegistrationRequest = objectMapper.writeValueAsBytes(
+                jsonMapper.readValue(CUSTOMER_REGISTRATION_REQUEST, CustomerRegistrationRequest.class));
+        System.out.printf("%n%s: payment request %d bytes, customer registration request %d bytes%n",
+                format, paymentRequest.length, customerRegistrationRequest.length);
+    }
+
+    @Benchmark
+    public PaymentRequest paymentRequest() throws IOException {
+        return paymentRequestReader.readValue(paymentRequest);
+    }
+
+    @Benchmark
+    public CustomerRegistrationRequest customerRegistrationRequest() throws IOException {
+        return customerRegistrationRequestReader.readValue(customerRegistrationRequest);
+    }
+}
@@ -0,0 +1,92 @@
+package com.amigoscode.testing.customer;
+
+import com.amigoscode.testing.TestingApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts per second into a customer table that already holds {@code existingRows} rows, using
+ * random or time-ordered ids. The table lives in a file backed H2 database with a small page
+ * cache, so random keys have to touch pages that are no longer in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CustomerIdInsertBenchmark {
+
+    private static final int CUSTOMERS_PER_INVOCATION = 1000;
+
+    @Param({"random", "time-ordered"})
+    public String generator;
+
+    @Param({"1000000"})
+    public int existingRows;
+
+    @Param({"4096"})
+    public int cacheSizeKb;
+
+    private ConfigurableApplicationContext context;
+    private CustomerRepository customerRepository;
+    private CustomerIdGenerator customerIdGenerator;
+    private long nextPhoneNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(TestingApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "customer.id-generator=" + generator,
+                        "spring.datasource.url=jdbc:h2:file:./customer-ids-" + generator + ";CACHE_SIZE=" + cacheSizeKb,
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "logging.level.root=warn")
+                .run();
+        customerRepository = context.getBean(CustomerRepository.class);
+        customerIdGenerator = context.getBean(CustomerIdGenerator.class);
+
+        nextPhoneNumber = 447_000_000_000L;
+        for (int inserted = 0; inserted < existingRows; inserted += CUSTOMERS_PER_INVOCATION) {
+            customerRepository.insertAll(newCustomers());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CUSTOMERS_PER_INVOCATION)
+    public void insertAll() {
+        customerRepository.insertAll(newCustomers());
+    }
+
+    private List<Customer> newCustomers() {
+        List<Customer> customers = new ArrayList<>(CUSTOMERS_PER_INVOCATION);
+        for (int i = 0; i < CUSTOMERS_PER_INVOCATION; i++) {
+            customers.add(new Customer(customerIdGenerator.generate(), "Alex", "+" + nextPhoneNumber++));
+        }
+        return customers;
+    }
+}
@@ -0,0 +1,71 @@
+package com.amigoscode.testing.customer;
+
+import com.amigoscode.testing.utils.PhoneNumberValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerRegistrationServiceBenchmark {
+
+    private static final int PHONE_NUMBERS = 1 << 16;
+
+    private InMemoryCustomerRepository customerRepository;
+    private CustomerRegistrationService underTest;
+
+    private String[] phoneNumbers;
+    private CustomerRegistrationRequest existingCustomerRequest;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        customerRepository = new InMemoryCustomerRepository();
+        underTest = new CustomerRegistrationService(
+                customerRepository, new PhoneNumberValidator(), new TimeOrderedCustomerIdGenerator(),
+                new CustomerLookupCache(customerRepository, Duration.ofMinutes(5), Duration.ofSeconds(5), 10_000),
+                Optional.empty(),
+                new SimpleMeterRegistry());
+
+        phoneNumbers = new String[PHONE_NUMBERS];
+        for (int i = 0; i < PHONE_NUMBERS; i++) {
+            phoneNumbers[i] = String.format("+44%010d", i);
+        }
+
+        Customer existingCustomer = new Customer(UUID.randomUUID(), "Alex", "+449999999999");
+        customerRepository.save(existingCustomer);
+        existingCustomerRequest = new CustomerRegistrationRequest(
+                new Customer(null, existingCustomer.getName(), existingCustomer.getPhoneNumber()));
+    }
+
+    @Benchmark
+    public void registerNewCustomer() {
+        int i = cursor++ & (PHONE_NUMBERS - 1);
+        if (i == 0) {
+            customerRepository.deleteAll();
+        }
+        underTest.registerNewCustomer(new CustomerRegistrationRequest(new Customer(null, "Alex", phoneNumbers[i])));
+    }
+
+    @Benchmark
+    public void registerExistingCustomer() {
+        underTest.registerNewCustomer(existingCustomerRequest);
+    }
+}
@@ -0,0 +1,100 @@
+package com.amigoscode.testing.customer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public class InMemoryCustomerRepository implements CustomerRepository {
+
+    private final Map<UUID, Customer> customers = new ConcurrentHashMap<>();
+    private final Map<String, Customer> customersByPhoneNumber = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Customer> findCustomerByPhoneNumber(String phoneNumber) {
+        return Optional.ofNullable(customersByPhoneNumber.get(phoneNumber));
+    }
+
+    @Override
+    public List<Customer> findCustomersByPhoneNumbers(Collection<String> phoneNumbers) {
+        return phoneNumbers.stream()
+                .map(customersByPhoneNumber::get)
+                .filter(c -> c != null)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void insertAll(List<Customer> customers) {
+        customers.forEach(this::save);
+    }
+
+    @Override
+    public <S extends Customer> S save(S customer) {
+        customers.put(customer.getId(), customer);
+        customersByPhoneNumber.put(customer.getPhoneNumber(), customer);
+        return customer;
+    }
+
+    @Override
+    public <S extends Customer> Iterable<S> saveAll(Iterable<S> customers) {
+        customers.forEach(this::save);
+        return customers;
+    }
+
+    @Override
+    public Optional<Customer> findById(UUID id) {
+        return Optional.ofNullable(customers.get(id));
+    }
+
+    @Override
+    public boolean existsById(UUID id) {
+        return customers.containsKey(id);
+    }
+
+    @Override
+    public Iterable<Customer> findAll() {
+        return new ArrayList<>(customers.values());
+    }
+
+    @Override
+    public Iterable<Customer> findAllById(Iterable<UUID> ids) {
+        return StreamSupport.stream(ids.spliterator(), false)
+                .map(customers::get)
+                .filter(c -> c != null)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long count() {
+        return customers.size();
+    }
+
+    @Override
+    public void deleteById(UUID id) {
+        Customer customer = customers.remove(id);
+        if (customer != null) {
+            customersByPhoneNumber.remove(customer.getPhoneNumber());
+        }
+    }
+
+    @Override
+    public void delete(Customer customer) {
+        deleteById(customer.getId());
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Customer> customers) {
+        customers.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        customers.clear();
+        customersByPhoneNumber.clear();
+    }
+}
@@ -0,0 +1,110 @@
+package com.amigoscode.testing.customer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Compares the off-heap index with a plain HashMap<String, UUID> holding the same customers.
+// Retained heap is printed after population; run with -prof gc to see allocation per lookup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g", "-XX:MaxDirectMemorySize=2g"})
+public class PhoneNumberIndexBenchmark {
+
+    private static final int LOOKUP_SAMPLE = 1 << 16;
+
+    @Param({"1000000", "10000000"})
+    private int customers;
+
+    @Param({"off-heap", "heap"})
+    private String index;
+
+    private OffHeapPhoneNumberMap offHeapIndex;
+    private Map<String, UUID> heapIndex;
+
+    private String[] registered;
+    private String[] unregistered;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        long heapBefore = usedHeap();
+        if (index.equals("off-heap")) {
+            offHeapIndex = new OffHeapPhoneNumberMap(customers);
+            for (int i = 0; i < customers; i++) {
+                offHeapIndex.put(OffHeapPhoneNumberMap.encode(phoneNumber(i)), UUID.randomUUID());
+            }
+        } else {
+            heapIndex = new HashMap<>(customers * 4 / 3 + 1);
+            for (int i = 0; i < customers; i++) {
+                heapIndex.put(phoneNumber(i), UUID.randomUUID());
+            }
+        }
+        long heapAfter = usedHeap();
+
+        registered = new String[LOOKUP_SAMPLE];
+        unregistered = new String[LOOKUP_SAMPLE];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < LOOKUP_SAMPLE; i++) {
+            registered[i] = phoneNumber(random.nextInt(customers));
+            unregistered[i] = phoneNumber(customers + random.nextInt(customers));
+        }
+
+        System.out.printf("%n%s index with %d customers: retained heap %d MB, off-heap %d MB%n",
+                index, customers, (heapAfter - heapBefore) >> 20,
+                offHeapIndex == null ? 0 : offHeapIndex.offHeapBytes() >> 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        offHeapIndex = null;
+        heapIndex = null;
+    }
+
+    @Benchmark
+    public UUID lookupRegistered() {
+        return lookup(registered[cursor++ & (LOOKUP_SAMPLE - 1)]);
+    }
+
+    @Benchmark
+    public UUID lookupUnregistered() {
+        return lookup(unregistered[cursor++ & (LOOKUP_SAMPLE - 1)]);
+    }
+
+    private UUID lookup(String phoneNumber) {
+        return offHeapIndex != null
+                ? offHeapIndex.get(OffHeapPhoneNumberMap.encode(phoneNumber))
+                : heapIndex.get(phoneNumber);
+    }
+
+    private static String phoneNumber(int i) {
+        return String.format("+44%010d", i);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
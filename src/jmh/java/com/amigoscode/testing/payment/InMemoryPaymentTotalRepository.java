@@ -0,0 +1,102 @@
+package com.amigoscode.testing.payment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public class InMemoryPaymentTotalRepository implements PaymentTotalRepository {
+
+    private final Map<PaymentTotal.Key, PaymentTotal> totals = new ConcurrentHashMap<>();
+
+    @Override
+    public void increment(UUID customerId, Money amount) {
+        Currency currency = amount.getCurrency();
+        totals.merge(new PaymentTotal.Key(customerId, currency, 0),
+                new PaymentTotal(customerId, currency, 0, amount.getMinorUnits(), 1),
+                (a, b) -> new PaymentTotal(customerId, currency, 0,
+                        a.getTotal().plus(b.getTotal()).getMinorUnits(),
+                        a.getPaymentCount() + b.getPaymentCount()));
+    }
+
+    @Override
+    public void rebuild() {
+        throw new UnsupportedOperationException("No payment table to rebuild from");
+    }
+
+    @Override
+    public List<CustomerTotal> findCustomerTotals(UUID customerId) {
+        return totals.values().stream()
+                .filter(t -> customerId.equals(t.getCustomerId()))
+                .map(t -> new CustomerTotal(t.getTotal(), t.getPaymentCount()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public <S extends PaymentTotal> S save(S total) {
+        totals.put(key(total), total);
+        return total;
+    }
+
+    @Override
+    public <S extends PaymentTotal> Iterable<S> saveAll(Iterable<S> totals) {
+        totals.forEach(this::save);
+        return totals;
+    }
+
+    @Override
+    public Optional<PaymentTotal> findById(PaymentTotal.Key key) {
+        return Optional.ofNullable(totals.get(key));
+    }
+
+    @Override
+    public boolean existsById(PaymentTotal.Key key) {
+        return totals.containsKey(key);
+    }
+
+    @Override
+    public Iterable<PaymentTotal> findAll() {
+        return new ArrayList<>(totals.values());
+    }
+
+    @Override
+    public Iterable<PaymentTotal> findAllById(Iterable<PaymentTotal.Key> keys) {
+        return StreamSupport.stream(keys.spliterator(), false)
+                .map(totals::get)
+                .filter(t -> t != null)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long count() {
+        return totals.size();
+    }
+
+    @Override
+    public void deleteById(PaymentTotal.Key key) {
+        totals.remove(key);
+    }
+
+    @Override
+    public void delete(PaymentTotal total) {
+        totals.remove(key(total));
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends PaymentTotal> totals) {
+        totals.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        totals.clear();
+    }
+
+    private static PaymentTotal.Key key(PaymentTotal total) {
+        return new PaymentTotal.Key(total.getCustomerId(), total.getCurrency(), total.getShard());
+    }
+}
@@ -0,0 +1,53 @@
+package com.amigoscode.testing.payment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentEqualityBenchmark {
+
+    private Payment payment;
+    private Payment equalPayment;
+    private Payment differentPayment;
+
+    @Setup
+    public void setUp() {
+        UUID customerId = UUID.randomUUID();
+        payment = new Payment(1L, customerId, new BigDecimal("1000.00"), Currency.GPD, "0x0x0x0", "Shoes");
+        equalPayment = new Payment(1L, UUID.fromString(customerId.toString()), new BigDecimal("1000.00"),
+                Currency.GPD, "0x0x0x0", "Shoes");
+        differentPayment = new Payment(1L, customerId, new BigDecimal("1000.00"), Currency.GPD, "0x0x0x0", "Boots");
+    }
+
+    @Benchmark
+    public boolean equalsWhenEqual() {
+        return payment.equals(equalPayment);
+    }
+
+    @Benchmark
+    public boolean equalsWhenDifferent() {
+        return payment.equals(differentPayment);
+    }
+
+    @Benchmark
+    public int hashCodeOfPayment() {
+        return payment.hashCode();
+    }
+}
@@ -0,0 +1,97 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.TestingApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts per second against the embedded H2 database, comparing one {@code save} per payment
+ * with {@link PaymentRepository#insertAll}. A JDBC batch size of 1 reproduces the unbatched baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentInsertBenchmark {
+
+    private static final int PAYMENTS_PER_INVOCATION = 1000;
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1000.00");
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    private ConfigurableApplicationContext context;
+    private PaymentRepository paymentRepository;
+    private JdbcTemplate jdbcTemplate;
+    private UUID customerId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(TestingApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+                        "logging.level.root=warn")
+                .run();
+        paymentRepository = context.getBean(PaymentRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        customerId = UUID.randomUUID();
+    }
+
+    @Setup(Level.Iteration)
+    public void truncate() {
+        jdbcTemplate.execute("truncate table payment");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAYMENTS_PER_INVOCATION)
+    public void saveOneByOne() {
+        for (Payment payment : newPayments()) {
+            paymentRepository.save(payment);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAYMENTS_PER_INVOCATION)
+    public List<Payment> insertAll() {
+        return paymentRepository.insertAll(newPayments());
+    }
+
+    private List<Payment> newPayments() {
+        List<Payment> payments = new ArrayList<>(PAYMENTS_PER_INVOCATION);
+        for (int i = 0; i < PAYMENTS_PER_INVOCATION; i++) {
+            payments.add(new Payment(null, customerId, AMOUNT, Currency.GPD, "0x0x0x0", "Shoes"));
+        }
+        return payments;
+    }
+}
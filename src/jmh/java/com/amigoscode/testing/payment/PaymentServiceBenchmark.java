@@ -0,0 +1,78 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.customer.Customer;
+import com.amigoscode.testing.customer.CustomerLookupCache;
+import com.amigoscode.testing.customer.InMemoryCustomerRepository;
+import com.amigoscode.testing.payment.stripe.MockStripeService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentServiceBenchmark {
+
+    private static final int PAYMENTS_BEFORE_RESET = 1 << 16;
+
+    private static final BigDecimal AMOUNT = new BigDecimal("1000.00");
+
+    private InMemoryPaymentRepository paymentRepository;
+    private CardPaymentExecutor cardPaymentExecutor;
+    private PaymentService underTest;
+
+    private UUID customerId;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        InMemoryCustomerRepository customerRepository = new InMemoryCustomerRepository();
+        paymentRepository = new InMemoryPaymentRepository();
+        cardPaymentExecutor = new CardPaymentExecutor(1, 1);
+        MockStripeService mockStripeService = new MockStripeService(cardPaymentExecutor);
+        InMemoryPaymentTotalRepository paymentTotalRepository = new InMemoryPaymentTotalRepository();
+        underTest = new PaymentService(
+                paymentRepository,
+                paymentTotalRepository,
+                new JpaPaymentRecorder(paymentRepository, paymentTotalRepository),
+                new CustomerLookupCache(customerRepository, Duration.ofMinutes(5), Duration.ofSeconds(5), 10_000),
+                mockStripeService,
+                mockStripeService,
+                event -> {},
+                new SimpleMeterRegistry());
+
+        customerId = UUID.randomUUID();
+        customerRepository.save(new Customer(customerId, "James", "+447000000000"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        cardPaymentExecutor.shutdown();
+    }
+
+    @Benchmark
+    public void chargeCard() {
+        if ((cursor++ & (PAYMENTS_BEFORE_RESET - 1)) == 0) {
+            paymentRepository.deleteAll();
+        }
+        underTest.chargeCard(customerId, new PaymentRequest(
+                new Payment(null, customerId, AMOUNT, Currency.GPD, "0x0x0x0", "Shoes")));
+    }
+}
@@ -0,0 +1,82 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Money;
+import com.stripe.net.FormEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Fills the Stripe charge params the way StripeService does, from a BigDecimal amount and from Money.
+// Form encoding is measured on its own because it allocates far more than the amount handling does.
+// Run with -prof gc to compare allocation per charge.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChargeParamsBenchmark {
+
+    private final Map<String, Object> params = new HashMap<>(8);
+
+    private BigDecimal decimalAmount;
+    private Currency currency;
+    private Money money;
+
+    @Setup
+    public void setUp() {
+        decimalAmount = new BigDecimal("1000.00");
+        currency = Currency.GPD;
+        money = Money.of(decimalAmount, currency);
+    }
+
+    // What StripeService sent before Money: the decimal amount and the enum as-is
+    @Benchmark
+    public Map<String, Object> bigDecimalAmount() {
+        params.clear();
+        params.put("amount", decimalAmount);
+        params.put("currency", currency);
+        params.put("source", "0x0x0x0");
+        params.put("description", "Shoes");
+        return params;
+    }
+
+    // What a correct BigDecimal path has to do to send minor units
+    @Benchmark
+    public Map<String, Object> bigDecimalToMinorUnits() {
+        params.clear();
+        params.put("amount", decimalAmount.movePointRight(currency.getFractionDigits()).longValueExact());
+        params.put("currency", currency.getCode());
+        params.put("source", "0x0x0x0");
+        params.put("description", "Shoes");
+        return params;
+    }
+
+    @Benchmark
+    public Map<String, Object> moneyAmount() {
+        params.clear();
+        params.put("amount", money.getMinorUnits());
+        params.put("currency", money.getCurrency().getCode());
+        params.put("source", "0x0x0x0");
+        params.put("description", "Shoes");
+        return params;
+    }
+
+    @Benchmark
+    public String encodeMoneyParams() {
+        return FormEncoder.createQueryString(moneyAmount());
+    }
+}
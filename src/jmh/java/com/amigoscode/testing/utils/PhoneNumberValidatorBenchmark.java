@@ -0,0 +1,76 @@
+package com.amigoscode.testing.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+// Throughput of the compiled prefix trie against the original "+44" check, with one configured
+// country and with 200. Run with -prof gc to confirm validation does not allocate.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhoneNumberValidatorBenchmark {
+
+    private static final String[] PHONE_NUMBERS = {
+            "+447000000000",
+            "+44700000000088878",
+            "447000000000",
+            "+12025550123",
+            "+4470000000a0",
+            "+35312345678"
+    };
+
+    @Param({"1", "200"})
+    private int countries;
+
+    private Predicate<String> legacyValidator;
+    private Predicate<String> validator;
+
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        legacyValidator = phoneNumber -> phoneNumber.startsWith("+44") && phoneNumber.length() == 13;
+
+        List<PhoneNumberProperties.Rule> rules = new ArrayList<>();
+        rules.add(new PhoneNumberProperties.Rule("GB", "+44", List.of(13)));
+        for (int i = 1; i < countries; i++) {
+            rules.add(new PhoneNumberProperties.Rule("C" + i, "+9" + i, List.of(11, 12, 13)));
+        }
+        PhoneNumberProperties properties = new PhoneNumberProperties();
+        properties.setRules(rules);
+        validator = new PhoneNumberValidator(properties);
+    }
+
+    @Benchmark
+    public boolean legacy() {
+        return legacyValidator.test(PHONE_NUMBERS[next()]);
+    }
+
+    @Benchmark
+    public boolean compiledRules() {
+        return validator.test(PHONE_NUMBERS[next()]);
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = i + 1 == PHONE_NUMBERS.length ? 0 : i + 1;
+        return i;
+    }
+}
@@ -0,0 +1,252 @@
+package com.amigoscode.testing.loadtest;
+
+import com.amigoscode.testing.TestingApplication;
+import com.amigoscode.testing.customer.Customer;
+import com.amigoscode.testing.customer.CustomerBulkRegistrationRequest;
+import com.amigoscode.testing.customer.CustomerRegistrationRequest;
+import com.amigoscode.testing.customer.CustomerRegistrationResult;
+import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Payment;
+import com.amigoscode.testing.payment.PaymentRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Drives a mix of customer registrations and payments against the HTTP endpoints at a fixed
+// arrival rate. Requests are sent on schedule whether or not earlier ones have completed, and
+// latency is measured from the scheduled send time, so a stalled server shows up as latency
+// instead of as a lower request rate (coordinated omission).
+//
+// Without --target the application is started in this JVM on a random port, with the mock card
+// charger. Writes <output>-<operation>.hgrm percentile distributions, in milliseconds, and
+// <output>-summary.txt to the working directory.
+public class LoadTest {
+
+    private static final int REGISTRATION_BATCH_SIZE = 500;
+
+    private static final long PHONE_NUMBERS_PER_BLOCK = 1_000_000;
+
+    private static final long PHONE_NUMBER_BLOCKS = 1_000;
+
+    private final LoadTestOptions options;
+
+    private final HttpClient client;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final OperationStats registrations = new OperationStats("registration");
+
+    private final OperationStats payments = new OperationStats("payment");
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Each run numbers its customers from a random block of a million, so runs against the same
+    // target do not collide with customers an earlier run registered
+    private final AtomicLong nextPhoneNumber = new AtomicLong(
+            ThreadLocalRandom.current().nextLong(PHONE_NUMBER_BLOCKS) * PHONE_NUMBERS_PER_BLOCK);
+
+    private final URI target;
+
+    private List<String> paymentBodies;
+
+    LoadTest(LoadTestOptions options, URI target, ExecutorService responseExecutor) {
+        this.options = options;
+        this.target = target;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(responseExecutor)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        ConfigurableApplicationContext context = null;
+        URI target = options.getTarget();
+        if (target == null) {
+            context = new SpringApplicationBuilder(TestingApplication.class)
+                    .properties("server.port=0", "stripe.enabled=false", "logging.level.root=WARN")
+                    .run(options.getApplicationArgs());
+            target = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/");
+        }
+
+        ExecutorService responseExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            LoadTest loadTest = new LoadTest(options, target, responseExecutor);
+            loadTest.registerCustomers();
+            loadTest.run();
+            loadTest.report();
+        } finally {
+            responseExecutor.shutdownNow();
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    // Customers the payments are made for, registered before the clock starts
+    void registerCustomers() throws IOException, InterruptedException {
+        paymentBodies = new ArrayList<>(options.getCustomers());
+        List<Customer> batch = new ArrayList<>(REGISTRATION_BATCH_SIZE);
+        for (int i = 0; i < options.getCustomers(); i++) {
+            Customer customer = newCustomer();
+            batch.add(customer);
+            paymentBodies.add(json(new PaymentRequest(new Payment(
+                    null, customer.getId(), new BigDecimal("10.00"), Currency.USD, "tok_visa", "Load test"))));
+            if (batch.size() == REGISTRATION_BATCH_SIZE || i == options.getCustomers() - 1) {
+                HttpResponse<String> response = client.send(
+                        post("api/v1/customer-registration/bulk", json(new CustomerBulkRegistrationRequest(batch))),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Registering customers failed with "
+                            + response.statusCode() + ": " + response.body());
+                }
+                checkRegistered(response.body(), batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    // Payments for a customer that was not registered would all fail, so any other status ends the run
+    private void checkRegistered(String body, int customers) throws IOException {
+        List<CustomerRegistrationResult> results = objectMapper.readValue(
+                body, new TypeReference<List<CustomerRegistrationResult>>() {});
+        if (results.size() != customers) {
+            throw new IllegalStateException("Registered " + results.size() + " of " + customers + " customers");
+        }
+        for (CustomerRegistrationResult result : results) {
+            if (result.getStatus() != CustomerRegistrationResult.Status.REGISTERED) {
+                throw new IllegalStateException("Registering customer " + result.getPhoneNumber()
+                        + " returned " + result.getStatus());
+            }
+        }
+    }
+
+    void run() throws InterruptedException {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRate();
+        long begin = System.nanoTime();
+        long measureFrom = begin + options.getWarmup().toNanos();
+        long end = measureFrom + options.getDuration().toNanos();
+        System.out.printf(Locale.ROOT, "Sending %.0f req/s to %s for %s after %s warmup%n",
+                options.getRate(), target, options.getDuration(), options.getWarmup());
+
+        for (long i = 0; ; i++) {
+            long scheduledAt = begin + (long) (i * intervalNanos);
+            if (scheduledAt - end >= 0) {
+                break;
+            }
+            long delay;
+            while ((delay = scheduledAt - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            send(scheduledAt, scheduledAt - measureFrom >= 0);
+        }
+
+        long drainUntil = System.nanoTime() + options.getTimeout().toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() - drainUntil < 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void send(long scheduledAt, boolean measured) {
+        OperationStats stats;
+        HttpRequest request;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < options.getRegistrationRatio()) {
+            stats = registrations;
+            request = post("api/v1/customer-registration", json(new CustomerRegistrationRequest(newCustomer())));
+        } else {
+            stats = payments;
+            request = post(options.isAsync() ? "api/v1/payment/async" : "api/v1/payment",
+                    paymentBodies.get(random.nextInt(paymentBodies.size())));
+        }
+
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            long latencyNanos = System.nanoTime() - scheduledAt;
+            inFlight.decrementAndGet();
+            if (measured) {
+                stats.record(latencyNanos, response == null ? OperationStats.CLIENT_ERROR : String.valueOf(response.statusCode()));
+            }
+        });
+    }
+
+    void report() throws IOException {
+        double seconds = options.getDuration().toNanos() / 1e9;
+        StringBuilder summary = new StringBuilder()
+                .append(String.format(Locale.ROOT, "target=%s rate=%.0f duration=%s warmup=%s in_flight_at_end=%d%n",
+                        target, options.getRate(), options.getDuration(), options.getWarmup(), inFlight.get()));
+        for (OperationStats stats : List.of(registrations, payments)) {
+            Histogram histogram = stats.takeHistogram();
+            Map<String, Long> outcomes = stats.takeOutcomes();
+            long errors = outcomes.entrySet().stream()
+                    .filter(outcome -> !outcome.getKey().startsWith("2"))
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+            summary.append(String.format(Locale.ROOT,
+                    "%s requests=%d errors=%d throughput=%.1f/s p50_ms=%.3f p99_ms=%.3f p99.9_ms=%.3f max_ms=%.3f outcomes=%s%n",
+                    stats.getName(), histogram.getTotalCount(), errors, histogram.getTotalCount() / seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()), outcomes));
+
+            try (PrintStream out = new PrintStream(
+                    new FileOutputStream(options.getOutput() + "-" + stats.getName() + ".hgrm"), false, "UTF-8")) {
+                histogram.outputPercentileDistribution(out, 1_000_000.0);
+            }
+        }
+
+        System.out.print(summary);
+        try (FileOutputStream out = new FileOutputStream(options.getOutput() + "-summary.txt")) {
+            out.write(summary.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private Customer newCustomer() {
+        return new Customer(UUID.randomUUID(), "Load Test",
+                String.format("+447%09d", nextPhoneNumber.getAndIncrement()));
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(target.resolve(path))
+                .timeout(options.getTimeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
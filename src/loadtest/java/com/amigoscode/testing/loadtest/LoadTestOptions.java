@@ -0,0 +1,125 @@
+package com.amigoscode.testing.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+// Options understood by the harness. Every other --name=value argument is passed on to the
+// application, so the fake charger is configured with --stripe.mock.latency=20ms and
+// --stripe.mock.decline-rate=0.01 like any other property.
+class LoadTestOptions {
+
+    private double rate = 2000;
+
+    private Duration warmup = Duration.ofSeconds(10);
+
+    private Duration duration = Duration.ofSeconds(30);
+
+    private Duration timeout = Duration.ofSeconds(10);
+
+    private int customers = 1000;
+
+    private double registrationRatio = 0.2;
+
+    private boolean async;
+
+    private URI target;
+
+    private String output = "loadtest-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+
+    private final List<String> applicationArgs = new ArrayList<>();
+
+    static LoadTestOptions parse(String... args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "rate":
+                    options.rate = Double.parseDouble(value);
+                    break;
+                case "warmup":
+                    options.warmup = DurationStyle.detectAndParse(value);
+                    break;
+                case "duration":
+                    options.duration = DurationStyle.detectAndParse(value);
+                    break;
+                case "timeout":
+                    options.timeout = DurationStyle.detectAndParse(value);
+                    break;
+                case "customers":
+                    options.customers = Integer.parseInt(value);
+                    break;
+                case "registration-ratio":
+                    options.registrationRatio = Double.parseDouble(value);
+                    break;
+                case "async":
+                    options.async = Boolean.parseBoolean(value);
+                    break;
+                case "target":
+                    options.target = URI.create(value.endsWith("/") ? value : value + "/");
+                    break;
+                case "output":
+                    options.output = value;
+                    break;
+                default:
+                    options.applicationArgs.add(arg);
+            }
+        }
+        if (options.rate <= 0 || options.customers <= 0
+                || options.registrationRatio < 0 || options.registrationRatio > 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid rate %s, customers %s or registration ratio %s",
+                    options.rate, options.customers, options.registrationRatio));
+        }
+        return options;
+    }
+
+    double getRate() {
+        return rate;
+    }
+
+    Duration getWarmup() {
+        return warmup;
+    }
+
+    Duration getDuration() {
+        return duration;
+    }
+
+    Duration getTimeout() {
+        return timeout;
+    }
+
+    int getCustomers() {
+        return customers;
+    }
+
+    double getRegistrationRatio() {
+        return registrationRatio;
+    }
+
+    boolean isAsync() {
+        return async;
+    }
+
+    URI getTarget() {
+        return target;
+    }
+
+    String getOutput() {
+        return output;
+    }
+
+    String[] getApplicationArgs() {
+        return applicationArgs.toArray(new String[0]);
+    }
+}
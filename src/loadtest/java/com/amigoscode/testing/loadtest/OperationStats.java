@@ -0,0 +1,46 @@
+package com.amigoscode.testing.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latencies and outcomes of one kind of request. Latency is recorded in nanoseconds from the
+// time the request was scheduled to be sent, not from when it actually was.
+class OperationStats {
+
+    static final String CLIENT_ERROR = "client_error";
+
+    private final String name;
+
+    private final Recorder recorder = new Recorder(3);
+
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    void record(long latencyNanos, String outcome) {
+        recorder.recordValue(latencyNanos);
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    // Everything recorded since the previous call
+    Histogram takeHistogram() {
+        return recorder.getIntervalHistogram();
+    }
+
+    Map<String, Long> takeOutcomes() {
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sumThenReset()));
+        return counts;
+    }
+}
@@ -0,0 +1,18 @@
+package com.amigoscode.testing.codec;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+
+// Reads and writes application/x-jackson-smile, binary JSON with the same fields as the text form,
+// for callers that send Content-Type or Accept with it. Spring MVC would register a Smile converter
+// of its own, with a mapper that ignores the spring.jackson settings; built from Boot's builder,
+// this one is placed ahead of it. WebFlux registers Smile by default.
+@Component
+public class SmileHttpMessageConverter extends MappingJackson2SmileHttpMessageConverter {
+
+    public SmileHttpMessageConverter(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        super(objectMapperBuilder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,9 @@
+package com.amigoscode.testing.customer;
+
+import java.util.List;
+
+public interface CustomerBatchRepository {
+
+    void insertAll(List<Customer> customers);
+
+}
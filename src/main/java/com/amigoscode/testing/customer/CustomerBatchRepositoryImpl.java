@@ -0,0 +1,27 @@
+package com.amigoscode.testing.customer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+class CustomerBatchRepositoryImpl implements CustomerBatchRepository {
+
+    private static final String INSERT_CUSTOMER = "insert into customer (id, name, phone_number) values (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    CustomerBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(List<Customer> customers) {
+        jdbcTemplate.batchUpdate(INSERT_CUSTOMER, customers, customers.size(), (ps, customer) -> {
+            ps.setObject(1, customer.getId());
+            ps.setString(2, customer.getName());
+            ps.setString(3, customer.getPhoneNumber());
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package com.amigoscode.testing.customer;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+public class CustomerBulkRegistrationRequest {
+
+    @NotEmpty
+    private final List<@Valid Customer> customers;
+
+    public CustomerBulkRegistrationRequest(@JsonProperty("customers") List<Customer> customers) {
+        this.customers = customers;
+    }
+
+    public List<Customer> getCustomers() {
+        return customers;
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerBulkRegistrationRequest{" +
+                "customers=" + customers.size() +
+                '}';
+    }
+}
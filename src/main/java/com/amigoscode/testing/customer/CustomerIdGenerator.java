@@ -0,0 +1,9 @@
+package com.amigoscode.testing.customer;
+
+import java.util.UUID;
+
+public interface CustomerIdGenerator {
+
+    UUID generate();
+
+}
@@ -0,0 +1,153 @@
+package com.amigoscode.testing.customer;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Caches customer lookups by id, least recently used first out. Concurrent misses for the same id
+// wait on the first caller's query instead of issuing their own. Customers that do not exist are
+// remembered for a shorter time so a registration shortly after is not hidden for long; the
+// registration service also invalidates the id when it saves a customer.
+@Component
+public class CustomerLookupCache implements MeterBinder {
+
+    private final CustomerRepository customerRepository;
+
+    private final Clock clock;
+
+    private final long ttlMillis;
+
+    private final long negativeTtlMillis;
+
+    private final Map<UUID, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    @Autowired
+    public CustomerLookupCache(CustomerRepository customerRepository,
+                               @Value("${customer.lookup-cache.ttl:5m}") Duration ttl,
+                               @Value("${customer.lookup-cache.negative-ttl:5s}") Duration negativeTtl,
+                               @Value("${customer.lookup-cache.max-entries:10000}") int maxEntries) {
+        this(customerRepository, ttl, negativeTtl, maxEntries, Clock.systemUTC());
+    }
+
+    CustomerLookupCache(CustomerRepository customerRepository,
+                        Duration ttl,
+                        Duration negativeTtl,
+                        int maxEntries,
+                        Clock clock) {
+        this.customerRepository = customerRepository;
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.negativeTtlMillis = negativeTtl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public Optional<Customer> findById(UUID customerId) {
+        Entry entry;
+        CompletableFuture<Optional<Customer>> pending = null;
+        synchronized (entries) {
+            Entry existing = entries.get(customerId);
+            if (existing != null && !existing.isExpired(clock.millis())) {
+                hits.increment();
+                pending = existing.customer;
+                entry = null;
+            } else {
+                misses.increment();
+                entry = new Entry();
+                entries.put(customerId, entry);
+            }
+        }
+        // Waiting on another caller's load must not hold the lock that load needs to finish
+        if (pending != null) {
+            return join(pending);
+        }
+
+        long start = System.nanoTime();
+        try {
+            Optional<Customer> customer = customerRepository.findById(customerId);
+            entry.expiresAt = clock.millis() + (customer.isPresent() ? ttlMillis : negativeTtlMillis);
+            entry.customer.complete(customer);
+            return customer;
+        } catch (RuntimeException e) {
+            entry.customer.completeExceptionally(e);
+            synchronized (entries) {
+                entries.remove(customerId, entry);
+            }
+            throw e;
+        } finally {
+            loads.increment();
+            loadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    public void invalidate(UUID customerId) {
+        synchronized (entries) {
+            entries.remove(customerId);
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("customer.lookup.cache.gets", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("customer.lookup.cache.gets", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionTimer.builder("customer.lookup.cache.loads", this,
+                        cache -> cache.loads.sum(), cache -> cache.loadNanos.sum(), TimeUnit.NANOSECONDS)
+                .register(registry);
+    }
+
+    private static Optional<Customer> join(CompletableFuture<Optional<Customer>> customer) {
+        try {
+            return customer.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static class Entry {
+
+        private final CompletableFuture<Optional<Customer>> customer = new CompletableFuture<>();
+
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
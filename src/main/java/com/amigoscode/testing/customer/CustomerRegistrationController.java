@@ -1,10 +1,13 @@
 package com.amigoscode.testing.customer;
 
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.List;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("api/v1/customer-registration")
 public class CustomerRegistrationController {
 
@@ -22,4 +25,12 @@ public class CustomerRegistrationController {
         customerRegistrationService.registerNewCustomer(request);
     }
 
+    @PostMapping("bulk")
+    public List<CustomerRegistrationResult> registerNewCustomers(
+          @RequestBody @Valid CustomerBulkRegistrationRequest request
+    ) {
+
+        return customerRegistrationService.registerNewCustomers(request);
+    }
+
 }
@@ -0,0 +1,54 @@
+package com.amigoscode.testing.customer;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+public class CustomerRegistrationResult {
+
+    public enum Status {
+        REGISTERED,
+        ALREADY_REGISTERED,
+        INVALID_PHONE_NUMBER,
+        PHONE_NUMBER_TAKEN
+    }
+
+    private final String phoneNumber;
+
+    private final Status status;
+
+    public CustomerRegistrationResult(@JsonProperty("phoneNumber") String phoneNumber,
+                                      @JsonProperty("status") Status status) {
+        this.phoneNumber = phoneNumber;
+        this.status = status;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomerRegistrationResult that = (CustomerRegistrationResult) o;
+        return Objects.equals(phoneNumber, that.phoneNumber) && status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(phoneNumber, status);
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerRegistrationResult{" +
+                "phoneNumber='" + phoneNumber + '\'' +
+                ", status=" + status +
+                '}';
+    }
+}
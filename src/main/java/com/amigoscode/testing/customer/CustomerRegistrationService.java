@@ -1,45 +1,265 @@
 package com.amigoscode.testing.customer;
 
+import com.amigoscode.testing.customer.CustomerRegistrationResult.Status;
+import com.amigoscode.testing.timing.RequestTimings;
 import com.amigoscode.testing.utils.PhoneNumberValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class CustomerRegistrationService {
 
+    static final int BULK_CHUNK_SIZE = 1000;
+
     private final CustomerRepository customerRepository;
 
     private final PhoneNumberValidator phoneNumberValidator;
 
+    private final CustomerIdGenerator customerIdGenerator;
+
+    private final CustomerLookupCache customerLookupCache;
+
+    private final PhoneNumberIndex phoneNumberIndex;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Status, Timer> registrationTimers = new EnumMap<>(Status.class);
+
     @Autowired
-    public CustomerRegistrationService(CustomerRepository customerRepository, PhoneNumberValidator phoneNumberValidator) {
+    public CustomerRegistrationService(CustomerRepository customerRepository,
+                                       PhoneNumberValidator phoneNumberValidator,
+                                       CustomerIdGenerator customerIdGenerator,
+                                       CustomerLookupCache customerLookupCache,
+                                       Optional<PhoneNumberIndex> phoneNumberIndex,
+                                       MeterRegistry meterRegistry) {
         this.customerRepository = customerRepository;
         this.phoneNumberValidator = phoneNumberValidator;
+        this.customerIdGenerator = customerIdGenerator;
+        this.customerLookupCache = customerLookupCache;
+        this.phoneNumberIndex = phoneNumberIndex.orElse(null);
+        this.meterRegistry = meterRegistry;
+        for (Status status : Status.values()) {
+            registrationTimers.put(status, registrationTimer(status.name().toLowerCase(), "None"));
+        }
     }
 
     public void registerNewCustomer(CustomerRegistrationRequest request) {
         Customer customer = request.getCustomer();
 
-        if (!phoneNumberValidator.test(customer.getPhoneNumber())) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Status status;
+        try {
+            status = register(customer);
+        } catch (RuntimeException e) {
+            sample.stop(registrationTimer("error", e.getClass().getSimpleName()));
+            throw e;
+        }
+        sample.stop(registrationTimers.get(status));
+
+        if (status == Status.INVALID_PHONE_NUMBER) {
             throw new IllegalStateException(String.format("Phone number %s is not valid", customer.getPhoneNumber()));
         }
+        if (status == Status.PHONE_NUMBER_TAKEN) {
+            throw new IllegalArgumentException(String.format("The phone number [%s] is already taken", customer.getPhoneNumber()));
+        }
+    }
 
-        Optional<Customer> optionalCustomer = customerRepository.findCustomerByPhoneNumber(customer.getPhoneNumber());
-        if (optionalCustomer.isPresent()) {
-            boolean isTheSameCustomer = optionalCustomer.get().getName().equals(customer.getName());
-            if (isTheSameCustomer) return;
+    private Status register(Customer customer) {
+        long stage = RequestTimings.start();
+        boolean isPhoneNumberValid = phoneNumberValidator.test(customer.getPhoneNumber());
+        stage = RequestTimings.stage("phone_validation", stage);
+        if (!isPhoneNumberValid) {
+            return Status.INVALID_PHONE_NUMBER;
+        }
 
-            throw new IllegalArgumentException(String.format("The phone number [%s] is already taken", customer.getPhoneNumber()));
+        Optional<Customer> optionalCustomer = findCustomerByPhoneNumber(customer.getPhoneNumber());
+        stage = RequestTimings.stage("phone_lookup", stage);
+        if (optionalCustomer.isPresent()) {
+            return registrationStatus(optionalCustomer.get(), customer);
         }
 
         if (customer.getId() == null) {
-            customer.setId(UUID.randomUUID());
+            customer.setId(customerIdGenerator.generate());
         }
 
-        customerRepository.save(customer);
+        Status status = insert(customer);
+        RequestTimings.stage("customer_insert", stage);
+        return status;
+    }
+
+    private Status insert(Customer customer) {
+        try {
+            customerRepository.save(customer);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent registration, or with the index a phone number registered through another
+            // instance since it was warmed, surfaces as a constraint violation.
+            Customer existingCustomer = customerRepository.findCustomerByPhoneNumber(customer.getPhoneNumber())
+                    .orElseThrow(() -> e);
+            if (phoneNumberIndex != null) {
+                phoneNumberIndex.put(existingCustomer.getPhoneNumber(), existingCustomer.getId());
+            }
+            return registrationStatus(existingCustomer, customer);
+        }
+
+        customerLookupCache.invalidate(customer.getId());
+        if (phoneNumberIndex != null) {
+            phoneNumberIndex.put(customer.getPhoneNumber(), customer.getId());
+        }
+        return Status.REGISTERED;
+    }
+
+    public List<CustomerRegistrationResult> registerNewCustomers(CustomerBulkRegistrationRequest request) {
+        List<Customer> customers = request.getCustomers();
+        List<CustomerRegistrationResult> results = new ArrayList<>(customers.size());
+        Map<String, Customer> registeredInBatch = new HashMap<>();
+
+        for (int from = 0; from < customers.size(); from += BULK_CHUNK_SIZE) {
+            List<Customer> chunk = customers.subList(from, Math.min(from + BULK_CHUNK_SIZE, customers.size()));
+            registerChunk(chunk, registeredInBatch, results);
+        }
+
+        return results;
+    }
+
+    private Optional<Customer> findCustomerByPhoneNumber(String phoneNumber) {
+        if (phoneNumberIndex != null && phoneNumberIndex.covers(phoneNumber)) {
+            UUID customerId = phoneNumberIndex.get(phoneNumber);
+            return customerId == null ? Optional.empty() : customerRepository.findById(customerId);
+        }
+        return customerRepository.findCustomerByPhoneNumber(phoneNumber);
+    }
+
+    private static Status registrationStatus(Customer existingCustomer, Customer customer) {
+        boolean isTheSameCustomer = existingCustomer.getName().equals(customer.getName());
+        return isTheSameCustomer ? Status.ALREADY_REGISTERED : Status.PHONE_NUMBER_TAKEN;
+    }
+
+    private Timer registrationTimer(String outcome, String exception) {
+        return Timer.builder("customer.registration")
+                .description("Single customer registrations by outcome")
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+    private boolean mayBeRegistered(String phoneNumber) {
+        return phoneNumberIndex == null
+                || !phoneNumberIndex.covers(phoneNumber)
+                || phoneNumberIndex.get(phoneNumber) != null;
+    }
+
+    private void registerChunk(List<Customer> chunk,
+                               Map<String, Customer> registeredInBatch,
+                               List<CustomerRegistrationResult> results) {
+        Set<String> phoneNumbers = chunk.stream()
+                .map(Customer::getPhoneNumber)
+                .filter(phoneNumberValidator)
+                .filter(phoneNumber -> !registeredInBatch.containsKey(phoneNumber))
+                .filter(this::mayBeRegistered)
+                .collect(Collectors.toSet());
+
+        Map<String, Customer> existingCustomers = phoneNumbers.isEmpty()
+                ? Map.of()
+                : customerRepository.findCustomersByPhoneNumbers(phoneNumbers).stream()
+                        .collect(Collectors.toMap(Customer::getPhoneNumber, c -> c));
+
+        List<Customer> newCustomers = new ArrayList<>();
+        List<Integer> newCustomerResults = new ArrayList<>();
+        for (Customer customer : chunk) {
+            String phoneNumber = customer.getPhoneNumber();
+            if (!phoneNumberValidator.test(phoneNumber)) {
+                results.add(new CustomerRegistrationResult(phoneNumber, Status.INVALID_PHONE_NUMBER));
+                continue;
+            }
+
+            Customer existingCustomer = existingCustomers.getOrDefault(phoneNumber, registeredInBatch.get(phoneNumber));
+            if (existingCustomer != null) {
+                results.add(new CustomerRegistrationResult(phoneNumber, registrationStatus(existingCustomer, customer)));
+                continue;
+            }
+
+            if (customer.getId() == null) {
+                customer.setId(customerIdGenerator.generate());
+            }
+            newCustomers.add(customer);
+            newCustomerResults.add(results.size());
+            registeredInBatch.put(phoneNumber, customer);
+            results.add(new CustomerRegistrationResult(phoneNumber, Status.REGISTERED));
+        }
+
+        if (!newCustomers.isEmpty()) {
+            insertChunk(newCustomers, newCustomerResults, results);
+        }
+    }
+
+    private void insertChunk(List<Customer> newCustomers,
+                             List<Integer> newCustomerResults,
+                             List<CustomerRegistrationResult> results) {
+        try {
+            customerRepository.insertAll(newCustomers);
+        } catch (DataIntegrityViolationException e) {
+            // The index skips the lookup for phone numbers it has no customer for, but it only knows
+            // about customers registered through this instance since it was warmed. Numbers
+            // registered elsewhere are looked up once and the rest of the chunk is inserted again.
+            if (phoneNumberIndex != null && removeRegisteredElsewhere(newCustomers, newCustomerResults, results)) {
+                insertChunk(newCustomers, newCustomerResults, results);
+                return;
+            }
+            // One phone number registered concurrently rolls back the whole chunk, so it is
+            // registered again one customer at a time with the single path's recovery.
+            for (int i = 0; i < newCustomers.size(); i++) {
+                Customer customer = newCustomers.get(i);
+                Status status = insert(customer);
+                results.set(newCustomerResults.get(i), new CustomerRegistrationResult(customer.getPhoneNumber(), status));
+            }
+            return;
+        }
+        newCustomers.forEach(c -> customerLookupCache.invalidate(c.getId()));
+        if (phoneNumberIndex != null) {
+            newCustomers.forEach(c -> phoneNumberIndex.put(c.getPhoneNumber(), c.getId()));
+        }
+    }
+
+    private boolean removeRegisteredElsewhere(List<Customer> newCustomers,
+                                              List<Integer> newCustomerResults,
+                                              List<CustomerRegistrationResult> results) {
+        Set<String> skippedPhoneNumbers = newCustomers.stream()
+                .map(Customer::getPhoneNumber)
+                .filter(phoneNumberIndex::covers)
+                .collect(Collectors.toSet());
+        Map<String, Customer> registeredElsewhere = skippedPhoneNumbers.isEmpty()
+                ? Map.of()
+                : customerRepository.findCustomersByPhoneNumbers(skippedPhoneNumbers).stream()
+                        .collect(Collectors.toMap(Customer::getPhoneNumber, c -> c));
+        if (registeredElsewhere.isEmpty()) {
+            return false;
+        }
+
+        for (int i = newCustomers.size() - 1; i >= 0; i--) {
+            Customer customer = newCustomers.get(i);
+            Customer existingCustomer = registeredElsewhere.get(customer.getPhoneNumber());
+            if (existingCustomer != null) {
+                phoneNumberIndex.put(existingCustomer.getPhoneNumber(), existingCustomer.getId());
+                results.set(newCustomerResults.get(i), new CustomerRegistrationResult(
+                        customer.getPhoneNumber(), registrationStatus(existingCustomer, customer)));
+                newCustomers.remove(i);
+                newCustomerResults.remove(i);
+            }
+        }
+        return !newCustomers.isEmpty();
     }
 
 }
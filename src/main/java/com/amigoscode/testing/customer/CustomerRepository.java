@@ -4,10 +4,12 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface CustomerRepository extends CrudRepository<Customer, UUID> {
+public interface CustomerRepository extends CrudRepository<Customer, UUID>, CustomerBatchRepository {
 
     @Query(
             value = "select id, name, phone_number from customer where phone_number = :phone_number",
@@ -15,4 +17,10 @@ public interface CustomerRepository extends CrudRepository<Customer, UUID> {
     )
     Optional<Customer> findCustomerByPhoneNumber(@Param("phone_number") String phoneNumber);
 
+    @Query(
+            value = "select id, name, phone_number from customer where phone_number in (:phone_numbers)",
+            nativeQuery = true
+    )
+    List<Customer> findCustomersByPhoneNumbers(@Param("phone_numbers") Collection<String> phoneNumbers);
+
 }
@@ -0,0 +1,155 @@
+package com.amigoscode.testing.customer;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+// Open addressing hash table mapping an encoded phone number to a customer id. Every slot is
+// three longs (key, most and least significant bits of the id) stored in a direct buffer, so
+// entries live outside the Java heap and are never traversed by the garbage collector.
+class OffHeapPhoneNumberMap {
+
+    static final long NOT_ENCODABLE = -1L;
+
+    private static final int SLOT_BYTES = 3 * Long.BYTES;
+    private static final int MAX_CAPACITY = Integer.highestOneBit(Integer.MAX_VALUE / SLOT_BYTES);
+    private static final int MAX_DIGITS = 17;
+    private static final int LENGTH_SHIFT = 57;
+    private static final long PLUS_FLAG = 1L << 62;
+    private static final double MAX_LOAD_FACTOR = 0.6;
+
+    private final StampedLock lock = new StampedLock();
+
+    private ByteBuffer slots;
+    private int capacity;
+    private int size;
+
+    OffHeapPhoneNumberMap(int expectedSize) {
+        this.capacity = capacityFor(expectedSize);
+        this.slots = ByteBuffer.allocateDirect(capacity * SLOT_BYTES);
+    }
+
+    // Packs an optional leading '+' and up to 17 digits into a positive long. The digit count is
+    // kept alongside the value so leading zeros stay significant.
+    static long encode(CharSequence phoneNumber) {
+        if (phoneNumber == null) return NOT_ENCODABLE;
+        int length = phoneNumber.length();
+        int start = length > 0 && phoneNumber.charAt(0) == '+' ? 1 : 0;
+        int digits = length - start;
+        if (digits < 1 || digits > MAX_DIGITS) return NOT_ENCODABLE;
+
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            char c = phoneNumber.charAt(i);
+            if (c < '0' || c > '9') return NOT_ENCODABLE;
+            value = value * 10 + (c - '0');
+        }
+        return (start == 1 ? PLUS_FLAG : 0) | ((long) digits << LENGTH_SHIFT) | value;
+    }
+
+    UUID get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        UUID id = find(key);
+        if (lock.validate(stamp)) {
+            return id;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    void put(long key, UUID id) {
+        long stamp = lock.writeLock();
+        try {
+            if (size + 1 > capacity * MAX_LOAD_FACTOR) {
+                resize();
+            }
+            if (insert(slots, capacity, key, id.getMostSignificantBits(), id.getLeastSignificantBits())) {
+                size++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    long offHeapBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) capacity * SLOT_BYTES;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private UUID find(long key) {
+        ByteBuffer buffer = slots;
+        int mask = (buffer.capacity() / SLOT_BYTES) - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int offset = slot * SLOT_BYTES;
+            long slotKey = buffer.getLong(offset);
+            if (slotKey == 0) return null;
+            if (slotKey == key) {
+                return new UUID(buffer.getLong(offset + Long.BYTES), buffer.getLong(offset + 2 * Long.BYTES));
+            }
+        }
+    }
+
+    private static boolean insert(ByteBuffer buffer, int capacity, long key, long msb, long lsb) {
+        int mask = capacity - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int offset = slot * SLOT_BYTES;
+            long slotKey = buffer.getLong(offset);
+            if (slotKey == 0 || slotKey == key) {
+                buffer.putLong(offset + Long.BYTES, msb);
+                buffer.putLong(offset + 2 * Long.BYTES, lsb);
+                buffer.putLong(offset, key);
+                return slotKey == 0;
+            }
+        }
+    }
+
+    private void resize() {
+        if (capacity == MAX_CAPACITY) {
+            throw new IllegalStateException(String.format("Phone number index cannot grow beyond %d slots", MAX_CAPACITY));
+        }
+        int newCapacity = capacity << 1;
+        ByteBuffer newSlots = ByteBuffer.allocateDirect(newCapacity * SLOT_BYTES);
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = slot * SLOT_BYTES;
+            long key = slots.getLong(offset);
+            if (key != 0) {
+                insert(newSlots, newCapacity, key, slots.getLong(offset + Long.BYTES), slots.getLong(offset + 2 * Long.BYTES));
+            }
+        }
+        slots = newSlots;
+        capacity = newCapacity;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long required = (long) Math.ceil(Math.max(expectedSize, 1) / MAX_LOAD_FACTOR);
+        long capacity = Long.highestOneBit(required);
+        if (capacity < required) capacity <<= 1;
+        return (int) Math.min(Math.max(capacity, 16), MAX_CAPACITY);
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
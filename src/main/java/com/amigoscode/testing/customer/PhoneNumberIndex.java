@@ -0,0 +1,72 @@
+package com.amigoscode.testing.customer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+@Component
+@ConditionalOnProperty(value = "customer.phone-index.enabled", havingValue = "true")
+public class PhoneNumberIndex implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PhoneNumberIndex.class);
+
+    private static final int WARM_UP_FETCH_SIZE = 10_000;
+
+    private final OffHeapPhoneNumberMap phoneNumbers;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean warm;
+
+    public PhoneNumberIndex(DataSource dataSource,
+                            @Value("${customer.phone-index.expected-size:1000000}") int expectedSize) {
+        this.phoneNumbers = new OffHeapPhoneNumberMap(expectedSize);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(WARM_UP_FETCH_SIZE);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        warmUp();
+    }
+
+    void warmUp() {
+        long start = System.nanoTime();
+        jdbcTemplate.query("select id, phone_number from customer", rs -> {
+            put(rs.getString("phone_number"), rs.getObject("id", UUID.class));
+        });
+        warm = true;
+        LOGGER.info("Phone number index warmed with {} customers in {} ms",
+                phoneNumbers.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // The index only answers for phone numbers it can encode, and only once it holds every
+    // customer; anything else has to go to the database.
+    public boolean covers(String phoneNumber) {
+        return warm && OffHeapPhoneNumberMap.encode(phoneNumber) != OffHeapPhoneNumberMap.NOT_ENCODABLE;
+    }
+
+    public UUID get(String phoneNumber) {
+        long key = OffHeapPhoneNumberMap.encode(phoneNumber);
+        return key == OffHeapPhoneNumberMap.NOT_ENCODABLE ? null : phoneNumbers.get(key);
+    }
+
+    public void put(String phoneNumber, UUID customerId) {
+        long key = OffHeapPhoneNumberMap.encode(phoneNumber);
+        if (key != OffHeapPhoneNumberMap.NOT_ENCODABLE) {
+            phoneNumbers.put(key, customerId);
+        }
+    }
+
+    public int size() {
+        return phoneNumbers.size();
+    }
+}
@@ -0,0 +1,53 @@
+package com.amigoscode.testing.customer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UUIDv7 layout: 48 bits of unix milliseconds, the version, a 12 bit counter and 62 random bits.
+ * New ids always land at the right-hand edge of the customer primary key index.
+ *
+ * The timestamp and counter are advanced together as one 60 bit value, so ids stay strictly
+ * increasing across threads, within the same millisecond and when the clock steps backwards.
+ * A counter overflow simply borrows the next millisecond.
+ */
+@Component
+@ConditionalOnProperty(value = "customer.id-generator", havingValue = "time-ordered", matchIfMissing = true)
+public class TimeOrderedCustomerIdGenerator implements CustomerIdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final long RANDOM_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    private final Clock clock;
+
+    private final AtomicLong lastTimestampAndCounter = new AtomicLong();
+
+    @Autowired
+    public TimeOrderedCustomerIdGenerator() {
+        this(Clock.systemUTC());
+    }
+
+    TimeOrderedCustomerIdGenerator(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID generate() {
+        long now = clock.millis() << COUNTER_BITS;
+        long timestampAndCounter = lastTimestampAndCounter.updateAndGet(last -> Math.max(now, last + 1));
+
+        long mostSigBits = (timestampAndCounter >>> COUNTER_BITS) << 16
+                | VERSION
+                | (timestampAndCounter & ((1L << COUNTER_BITS) - 1));
+        long leastSigBits = VARIANT | (ThreadLocalRandom.current().nextLong() & RANDOM_MASK);
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
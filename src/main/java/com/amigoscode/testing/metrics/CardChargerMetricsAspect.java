@@ -0,0 +1,71 @@
+package com.amigoscode.testing.metrics;
+
+import com.amigoscode.testing.payment.CardPaymentCharge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Times every CardPaymentCharger implementation, Stripe or mock, tagged with the implementation.
+// The resilience wrapper is applied after this proxy, so breaker and limit rejections never reach
+// the charger and are not counted here.
+@Aspect
+@Component
+public class CardChargerMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    public CardChargerMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* com.amigoscode.testing.payment.CardPaymentCharger+.chargeCard(..))")
+    public Object timeCharge(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            CardPaymentCharge charge = (CardPaymentCharge) joinPoint.proceed();
+            sample.stop(timer(joinPoint, charge, null));
+            return charge;
+        } catch (Throwable e) {
+            sample.stop(timer(joinPoint, null, e));
+            throw e;
+        }
+    }
+
+    @Around("execution(* com.amigoscode.testing.payment.AsyncCardPaymentCharger+.chargeCardAsync(..))")
+    public Object timeAsyncCharge(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<?> future;
+        try {
+            future = (CompletableFuture<?>) joinPoint.proceed();
+        } catch (Throwable e) {
+            sample.stop(timer(joinPoint, null, e));
+            throw e;
+        }
+        return future.whenComplete((charge, error) -> sample.stop(timer(
+                joinPoint,
+                (CardPaymentCharge) charge,
+                error instanceof CompletionException && error.getCause() != null ? error.getCause() : error)));
+    }
+
+    private Timer timer(ProceedingJoinPoint joinPoint, CardPaymentCharge charge, Throwable error) {
+        String outcome;
+        if (error != null) {
+            outcome = "error";
+        } else {
+            outcome = charge.isCardDebited() ? "debited" : "not_debited";
+        }
+        return Timer.builder("payment.charger")
+                .description("Calls to the card payment charger implementations")
+                .tag("charger", joinPoint.getTarget().getClass().getSimpleName())
+                .tag("method", joinPoint.getSignature().getName())
+                .tag("outcome", outcome)
+                .tag("exception", error == null ? "None" : error.getClass().getSimpleName())
+                .register(meterRegistry);
+    }
+}
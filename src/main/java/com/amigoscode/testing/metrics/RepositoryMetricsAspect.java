@@ -0,0 +1,53 @@
+package com.amigoscode.testing.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+// Times the repository calls on the registration and payment hot paths. Spring Data repositories
+// are proxies of their interface, so each advice names the repository it applies to.
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+    private static final String HOT_PATH_METHODS =
+            "(execution(* findCustomerByPhoneNumber(..)) || execution(* findById(..)) || execution(* save(..)))";
+
+    private final MeterRegistry meterRegistry;
+
+    public RepositoryMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("this(com.amigoscode.testing.customer.CustomerRepository) && " + HOT_PATH_METHODS)
+    public Object timeCustomerRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "CustomerRepository");
+    }
+
+    @Around("this(com.amigoscode.testing.payment.PaymentRepository) && " + HOT_PATH_METHODS)
+    public Object timePaymentRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "PaymentRepository");
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String repository) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "None";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("repository.invocations")
+                    .description("Repository calls on the registration and payment paths")
+                    .tag("repository", repository)
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("outcome", "None".equals(exception) ? "success" : "error")
+                    .tag("exception", exception)
+                    .register(meterRegistry));
+        }
+    }
+}
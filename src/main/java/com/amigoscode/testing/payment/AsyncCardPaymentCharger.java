@@ -0,0 +1,21 @@
+package com.amigoscode.testing.payment;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface AsyncCardPaymentCharger {
+
+    CompletableFuture<CardPaymentCharge> chargeCardAsync(
+            final String cardSource,
+            final Money amount,
+            final String description
+    );
+
+    default CompletableFuture<CardPaymentCharge> chargeCardAsync(
+            final String cardSource,
+            final Money amount,
+            final String description,
+            final ChargeOptions options
+    ) {
+        return chargeCardAsync(cardSource, amount, description);
+    }
+}
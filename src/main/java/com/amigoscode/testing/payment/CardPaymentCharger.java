@@ -1,13 +1,19 @@
 package com.amigoscode.testing.payment;
 
-import java.math.BigDecimal;
-
 public interface CardPaymentCharger {
 
     CardPaymentCharge chargeCard(
             final String cardSource,
-            final BigDecimal amout,
-            final Currency currency,
+            final Money amount,
             final String description
             );
+
+    default CardPaymentCharge chargeCard(
+            final String cardSource,
+            final Money amount,
+            final String description,
+            final ChargeOptions options
+    ) {
+        return chargeCard(cardSource, amount, description);
+    }
 }
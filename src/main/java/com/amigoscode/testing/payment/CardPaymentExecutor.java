@@ -0,0 +1,47 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Bounded pool that card processor calls run on, so they never hold a servlet thread. It is not
+// exposed as a java.util.concurrent.Executor bean to leave Spring Boot's task executor in place.
+@Component
+public class CardPaymentExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public CardPaymentExecutor(@Value("${payment.charge-executor.pool-size:16}") int poolSize,
+                               @Value("${payment.charge-executor.queue-capacity:256}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("card-payment-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Card payment executor is saturated", e));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
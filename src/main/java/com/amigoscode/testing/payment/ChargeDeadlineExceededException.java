@@ -0,0 +1,16 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GATEWAY_TIMEOUT)
+public class ChargeDeadlineExceededException extends IllegalStateException {
+
+    public ChargeDeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public ChargeDeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
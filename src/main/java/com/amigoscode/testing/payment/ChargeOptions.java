@@ -0,0 +1,68 @@
+package com.amigoscode.testing.payment;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+public class ChargeOptions {
+
+    private static final ChargeOptions NONE = new ChargeOptions(null, null);
+
+    private final String idempotencyKey;
+
+    private final Deadline deadline;
+
+    private ChargeOptions(String idempotencyKey, Deadline deadline) {
+        this.idempotencyKey = idempotencyKey;
+        this.deadline = deadline;
+    }
+
+    public static ChargeOptions none() {
+        return NONE;
+    }
+
+    public static ChargeOptions withIdempotencyKey(String idempotencyKey) {
+        return idempotencyKey == null ? NONE : new ChargeOptions(idempotencyKey, null);
+    }
+
+    // Stripe idempotency keys apply across the whole account, so a client key is only forwarded as a
+    // hash scoped to the customer that sent it.
+    public static ChargeOptions withCustomerIdempotencyKey(UUID customerId, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return NONE;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((customerId + ":" + idempotencyKey).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return new ChargeOptions(hex.toString(), null);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public ChargeOptions withDeadline(Deadline deadline) {
+        return new ChargeOptions(idempotencyKey, deadline);
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    // Null when the charge may take as long as the card processor's own timeouts allow
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public String toString() {
+        return "ChargeOptions{" +
+                "idempotencyKey='" + idempotencyKey + '\'' +
+                ", deadline=" + deadline +
+                '}';
+    }
+}
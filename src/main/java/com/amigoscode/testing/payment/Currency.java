@@ -1,7 +1,25 @@
 package com.amigoscode.testing.payment;
 
 public enum Currency {
-    USD,
-    GPD,
-    EUR
+    USD("usd", 2),
+    GPD("gbp", 2),
+    EUR("eur", 2);
+
+    private final String code;
+
+    private final int fractionDigits;
+
+    Currency(String code, int fractionDigits) {
+        this.code = code;
+        this.fractionDigits = fractionDigits;
+    }
+
+    // Lower-case ISO 4217 code, as Stripe expects it
+    public String getCode() {
+        return code;
+    }
+
+    public int getFractionDigits() {
+        return fractionDigits;
+    }
 }
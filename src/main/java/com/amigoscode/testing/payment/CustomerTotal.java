@@ -0,0 +1,64 @@
+package com.amigoscode.testing.payment;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+public class CustomerTotal {
+
+    private final Money total;
+
+    private final long paymentCount;
+
+    public CustomerTotal(Money total, long paymentCount) {
+        this.total = total;
+        this.paymentCount = paymentCount;
+    }
+
+    // Used by the JPQL constructor expression, which sums minor units
+    public CustomerTotal(Currency currency, Long total, Long paymentCount) {
+        this(Money.ofMinor(total, currency), paymentCount);
+    }
+
+    @JsonCreator
+    public CustomerTotal(@JsonProperty("currency") Currency currency,
+                         @JsonProperty("total") BigDecimal total,
+                         @JsonProperty("paymentCount") long paymentCount) {
+        this(Money.of(total, currency), paymentCount);
+    }
+
+    public Currency getCurrency() {
+        return total.getCurrency();
+    }
+
+    public BigDecimal getTotal() {
+        return total.toBigDecimal();
+    }
+
+    public long getPaymentCount() {
+        return paymentCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomerTotal that = (CustomerTotal) o;
+        return paymentCount == that.paymentCount && total.equals(that.total);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(total, paymentCount);
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerTotal{" +
+                "total=" + total +
+                ", paymentCount=" + paymentCount +
+                '}';
+    }
+}
@@ -0,0 +1,35 @@
+package com.amigoscode.testing.payment;
+
+import java.time.Duration;
+
+// The point a charge has to be finished by. It is taken from the monotonic clock so wall clock
+// adjustments cannot stretch or shrink it, and it is absolute so time spent queued before the
+// charge starts counts against it.
+public final class Deadline {
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    // Negative once the deadline has passed
+    public Duration remaining() {
+        return Duration.ofNanos(deadlineNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline{" +
+                "remaining=" + remaining() +
+                '}';
+    }
+}
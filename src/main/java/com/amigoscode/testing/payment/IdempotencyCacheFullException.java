@@ -0,0 +1,13 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Every remembered key is still in flight or within its TTL, so the payment was not attempted
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class IdempotencyCacheFullException extends IllegalStateException {
+
+    public IdempotencyCacheFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+// Persists a confirmed payment and adds it to the customer's running totals in one transaction,
+// so the totals never disagree with the payment table.
+@Component
+@ConditionalOnProperty(value = "payment.write-behind.enabled", havingValue = "false", matchIfMissing = true)
+public class JpaPaymentRecorder implements PaymentRecorder {
+
+    private final PaymentRepository paymentRepository;
+
+    private final PaymentTotalRepository paymentTotalRepository;
+
+    public JpaPaymentRecorder(PaymentRepository paymentRepository, PaymentTotalRepository paymentTotalRepository) {
+        this.paymentRepository = paymentRepository;
+        this.paymentTotalRepository = paymentTotalRepository;
+    }
+
+    @Override
+    @Transactional
+    public void record(Payment payment) {
+        paymentRepository.save(payment);
+        paymentTotalRepository.increment(payment.getCustomerId(), payment.getMoney());
+    }
+}
@@ -0,0 +1,82 @@
+package com.amigoscode.testing.payment;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+// An amount in the currency's minor units (cents, pence), which is also what Stripe charges in.
+// Decimal amounts only appear at the JSON boundary, through of(BigDecimal, Currency) and toBigDecimal.
+// The column is amount_minor so it is never mistaken for the decimal amount column it replaced.
+@Embeddable
+@Access(AccessType.FIELD)
+public final class Money {
+
+    @Column(name = "amount_minor")
+    private long minorUnits;
+
+    @Column(name = "currency")
+    private Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = Objects.requireNonNull(currency, "currency");
+    }
+
+    // For JPA only
+    private Money() {
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money of(BigDecimal amount, Currency currency) {
+        Objects.requireNonNull(currency, "currency");
+        try {
+            return new Money(amount.movePointRight(currency.getFractionDigits()).longValueExact(), currency);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(
+                    String.format("Amount %s is not a whole number of %s minor units", amount, currency), e);
+        }
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        if (other.currency != currency) {
+            throw new IllegalArgumentException(String.format("Cannot add %s to %s", other.currency, currency));
+        }
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getFractionDigits());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && currency == money.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency;
+    }
+}
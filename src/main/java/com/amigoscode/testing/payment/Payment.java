@@ -1,39 +1,71 @@
 package com.amigoscode.testing.payment;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
 import java.math.BigDecimal;
 import java.util.Objects;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = @Index(name = "payment_customer_id_payment_id_idx", columnList = "customerId, paymentId"))
 public class Payment {
 
     @Id
-    @GeneratedValue
+    @SequenceGenerator(name = "payment_id_sequence", sequenceName = "payment_id_sequence", allocationSize = 50)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_id_sequence")
     private Long paymentId;
 
     private UUID customerId;
 
-    private BigDecimal amount;
-
-    private Currency currency;
+    @Embedded
+    private Money amount;
 
     private String source;
 
     private String description;
 
 
-    public Payment(Long paymentId, UUID customerId, BigDecimal amount, Currency currency, String source, String description) {
+    public Payment(Long paymentId, UUID customerId, Money amount, String source, String description) {
         this.paymentId = paymentId;
         this.customerId = customerId;
         this.amount = amount;
-        this.currency = currency;
         this.source = source;
         this.description = description;
     }
 
+    // Clients keep sending the amount as a decimal next to the currency
+    @JsonCreator
+    public Payment(@JsonProperty("paymentId") Long paymentId,
+                   @JsonProperty("customerId") UUID customerId,
+                   @JsonProperty("amount") BigDecimal amount,
+                   @JsonProperty("currency") Currency currency,
+                   @JsonProperty("source") String source,
+                   @JsonProperty("description") String description) {
+        this(paymentId, customerId, money(amount, currency), source, description);
+    }
+
+    // A missing currency is left to PaymentService, which rejects it as unsupported; a missing
+    // amount fails here, so it is reported as such rather than as a null currency
+    private static Money money(BigDecimal amount, Currency currency) {
+        if (currency == null) {
+            return null;
+        }
+        if (amount == null) {
+            throw new IllegalArgumentException("Payment amount is required");
+        }
+        return Money.of(amount, currency);
+    }
+
     public Payment() {
     }
 
@@ -53,20 +85,17 @@ public class Payment {
         this.customerId = customerId;
     }
 
-    public BigDecimal getAmount() {
+    @JsonIgnore
+    public Money getMoney() {
         return amount;
     }
 
-    public void setAmount(BigDecimal amount) {
-        this.amount = amount;
+    public BigDecimal getAmount() {
+        return amount == null ? null : amount.toBigDecimal();
     }
 
     public Currency getCurrency() {
-        return currency;
-    }
-
-    public void setCurrency(Currency currency) {
-        this.currency = currency;
+        return amount == null ? null : amount.getCurrency();
     }
 
     public String getSource() {
@@ -91,7 +120,6 @@ public class Payment {
                 "paymentId=" + paymentId +
                 ", customerId=" + customerId +
                 ", amount=" + amount +
-                ", currency=" + currency +
                 ", source='" + source + '\'' +
                 ", description='" + description + '\'' +
                 '}';
@@ -102,11 +130,11 @@ public class Payment {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Payment payment = (Payment) o;
-        return paymentId.equals(payment.paymentId) && customerId.equals(payment.customerId) && amount.equals(payment.amount) && currency == payment.currency && source.equals(payment.source) && description.equals(payment.description);
+        return paymentId.equals(payment.paymentId) && customerId.equals(payment.customerId) && Objects.equals(amount, payment.amount) && source.equals(payment.source) && description.equals(payment.description);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(paymentId, customerId, amount, currency, source, description);
+        return Objects.hash(paymentId, customerId, amount, source, description);
     }
 }
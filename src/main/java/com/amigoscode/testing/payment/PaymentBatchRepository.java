@@ -0,0 +1,9 @@
+package com.amigoscode.testing.payment;
+
+import java.util.List;
+
+public interface PaymentBatchRepository {
+
+    List<Payment> insertAll(List<Payment> payments);
+
+}
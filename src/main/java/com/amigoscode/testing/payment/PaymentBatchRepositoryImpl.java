@@ -0,0 +1,39 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+class PaymentBatchRepositoryImpl implements PaymentBatchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final int batchSize;
+
+    PaymentBatchRepositoryImpl(@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    // Unlike saveAll, which merges any payment carrying an id, this always persists, so ids come
+    // from the pooled sequence and Hibernate can group the inserts into JDBC batches.
+    @Override
+    @Transactional
+    public List<Payment> insertAll(List<Payment> payments) {
+        for (int i = 0; i < payments.size(); i++) {
+            Payment payment = payments.get(i);
+            payment.setPaymentId(null);
+            entityManager.persist(payment);
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return payments;
+    }
+}
@@ -1,21 +1,104 @@
 package com.amigoscode.testing.payment;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("api/v1/payment")
 public class PaymentController {
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private final PaymentService paymentService;
 
-    public PaymentController(PaymentService paymentService) {
+    private final PaymentIdempotencyCache paymentIdempotencyCache;
+
+    private final PaymentExporter paymentExporter;
+
+    private final Duration chargeDeadline;
+
+    public PaymentController(PaymentService paymentService,
+                             PaymentIdempotencyCache paymentIdempotencyCache,
+                             PaymentExporter paymentExporter,
+                             @Value("${payment.charge.deadline:2s}") Duration chargeDeadline) {
         this.paymentService = paymentService;
+        this.paymentIdempotencyCache = paymentIdempotencyCache;
+        this.paymentExporter = paymentExporter;
+        this.chargeDeadline = chargeDeadline;
+    }
+
+    @GetMapping
+    public PaymentPage getPayments(@RequestParam UUID customerId,
+                                   @RequestParam(required = false) Long after,
+                                   @RequestParam(defaultValue = "50") int limit) {
+        return paymentService.findPayments(customerId, after, limit);
+    }
+
+    @GetMapping("totals")
+    public List<CustomerTotal> getTotals(@RequestParam UUID customerId) {
+        return paymentService.findTotals(customerId);
+    }
+
+    @PostMapping("totals/rebuild")
+    public void rebuildTotals() {
+        paymentService.rebuildTotals();
+    }
+
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+            @RequestParam(defaultValue = "NDJSON") PaymentExporter.Format format,
+            @RequestParam(required = false) Long fromId,
+            @RequestParam(required = false) Long toId) {
+        StreamingResponseBody body = outputStream -> paymentExporter.export(format, fromId, toId, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .body(body);
     }
 
     @PostMapping
-    public void makePayment(@RequestBody PaymentRequest paymentRequest) {
-        paymentService.chargeCard(paymentRequest.getPayment().getCustomerId(), paymentRequest);
+    public void makePayment(@RequestBody PaymentRequest paymentRequest,
+                            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        UUID customerId = paymentRequest.getPayment().getCustomerId();
+        ChargeOptions chargeOptions = chargeOptions(customerId, idempotencyKey);
+        if (idempotencyKey == null) {
+            paymentService.chargeCard(customerId, paymentRequest, chargeOptions);
+            return;
+        }
+
+        paymentIdempotencyCache.execute(cacheKey(customerId, idempotencyKey), paymentRequest.fingerprint(), () -> paymentService.chargeCard(
+                customerId, paymentRequest, chargeOptions));
+    }
+
+    @PostMapping("async")
+    public CompletableFuture<Void> makePaymentAsync(@RequestBody PaymentRequest paymentRequest,
+                                                    @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        UUID customerId = paymentRequest.getPayment().getCustomerId();
+        ChargeOptions chargeOptions = chargeOptions(customerId, idempotencyKey);
+        if (idempotencyKey == null) {
+            return paymentService.chargeCardAsync(customerId, paymentRequest, chargeOptions);
+        }
+
+        return paymentIdempotencyCache.executeAsync(cacheKey(customerId, idempotencyKey), paymentRequest.fingerprint(), () -> paymentService.chargeCardAsync(
+                customerId, paymentRequest, chargeOptions));
+    }
+
+    // The deadline starts when the request arrives, so everything before the charge counts against it
+    private ChargeOptions chargeOptions(UUID customerId, String idempotencyKey) {
+        return ChargeOptions.withCustomerIdempotencyKey(customerId, idempotencyKey)
+                .withDeadline(Deadline.after(chargeDeadline));
+    }
+
+    private static String cacheKey(UUID customerId, String idempotencyKey) {
+        return customerId + ":" + idempotencyKey;
     }
 }
@@ -0,0 +1,73 @@
+package com.amigoscode.testing.payment;
+
+import java.util.Objects;
+import java.util.UUID;
+
+// Outcome of one charge attempt, published by PaymentService for the audit journal.
+public class PaymentEvent {
+
+    public enum Type {
+        CHARGED,
+        CARD_NOT_DEBITED,
+        CURRENCY_REJECTED,
+        CUSTOMER_NOT_FOUND,
+        // The charge attempt ended in an exception, e.g. a card processor error, a missed deadline
+        // or an open circuit, so whether the card was debited is not known here
+        FAILED
+    }
+
+    private final Type type;
+
+    private final long timestamp;
+
+    private final UUID customerId;
+
+    private final Money amount;
+
+    public PaymentEvent(Type type, long timestamp, UUID customerId, Money amount) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.customerId = customerId;
+        this.amount = amount;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public UUID getCustomerId() {
+        return customerId;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PaymentEvent that = (PaymentEvent) o;
+        return timestamp == that.timestamp && type == that.type && Objects.equals(customerId, that.customerId)
+                && Objects.equals(amount, that.amount);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, timestamp, customerId, amount);
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentEvent{" +
+                "type=" + type +
+                ", timestamp=" + timestamp +
+                ", customerId=" + customerId +
+                ", amount=" + amount +
+                '}';
+    }
+}
@@ -0,0 +1,185 @@
+package com.amigoscode.testing.payment;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+// Writes payments straight from a forward-only JDBC cursor to the response, one row at a time,
+// so an export never holds more than one fetch of rows in memory. The read-only transaction keeps
+// drivers such as PostgreSQL from materialising the whole result before the first row.
+@Component
+public class PaymentExporter {
+
+    static final String SELECT_PAYMENTS = "select payment_id, customer_id, amount_minor, currency, source, description " +
+            "from payment where payment_id between ? and ? order by payment_id";
+
+    static final String CSV_HEADER = "payment_id,customer_id,amount,amount_minor,currency,source,description";
+
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public PaymentExporter(DataSource dataSource,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${payment.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public void export(Format format, Long fromId, Long toId, OutputStream outputStream) throws IOException {
+        long from = fromId == null ? Long.MIN_VALUE : fromId;
+        long to = toId == null ? Long.MAX_VALUE : toId;
+        try {
+            switch (format) {
+                case NDJSON:
+                    exportNdjson(from, to, outputStream);
+                    break;
+                case CSV:
+                    exportCsv(from, to, outputStream);
+                    break;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void exportNdjson(long from, long to, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.setRootValueSeparator(null);
+            query(from, to, rs -> {
+                generator.writeStartObject();
+                generator.writeNumberField("paymentId", rs.getLong(1));
+                generator.writeStringField("customerId", customerId(rs));
+                Currency currency = currency(rs);
+                Long amountMinor = amountMinor(rs);
+                generator.writeFieldName("amount");
+                generator.writeNumber(amount(amountMinor, currency));
+                generator.writeFieldName("amountMinor");
+                if (amountMinor == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(amountMinor);
+                }
+                generator.writeStringField("currency", currency == null ? null : currency.name());
+                generator.writeStringField("source", rs.getString(5));
+                generator.writeStringField("description", rs.getString(6));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            });
+        }
+    }
+
+    private void exportCsv(long from, long to, OutputStream outputStream) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            query(from, to, rs -> {
+                writer.write(Long.toString(rs.getLong(1)));
+                writer.write(',');
+                writer.write(csvField(customerId(rs)));
+                writer.write(',');
+                Currency currency = currency(rs);
+                Long amountMinor = amountMinor(rs);
+                BigDecimal amount = amount(amountMinor, currency);
+                writer.write(amount == null ? "" : amount.toPlainString());
+                writer.write(',');
+                writer.write(amountMinor == null ? "" : amountMinor.toString());
+                writer.write(',');
+                writer.write(currency == null ? "" : currency.name());
+                writer.write(',');
+                writer.write(csvField(rs.getString(5)));
+                writer.write(',');
+                writer.write(csvField(rs.getString(6)));
+                writer.write('\n');
+            });
+        }
+    }
+
+    private void query(long from, long to, RowWriter rowWriter) {
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.query(SELECT_PAYMENTS, (RowCallbackHandler) rs -> {
+                    try {
+                        rowWriter.write(rs);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, from, to));
+    }
+
+    // Hibernate maps UUID to binary(16) and enums to their ordinal by default. The columns are
+    // nullable, so a missing value is exported as null in NDJSON and an empty CSV field.
+    private static String customerId(ResultSet rs) throws SQLException {
+        byte[] customerId = rs.getBytes(2);
+        if (customerId == null) return null;
+        ByteBuffer bytes = ByteBuffer.wrap(customerId);
+        return new UUID(bytes.getLong(), bytes.getLong()).toString();
+    }
+
+    private static Currency currency(ResultSet rs) throws SQLException {
+        int currency = rs.getInt(4);
+        return rs.wasNull() ? null : Currency.values()[currency];
+    }
+
+    private static Long amountMinor(ResultSet rs) throws SQLException {
+        long amountMinor = rs.getLong(3);
+        return rs.wasNull() ? null : amountMinor;
+    }
+
+    // Minor units cannot be scaled without their currency, so only amountMinor carries them then
+    private static BigDecimal amount(Long amountMinor, Currency currency) {
+        if (amountMinor == null || currency == null) return null;
+        return BigDecimal.valueOf(amountMinor, currency.getFractionDigits());
+    }
+
+    static String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+}
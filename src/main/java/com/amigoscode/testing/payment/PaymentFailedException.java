@@ -0,0 +1,16 @@
+package com.amigoscode.testing.payment;
+
+// A payment that was refused for a business reason, as opposed to an infrastructure failure
+public class PaymentFailedException extends IllegalStateException {
+
+    private final PaymentEvent.Type type;
+
+    public PaymentFailedException(PaymentEvent.Type type, String message) {
+        super(message);
+        this.type = type;
+    }
+
+    public PaymentEvent.Type getType() {
+        return type;
+    }
+}
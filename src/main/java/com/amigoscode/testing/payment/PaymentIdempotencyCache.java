@@ -0,0 +1,154 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Remembers the outcome of payments by idempotency key. The first request for a key runs the
+// payment; duplicates arriving while it is in flight wait on the same future, and duplicates
+// arriving later get the stored result until it expires. A key reused with a different request is
+// rejected. Failed payments are forgotten so the client can retry them. Results expire in the
+// order they completed, so each call evicts the expired ones from the head of that queue; keys
+// that are in flight or still within their TTL are never forgotten, so new keys are rejected
+// when full. The defaults hold 10 minutes of keys at 2,000 payments/s with some headroom; retries
+// after that still reach Stripe with the same idempotency key.
+@Component
+public class PaymentIdempotencyCache {
+
+    private final Clock clock;
+
+    private final long ttlMillis;
+
+    private final int maxEntries;
+
+    private final Map<String, Entry> entries;
+
+    private final Queue<Expiry> expiries;
+
+    @Autowired
+    public PaymentIdempotencyCache(@Value("${payment.idempotency.ttl:10m}") Duration ttl,
+                                   @Value("${payment.idempotency.max-entries:1500000}") int maxEntries) {
+        this(ttl, maxEntries, Clock.systemUTC());
+    }
+
+    PaymentIdempotencyCache(Duration ttl, int maxEntries, Clock clock) {
+        this.clock = clock;
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.entries = new HashMap<>();
+        this.expiries = new ArrayDeque<>();
+    }
+
+    public void execute(String key, String fingerprint, Runnable payment) {
+        try {
+            executeAsync(key, fingerprint, () -> {
+                payment.run();
+                return CompletableFuture.completedFuture(null);
+            }).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // The fingerprint identifies the request the key was first used with
+    public CompletableFuture<Void> executeAsync(String key, String fingerprint,
+                                                Supplier<CompletableFuture<Void>> payment) {
+        Entry entry;
+        synchronized (entries) {
+            long now = clock.millis();
+            evictExpired(now);
+            Entry existing = entries.get(key);
+            if (existing != null && !existing.isExpired(now)) {
+                if (!existing.fingerprint.equals(fingerprint)) {
+                    return CompletableFuture.failedFuture(new IdempotencyKeyReusedException(
+                            "Idempotency key was already used for a different payment"));
+                }
+                return existing.result;
+            }
+            if (existing == null && entries.size() >= maxEntries) {
+                return CompletableFuture.failedFuture(new IdempotencyCacheFullException(
+                        "Too many payments in flight or within the idempotency window"));
+            }
+            entry = new Entry(fingerprint);
+            entries.put(key, entry);
+        }
+
+        CompletableFuture<Void> execution;
+        try {
+            execution = payment.get();
+        } catch (RuntimeException e) {
+            execution = CompletableFuture.failedFuture(e);
+        }
+        execution.whenComplete((result, failure) -> {
+            if (failure == null) {
+                synchronized (entries) {
+                    entry.expiresAt = clock.millis() + ttlMillis;
+                    expiries.add(new Expiry(key, entry));
+                }
+                entry.result.complete(null);
+            } else {
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+                entry.result.completeExceptionally(failure);
+            }
+        });
+        return entry.result;
+    }
+
+    private void evictExpired(long now) {
+        Expiry head;
+        while ((head = expiries.peek()) != null && head.entry.isExpired(now)) {
+            expiries.remove();
+            entries.remove(head.key, head.entry);
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static class Entry {
+
+        private final String fingerprint;
+
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    private static class Expiry {
+
+        private final String key;
+
+        private final Entry entry;
+
+        Expiry(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+}
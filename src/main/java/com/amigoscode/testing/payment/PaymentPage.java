@@ -0,0 +1,37 @@
+package com.amigoscode.testing.payment;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+public class PaymentPage {
+
+    private final List<Payment> payments;
+
+    // paymentId to pass as "after" for the next page, null on the last page
+    private final Long nextAfter;
+
+    @JsonCreator
+    public PaymentPage(@JsonProperty("payments") List<Payment> payments,
+                       @JsonProperty("nextAfter") Long nextAfter) {
+        this.payments = payments;
+        this.nextAfter = nextAfter;
+    }
+
+    public List<Payment> getPayments() {
+        return payments;
+    }
+
+    public Long getNextAfter() {
+        return nextAfter;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentPage{" +
+                "payments=" + payments +
+                ", nextAfter=" + nextAfter +
+                '}';
+    }
+}
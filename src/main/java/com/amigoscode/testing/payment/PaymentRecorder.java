@@ -0,0 +1,14 @@
+package com.amigoscode.testing.payment;
+
+// Persists payments once the card has been debited. Implementations must never lose a payment
+// that record returned for.
+public interface PaymentRecorder {
+
+    void record(Payment payment);
+
+    // Called before the card is charged, so a recorder that cannot take payments fails the request
+    // without debiting the card
+    default void checkAvailable() {
+    }
+
+}
@@ -1,6 +1,23 @@
 package com.amigoscode.testing.payment;
 
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface PaymentRepository extends CrudRepository<Payment, Long>, PaymentBatchRepository {
+
+    @Query(
+            value = "select * from payment " +
+                    "where customer_id = :customer_id and payment_id > :after " +
+                    "order by payment_id " +
+                    "limit :limit",
+            nativeQuery = true
+    )
+    List<Payment> findPaymentsAfter(@Param("customer_id") UUID customerId,
+                                    @Param("after") long after,
+                                    @Param("limit") int limit);
 
-public interface PaymentRepository extends CrudRepository<Payment, Long> {
 }
@@ -2,6 +2,11 @@ package com.amigoscode.testing.payment;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
 public class PaymentRequest {
 
     private final Payment payment;
@@ -14,6 +19,22 @@ public class PaymentRequest {
         return payment;
     }
 
+    // A hash of what the payment charges, so a reused idempotency key can be matched to its request
+    public String fingerprint() {
+        String fields = payment == null ? "" : String.join("\u0000",
+                String.valueOf(payment.getCustomerId()),
+                String.valueOf(payment.getAmount()),
+                String.valueOf(payment.getCurrency()),
+                String.valueOf(payment.getSource()),
+                String.valueOf(payment.getDescription()));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(fields.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Override
     public String toString() {
         return "PaymentRequest{" +
@@ -1,55 +1,228 @@
 package com.amigoscode.testing.payment;
 
 import com.amigoscode.testing.customer.Customer;
-import com.amigoscode.testing.customer.CustomerRepository;
+import com.amigoscode.testing.customer.CustomerLookupCache;
+import com.amigoscode.testing.timing.RequestTimings;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class PaymentService {
 
+    static final int MAX_PAGE_SIZE = 500;
+
+    private static final String SYNC = "sync";
+    private static final String ASYNC = "async";
+
     final private List<Currency> ACCEPTED_CURRENCIES = List.of(Currency.USD, Currency.GPD);
 
     private final PaymentRepository paymentRepository;
-    private final CustomerRepository customerRepository;
+    private final PaymentTotalRepository paymentTotalRepository;
+    private final PaymentRecorder paymentRecorder;
+    private final CustomerLookupCache customerLookupCache;
     private final CardPaymentCharger cardPaymentCharger;
+    private final AsyncCardPaymentCharger asyncCardPaymentCharger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Map<PaymentEvent.Type, Timer>> chargeTimers = new HashMap<>();
 
     public PaymentService(
             PaymentRepository paymentRepository,
-            CustomerRepository customerRepository,
-            CardPaymentCharger cardPaymentCharger
+            PaymentTotalRepository paymentTotalRepository,
+            PaymentRecorder paymentRecorder,
+            CustomerLookupCache customerLookupCache,
+            CardPaymentCharger cardPaymentCharger,
+            AsyncCardPaymentCharger asyncCardPaymentCharger,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry
     ) {
         this.paymentRepository = paymentRepository;
-        this.customerRepository = customerRepository;
+        this.paymentTotalRepository = paymentTotalRepository;
+        this.paymentRecorder = paymentRecorder;
+        this.customerLookupCache = customerLookupCache;
         this.cardPaymentCharger = cardPaymentCharger;
+        this.asyncCardPaymentCharger = asyncCardPaymentCharger;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        for (String mode : List.of(SYNC, ASYNC)) {
+            Map<PaymentEvent.Type, Timer> timers = new EnumMap<>(PaymentEvent.Type.class);
+            for (PaymentEvent.Type type : PaymentEvent.Type.values()) {
+                if (type == PaymentEvent.Type.FAILED) continue;
+                timers.put(type, chargeTimer(mode, type.name().toLowerCase(), "None"));
+            }
+            chargeTimers.put(mode, timers);
+        }
     }
 
     void chargeCard(UUID customerId, PaymentRequest paymentRequest) {
-        Optional<Customer> optionalCustomer = customerRepository.findById(customerId);
-        optionalCustomer.orElseThrow(IllegalStateException::new);
+        chargeCard(customerId, paymentRequest, ChargeOptions.none());
+    }
+
+    void chargeCard(UUID customerId, PaymentRequest paymentRequest, ChargeOptions chargeOptions) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            validate(customerId, paymentRequest);
+            checkDeadline(chargeOptions);
+            paymentRecorder.checkAvailable();
+
+            long stage = RequestTimings.start();
+            final CardPaymentCharge cardPaymentCharge = cardPaymentCharger.chargeCard(
+                    paymentRequest.getPayment().getSource(),
+                    paymentRequest.getPayment().getMoney(),
+                    paymentRequest.getPayment().getDescription(),
+                    chargeOptions
+            );
+            stage = RequestTimings.stage("card_charge", stage);
+
+            savePayment(customerId, paymentRequest, cardPaymentCharge);
+            RequestTimings.stage("payment_record", stage);
+        } catch (RuntimeException e) {
+            publishIfFailed(e, customerId, paymentRequest);
+            sample.stop(chargeTimer(SYNC, e));
+            throw e;
+        }
+        sample.stop(chargeTimer(SYNC, null));
+    }
+
+    CompletableFuture<Void> chargeCardAsync(UUID customerId, PaymentRequest paymentRequest) {
+        return chargeCardAsync(customerId, paymentRequest, ChargeOptions.none());
+    }
+
+    CompletableFuture<Void> chargeCardAsync(UUID customerId, PaymentRequest paymentRequest, ChargeOptions chargeOptions) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture<CardPaymentCharge> charge;
+        try {
+            validate(customerId, paymentRequest);
+            checkDeadline(chargeOptions);
+            paymentRecorder.checkAvailable();
+
+            charge = asyncCardPaymentCharger.chargeCardAsync(
+                    paymentRequest.getPayment().getSource(),
+                    paymentRequest.getPayment().getMoney(),
+                    paymentRequest.getPayment().getDescription(),
+                    chargeOptions
+            );
+        } catch (RuntimeException e) {
+            publishIfFailed(e, customerId, paymentRequest);
+            sample.stop(chargeTimer(ASYNC, e));
+            throw e;
+        }
+        return charge
+                .thenAccept(cardPaymentCharge -> savePayment(customerId, paymentRequest, cardPaymentCharge))
+                .whenComplete((ignored, error) -> {
+                    publishIfFailed(unwrap(error), customerId, paymentRequest);
+                    sample.stop(chargeTimer(ASYNC, unwrap(error)));
+                });
+    }
+
+    PaymentPage findPayments(UUID customerId, Long after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // One extra row tells us whether there is a next page without a count query.
+        List<Payment> payments = paymentRepository.findPaymentsAfter(
+                customerId, after == null ? 0L : after, pageSize + 1);
+        if (payments.size() <= pageSize) {
+            return new PaymentPage(payments, null);
+        }
+        List<Payment> page = payments.subList(0, pageSize);
+        return new PaymentPage(page, page.get(pageSize - 1).getPaymentId());
+    }
+
+    List<CustomerTotal> findTotals(UUID customerId) {
+        return paymentTotalRepository.findCustomerTotals(customerId);
+    }
+
+    void rebuildTotals() {
+        paymentTotalRepository.rebuild();
+    }
+
+    private void validate(UUID customerId, PaymentRequest paymentRequest) {
+        long stage = RequestTimings.start();
+        Optional<Customer> optionalCustomer = customerLookupCache.findById(customerId);
+        stage = RequestTimings.stage("customer_lookup", stage);
+        if (optionalCustomer.isEmpty()) {
+            publish(PaymentEvent.Type.CUSTOMER_NOT_FOUND, customerId, paymentRequest);
+            throw new PaymentFailedException(PaymentEvent.Type.CUSTOMER_NOT_FOUND,
+                    String.format("Customer %s not found", customerId));
+        }
         boolean isCurrencyValid = ACCEPTED_CURRENCIES.stream()
                 .anyMatch(c -> c.equals(paymentRequest.getPayment().getCurrency()));
+        RequestTimings.stage("currency_check", stage);
         if (!isCurrencyValid) {
-            throw new IllegalStateException(
+            publish(PaymentEvent.Type.CURRENCY_REJECTED, customerId, paymentRequest);
+            throw new PaymentFailedException(PaymentEvent.Type.CURRENCY_REJECTED,
                String.format("Invalid currency: the currency %s is not supported", paymentRequest.getPayment().getCurrency())
             );
         }
-        final CardPaymentCharge cardPaymentCharge = cardPaymentCharger.chargeCard(
-                paymentRequest.getPayment().getSource(),
-                paymentRequest.getPayment().getAmount(),
-                paymentRequest.getPayment().getCurrency(),
-                paymentRequest.getPayment().getDescription()
-        );
+    }
 
+    private static void checkDeadline(ChargeOptions chargeOptions) {
+        Deadline deadline = chargeOptions.getDeadline();
+        if (deadline != null && deadline.isExpired()) {
+            throw new ChargeDeadlineExceededException("Deadline reached before the card was charged");
+        }
+    }
+
+    private void savePayment(UUID customerId, PaymentRequest paymentRequest, CardPaymentCharge cardPaymentCharge) {
         if (!cardPaymentCharge.isCardDebited()) {
-            throw new IllegalStateException(String.format("Card not debited for customer %s", customerId));
+            publish(PaymentEvent.Type.CARD_NOT_DEBITED, customerId, paymentRequest);
+            throw new PaymentFailedException(PaymentEvent.Type.CARD_NOT_DEBITED,
+                    String.format("Card not debited for customer %s", customerId));
         }
 
         paymentRequest.getPayment().setCustomerId(customerId);
 
-        paymentRepository.save(paymentRequest.getPayment());
+        paymentRecorder.record(paymentRequest.getPayment());
+        publish(PaymentEvent.Type.CHARGED, customerId, paymentRequest);
+    }
+
+    // Business outcomes are tagged with the matching event type, anything else as an error with
+    // the exception class, the same way http.server.requests tags it
+    private Timer chargeTimer(String mode, Throwable error) {
+        if (error == null) {
+            return chargeTimers.get(mode).get(PaymentEvent.Type.CHARGED);
+        }
+        if (error instanceof PaymentFailedException) {
+            return chargeTimers.get(mode).get(((PaymentFailedException) error).getType());
+        }
+        return chargeTimer(mode, "error", error.getClass().getSimpleName());
+    }
+
+    private Timer chargeTimer(String mode, String outcome, String exception) {
+        return Timer.builder("payment.charge")
+                .description("Card payments by mode and outcome")
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // Business outcomes publish their own event before failing
+    private void publishIfFailed(Throwable error, UUID customerId, PaymentRequest paymentRequest) {
+        if (error != null && !(error instanceof PaymentFailedException)) {
+            publish(PaymentEvent.Type.FAILED, customerId, paymentRequest);
+        }
+    }
+
+    private void publish(PaymentEvent.Type type, UUID customerId, PaymentRequest paymentRequest) {
+        eventPublisher.publishEvent(new PaymentEvent(
+                type,
+                System.currentTimeMillis(),
+                customerId,
+                paymentRequest.getPayment().getMoney()));
     }
 }
@@ -0,0 +1,93 @@
+package com.amigoscode.testing.payment;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.UUID;
+
+// One of several counter rows for a customer and currency. Payments are spread over the shards so
+// concurrent charges for the same customer rarely wait on the same row lock; readers sum them.
+@Entity
+@IdClass(PaymentTotal.Key.class)
+public class PaymentTotal {
+
+    @Id
+    private UUID customerId;
+
+    @Id
+    private Currency currency;
+
+    @Id
+    private int shard;
+
+    // Minor units of the currency, in a column apart from the decimal total it replaced
+    @Column(name = "total_minor")
+    private long total;
+
+    private long paymentCount;
+
+    public PaymentTotal(UUID customerId, Currency currency, int shard, long total, long paymentCount) {
+        this.customerId = customerId;
+        this.currency = currency;
+        this.shard = shard;
+        this.total = total;
+        this.paymentCount = paymentCount;
+    }
+
+    public PaymentTotal() {
+    }
+
+    public UUID getCustomerId() {
+        return customerId;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public Money getTotal() {
+        return Money.ofMinor(total, currency);
+    }
+
+    public long getPaymentCount() {
+        return paymentCount;
+    }
+
+    public static class Key implements Serializable {
+
+        private UUID customerId;
+
+        private Currency currency;
+
+        private int shard;
+
+        public Key(UUID customerId, Currency currency, int shard) {
+            this.customerId = customerId;
+            this.currency = currency;
+            this.shard = shard;
+        }
+
+        public Key() {
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return shard == key.shard && customerId.equals(key.customerId) && currency == key.currency;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(customerId, currency, shard);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.amigoscode.testing.payment;
+
+import java.util.UUID;
+
+public interface PaymentTotalCounterRepository {
+
+    void increment(UUID customerId, Money amount);
+
+    void rebuild();
+
+}
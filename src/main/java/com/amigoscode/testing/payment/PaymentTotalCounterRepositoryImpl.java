@@ -0,0 +1,55 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+class PaymentTotalCounterRepositoryImpl implements PaymentTotalCounterRepository {
+
+    static final int SHARDS = 8;
+
+    private static final String INCREMENT_TOTAL = "merge into payment_total t using (values (1)) v " +
+            "on (t.customer_id = ? and t.currency = ? and t.shard = ?) " +
+            "when matched then update set total_minor = t.total_minor + ?, payment_count = t.payment_count + 1 " +
+            "when not matched then insert (customer_id, currency, shard, total_minor, payment_count) values (?, ?, ?, ?, 1)";
+
+    // Adds the difference between the payments and the counters to each customer's shard 0 row. The
+    // payments and the counters are read in one statement, so a payment and its increment are either
+    // both seen or both missed, and increments running alongside are kept rather than overwritten.
+    private static final String RECONCILE_TOTALS = "merge into payment_total t using (" +
+            "select customer_id, currency, sum(total_minor) total_minor, sum(payment_count) payment_count from (" +
+            "select customer_id, currency, amount_minor total_minor, 1 payment_count from payment " +
+            "where customer_id is not null and currency is not null and amount_minor is not null " +
+            "union all " +
+            "select customer_id, currency, -total_minor, -payment_count from payment_total) d " +
+            "group by customer_id, currency having sum(total_minor) <> 0 or sum(payment_count) <> 0) s " +
+            "on (t.customer_id = s.customer_id and t.currency = s.currency and t.shard = 0) " +
+            "when matched then update set total_minor = t.total_minor + s.total_minor, payment_count = t.payment_count + s.payment_count " +
+            "when not matched then insert (customer_id, currency, shard, total_minor, payment_count) " +
+            "values (s.customer_id, s.currency, 0, s.total_minor, s.payment_count)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    PaymentTotalCounterRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // A single upsert rather than update, insert and update again on a duplicate key: a failed
+    // statement aborts the surrounding payment transaction on databases such as PostgreSQL.
+    @Override
+    @Transactional
+    public void increment(UUID customerId, Money amount) {
+        int shard = (int) (Thread.currentThread().getId() % SHARDS);
+        int currency = amount.getCurrency().ordinal();
+        jdbcTemplate.update(INCREMENT_TOTAL,
+                customerId, currency, shard, amount.getMinorUnits(),
+                customerId, currency, shard, amount.getMinorUnits());
+    }
+
+    @Override
+    @Transactional
+    public void rebuild() {
+        jdbcTemplate.update(RECONCILE_TOTALS);
+    }
+}
@@ -0,0 +1,17 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface PaymentTotalRepository extends CrudRepository<PaymentTotal, PaymentTotal.Key>, PaymentTotalCounterRepository {
+
+    @Query("select new com.amigoscode.testing.payment.CustomerTotal(t.currency, sum(t.total), sum(t.paymentCount)) " +
+            "from PaymentTotal t where t.customerId = :customerId group by t.currency " +
+            "having sum(t.paymentCount) > 0 order by t.currency")
+    List<CustomerTotal> findCustomerTotals(@Param("customerId") UUID customerId);
+
+}
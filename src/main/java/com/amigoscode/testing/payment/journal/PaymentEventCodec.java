@@ -0,0 +1,93 @@
+package com.amigoscode.testing.payment.journal;
+
+import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Money;
+import com.amigoscode.testing.payment.PaymentEvent;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal record layout, all big-endian:
+ * <pre>
+ * int    length of the body, written last so a reader never sees a partial record
+ * int    crc32c of the body
+ * byte   event type ordinal
+ * long   timestamp millis
+ * long   customer id, most significant bits
+ * long   customer id, least significant bits
+ * byte   currency ordinal, -1 when there is no amount
+ * long   amount in minor units
+ * </pre>
+ * A length of zero marks the end of the written part of a segment.
+ */
+final class PaymentEventCodec {
+
+    static final int HEADER_SIZE = 8;
+
+    static final int BODY_SIZE = 1 + 8 + 16 + 1 + 8;
+
+    static final int MAX_RECORD_SIZE = HEADER_SIZE + BODY_SIZE;
+
+    private static final PaymentEvent.Type[] TYPES = PaymentEvent.Type.values();
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private PaymentEventCodec() {
+    }
+
+    // Writes the event at the given position and returns the position after it.
+    static int write(ByteBuffer buffer, int position, PaymentEvent event) {
+        int body = position + HEADER_SIZE;
+        int cursor = body;
+        buffer.put(cursor++, (byte) event.getType().ordinal());
+        buffer.putLong(cursor, event.getTimestamp());
+        cursor += 8;
+        UUID customerId = event.getCustomerId();
+        buffer.putLong(cursor, customerId == null ? 0 : customerId.getMostSignificantBits());
+        cursor += 8;
+        buffer.putLong(cursor, customerId == null ? 0 : customerId.getLeastSignificantBits());
+        cursor += 8;
+        Money amount = event.getAmount();
+        buffer.put(cursor++, (byte) (amount == null ? -1 : amount.getCurrency().ordinal()));
+        buffer.putLong(cursor, amount == null ? 0 : amount.getMinorUnits());
+        cursor += 8;
+
+        buffer.putInt(position + 4, crc(buffer, body, BODY_SIZE));
+        buffer.putInt(position, BODY_SIZE);
+        return cursor;
+    }
+
+    // Length of the record body at the position, or 0 if no complete record is there yet.
+    static int length(ByteBuffer buffer, int position) {
+        if (position + HEADER_SIZE > buffer.limit()) return 0;
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > buffer.limit()) return 0;
+        if (buffer.getInt(position + 4) != crc(buffer, position + HEADER_SIZE, length)) return 0;
+        return length;
+    }
+
+    static PaymentEvent read(ByteBuffer buffer, int position) {
+        int cursor = position + HEADER_SIZE;
+        PaymentEvent.Type type = TYPES[buffer.get(cursor++)];
+        long timestamp = buffer.getLong(cursor);
+        cursor += 8;
+        long mostSigBits = buffer.getLong(cursor);
+        cursor += 8;
+        long leastSigBits = buffer.getLong(cursor);
+        cursor += 8;
+        byte currency = buffer.get(cursor++);
+        long minorUnits = buffer.getLong(cursor);
+        return new PaymentEvent(
+                type,
+                timestamp,
+                mostSigBits == 0 && leastSigBits == 0 ? null : new UUID(mostSigBits, leastSigBits),
+                currency < 0 ? null : Money.ofMinor(minorUnits, CURRENCIES[currency]));
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(offset).limit(offset + length));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,185 @@
+package com.amigoscode.testing.payment.journal;
+
+import com.amigoscode.testing.payment.PaymentEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Appends every PaymentEvent to memory-mapped segment files. Request threads only enqueue; one
+// writer thread owns the mapped segment, so appends need no locking and never touch the database.
+// When a segment has no room for another record the writer forces it to disk and maps the next one.
+// A request thread (or event loop) waits at most offer-timeout for room in the queue; events that do
+// not fit, or that the writer cannot append, are dropped and counted, and health reports DOWN.
+@Component
+@ConditionalOnProperty(value = "payment.journal.enabled", havingValue = "true")
+public class PaymentEventJournal implements HealthIndicator, MeterBinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PaymentEventJournal.class);
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final long offerTimeoutNanos;
+
+    private final BlockingQueue<PaymentEvent> events;
+
+    private final LongAdder droppedQueueFull = new LongAdder();
+
+    private final LongAdder droppedWriteFailed = new LongAdder();
+
+    private MappedByteBuffer segment;
+
+    private long segmentIndex;
+
+    private int position;
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    @Autowired
+    public PaymentEventJournal(@Value("${payment.journal.directory:payment-journal}") String directory,
+                               @Value("${payment.journal.segment-size:64MB}") DataSize segmentSize,
+                               @Value("${payment.journal.queue-capacity:8192}") int queueCapacity,
+                               @Value("${payment.journal.offer-timeout:10ms}") Duration offerTimeout) {
+        this(Paths.get(directory), (int) segmentSize.toBytes(), queueCapacity, offerTimeout);
+    }
+
+    PaymentEventJournal(Path directory, int segmentSize, int queueCapacity, Duration offerTimeout) {
+        if (segmentSize < PaymentEventCodec.MAX_RECORD_SIZE + PaymentEventCodec.HEADER_SIZE) {
+            throw new IllegalArgumentException(String.format("Segment size %d is too small", segmentSize));
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.events = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = PaymentEventSegments.list(directory);
+        if (segments.isEmpty()) {
+            map(0);
+        } else {
+            map(PaymentEventSegments.index(segments.get(segments.size() - 1)));
+            // Continue after the last intact record of the newest segment.
+            int length;
+            while ((length = PaymentEventCodec.length(segment, position)) > 0) {
+                position += PaymentEventCodec.HEADER_SIZE + length;
+            }
+        }
+
+        running = true;
+        writer = new Thread(this::writeLoop, "payment-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @EventListener
+    public void onPaymentEvent(PaymentEvent event) {
+        try {
+            if (!events.offer(event, offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                droppedQueueFull.increment();
+            }
+        } catch (InterruptedException e) {
+            droppedQueueFull.increment();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Health health() {
+        long queueFull = droppedQueueFull.sum();
+        long writeFailed = droppedWriteFailed.sum();
+        return (queueFull + writeFailed == 0 ? Health.up() : Health.down())
+                .withDetail("droppedQueueFull", queueFull)
+                .withDetail("droppedWriteFailed", writeFailed)
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("payment.journal.dropped", droppedQueueFull, LongAdder::sum)
+                .description("Payment events left out of the journal")
+                .tag("reason", "queue_full")
+                .register(registry);
+        FunctionCounter.builder("payment.journal.dropped", droppedWriteFailed, LongAdder::sum)
+                .description("Payment events left out of the journal")
+                .tag("reason", "write_failed")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join();
+        }
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    private void writeLoop() {
+        while (running || !events.isEmpty()) {
+            try {
+                PaymentEvent event = events.poll(100, TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    append(event);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                droppedWriteFailed.increment();
+                LOGGER.error("Cannot journal payment event", e);
+            }
+        }
+    }
+
+    private void append(PaymentEvent event) throws IOException {
+        // Leave room for a zero length after the last record, which tells readers the segment ended.
+        if (position + PaymentEventCodec.MAX_RECORD_SIZE + PaymentEventCodec.HEADER_SIZE > segmentSize) {
+            segment.force();
+            map(segmentIndex + 1);
+        }
+        position = PaymentEventCodec.write(segment, position, event);
+    }
+
+    private void map(long index) throws IOException {
+        try (FileChannel channel = FileChannel.open(PaymentEventSegments.path(directory, index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segmentIndex = index;
+        position = 0;
+    }
+}
@@ -0,0 +1,98 @@
+package com.amigoscode.testing.payment.journal;
+
+import com.amigoscode.testing.payment.PaymentEvent;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads a payment event journal from the oldest segment onwards. {@link #poll} returns whatever has
+ * been appended since the previous call, so the same reader can replay the journal and then keep
+ * tailing it while the application writes. Readers are independent of each other and of the writer.
+ */
+public class PaymentEventJournalReader {
+
+    private final Path directory;
+
+    private MappedByteBuffer segment;
+
+    private long segmentIndex = -1;
+
+    private int position;
+
+    public PaymentEventJournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    public long replay(Consumer<PaymentEvent> consumer) throws IOException {
+        long total = 0;
+        int read;
+        while ((read = poll(consumer, 4096)) > 0) {
+            total += read;
+        }
+        return total;
+    }
+
+    public int poll(Consumer<PaymentEvent> consumer, int maxEvents) throws IOException {
+        if (segment == null && !openNext()) {
+            return 0;
+        }
+        int read = 0;
+        while (read < maxEvents) {
+            int length = PaymentEventCodec.length(segment, position);
+            if (length == 0) {
+                // The writer creates a segment before sizing it, so a segment mapped in between is
+                // mapped again once the file has grown.
+                if (remapIfGrown()) continue;
+                // A newer segment means this one is complete, but re-check in case the writer
+                // appended between our read and its rotation.
+                if (!hasNewerSegment()) break;
+                if (PaymentEventCodec.length(segment, position) == 0) openNext();
+                continue;
+            }
+            consumer.accept(PaymentEventCodec.read(segment, position));
+            position += PaymentEventCodec.HEADER_SIZE + length;
+            read++;
+        }
+        return read;
+    }
+
+    private boolean hasNewerSegment() {
+        return Files.exists(PaymentEventSegments.path(directory, segmentIndex + 1));
+    }
+
+    private boolean openNext() throws IOException {
+        Path next;
+        if (segmentIndex < 0) {
+            List<Path> segments = PaymentEventSegments.list(directory);
+            if (segments.isEmpty()) return false;
+            next = segments.get(0);
+        } else {
+            next = PaymentEventSegments.path(directory, segmentIndex + 1);
+            if (!Files.exists(next)) return false;
+        }
+        map(next);
+        segmentIndex = PaymentEventSegments.index(next);
+        position = 0;
+        return true;
+    }
+
+    private boolean remapIfGrown() throws IOException {
+        Path current = PaymentEventSegments.path(directory, segmentIndex);
+        if (Files.size(current) <= segment.capacity()) return false;
+        map(current);
+        return true;
+    }
+
+    private void map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.amigoscode.testing.payment.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.LongAdder;
+
+// Opens once too many of the recent charges failed or were slow, so callers fail fast instead of
+// queueing behind a struggling card processor. After openDuration a few trial charges are let
+// through (half open); their outcome decides whether to close again or stay open.
+@Component
+@ConditionalOnProperty(value = "payment.charge-resilience.enabled", havingValue = "true", matchIfMissing = true)
+public class ChargeCircuitBreaker implements MeterBinder {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long slowCallNanos;
+    private final int slowCallRateThreshold;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final Clock clock;
+
+    // Ring buffer with the outcome of the last window.length calls, as FAILED | SLOW flags
+    private final byte[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public ChargeCircuitBreaker(ChargeResilienceProperties properties) {
+        this(properties.getCircuitBreaker(), Clock.systemUTC());
+    }
+
+    ChargeCircuitBreaker(ChargeResilienceProperties.CircuitBreaker properties, Clock clock) {
+        this.window = new byte[properties.getWindowSize()];
+        this.minimumCalls = Math.min(properties.getMinimumCalls(), window.length);
+        this.failureRateThreshold = properties.getFailureRateThreshold();
+        this.slowCallNanos = properties.getSlowCallDuration().toNanos();
+        this.slowCallRateThreshold = properties.getSlowCallRateThreshold();
+        this.openMillis = properties.getOpenDuration().toMillis();
+        this.halfOpenCalls = Math.min(properties.getHalfOpenCalls(), window.length);
+        this.clock = clock;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.millis() - openedAt < openMillis) {
+                rejected.increment();
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits >= halfOpenCalls) {
+                rejected.increment();
+                return false;
+            }
+            halfOpenPermits++;
+        }
+        return true;
+    }
+
+    // Hands back a permit for a charge that was never attempted
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && halfOpenPermits > 0) {
+            halfOpenPermits--;
+        }
+    }
+
+    public synchronized void onSuccess(long durationNanos) {
+        record(durationNanos >= slowCallNanos ? SLOW : 0);
+    }
+
+    public synchronized void onError(long durationNanos) {
+        record((byte) (FAILED | (durationNanos >= slowCallNanos ? SLOW : 0)));
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(byte outcome) {
+        if (state == State.OPEN) {
+            // A charge that started before the breaker opened
+            return;
+        }
+        if (recorded == window.length) {
+            byte evicted = window[next];
+            failures -= evicted & FAILED;
+            slowCalls -= (evicted & SLOW) >> 1;
+        } else {
+            recorded++;
+        }
+        window[next] = outcome;
+        next = (next + 1) % window.length;
+        failures += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+
+        if (recorded < (state == State.HALF_OPEN ? halfOpenCalls : minimumCalls)) {
+            return;
+        }
+        if (failures * 100 >= failureRateThreshold * recorded
+                || slowCalls * 100 >= slowCallRateThreshold * recorded) {
+            transitionTo(State.OPEN);
+        } else if (state == State.HALF_OPEN) {
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+        halfOpenPermits = 0;
+        if (newState == State.OPEN) {
+            openedAt = clock.millis();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (State s : State.values()) {
+            Gauge.builder("payment.charge.circuit.state", this, breaker -> breaker.getState() == s ? 1 : 0)
+                    .tag("state", s.name().toLowerCase())
+                    .register(registry);
+        }
+        FunctionCounter.builder("payment.charge.rejected", rejected, LongAdder::sum)
+                .tag("reason", "circuit_open")
+                .register(registry);
+    }
+}
@@ -0,0 +1,104 @@
+package com.amigoscode.testing.payment.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Caps the number of charges in flight with an AIMD limit: every charge faster than the latency
+// threshold that found the limit at least half used raises it by one, every slow or failed charge
+// multiplies it by the backoff ratio. When the card processor slows down, excess charges are
+// rejected straight away rather than holding request threads that registration also needs.
+@Component
+@ConditionalOnProperty(value = "payment.charge-resilience.enabled", havingValue = "true", matchIfMissing = true)
+public class ChargeConcurrencyLimit implements MeterBinder {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public ChargeConcurrencyLimit(ChargeResilienceProperties properties) {
+        this(properties.getConcurrencyLimit());
+    }
+
+    ChargeConcurrencyLimit(ChargeResilienceProperties.ConcurrencyLimit properties) {
+        this.minLimit = properties.getMinLimit();
+        this.maxLimit = properties.getMaxLimit();
+        this.latencyThresholdNanos = properties.getLatencyThreshold().toNanos();
+        this.backoffRatio = properties.getBackoffRatio();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, properties.getInitialLimit()));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void onSuccess(long durationNanos) {
+        int current = inFlight.getAndDecrement();
+        if (durationNanos > latencyThresholdNanos) {
+            decrease();
+        } else if (current * 2 >= limit) {
+            increase();
+        }
+    }
+
+    public void onDropped() {
+        inFlight.decrementAndGet();
+        decrease();
+    }
+
+    // Releases a permit without adjusting the limit, for a charge that was never attempted
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void increase() {
+        limit = Math.min(maxLimit, limit + 1);
+    }
+
+    private synchronized void decrease() {
+        limit = Math.max(minLimit, (int) (limit * backoffRatio));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("payment.charge.concurrency.limit", this, ChargeConcurrencyLimit::getLimit)
+                .register(registry);
+        Gauge.builder("payment.charge.concurrency.in.flight", this, ChargeConcurrencyLimit::getInFlight)
+                .register(registry);
+        FunctionCounter.builder("payment.charge.rejected", rejected, LongAdder::sum)
+                .tag("reason", "concurrency_limit")
+                .register(registry);
+    }
+}
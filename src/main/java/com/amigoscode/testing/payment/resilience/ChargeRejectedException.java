@@ -0,0 +1,13 @@
+package com.amigoscode.testing.payment.resilience;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// The charge was not attempted, so the client can safely retry later
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ChargeRejectedException extends IllegalStateException {
+
+    public ChargeRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,59 @@
+package com.amigoscode.testing.payment.resilience;
+
+import com.amigoscode.testing.payment.AsyncCardPaymentCharger;
+import com.amigoscode.testing.payment.CardPaymentCharge;
+import com.amigoscode.testing.payment.CardPaymentCharger;
+import com.amigoscode.testing.payment.ChargeOptions;
+import com.amigoscode.testing.payment.Money;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+// Async charges hold their permit until the future completes, so time spent queued on the card
+// payment executor counts towards the latency the limit reacts to.
+class ResilientAsyncCardPaymentCharger extends ResilientCardPaymentCharger implements AsyncCardPaymentCharger {
+
+    private final AsyncCardPaymentCharger delegate;
+
+    <T extends CardPaymentCharger & AsyncCardPaymentCharger> ResilientAsyncCardPaymentCharger(
+            T delegate,
+            ChargeCircuitBreaker circuitBreaker,
+            ChargeConcurrencyLimit concurrencyLimit) {
+        super(delegate, circuitBreaker, concurrencyLimit);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public CompletableFuture<CardPaymentCharge> chargeCardAsync(String cardSource, Money amount, String description) {
+        return callAsync(() -> delegate.chargeCardAsync(cardSource, amount, description));
+    }
+
+    @Override
+    public CompletableFuture<CardPaymentCharge> chargeCardAsync(String cardSource, Money amount, String description,
+                                                                ChargeOptions options) {
+        return callAsync(() -> delegate.chargeCardAsync(cardSource, amount, description, options));
+    }
+
+    private CompletableFuture<CardPaymentCharge> callAsync(Supplier<CompletableFuture<CardPaymentCharge>> charge) {
+        try {
+            acquire();
+        } catch (ChargeRejectedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        CompletableFuture<CardPaymentCharge> future;
+        try {
+            future = charge.get();
+        } catch (RuntimeException e) {
+            onError(System.nanoTime() - start);
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> {
+            if (error == null) {
+                onSuccess(System.nanoTime() - start);
+            } else {
+                onError(System.nanoTime() - start);
+            }
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package com.amigoscode.testing.payment.resilience;
+
+import com.amigoscode.testing.payment.CardPaymentCharge;
+import com.amigoscode.testing.payment.CardPaymentCharger;
+import com.amigoscode.testing.payment.ChargeOptions;
+import com.amigoscode.testing.payment.Money;
+
+import java.util.function.Supplier;
+
+// Runs every charge through the circuit breaker and the concurrency limit. A declined card is a
+// successful call as far as they are concerned; only exceptions count as failures.
+class ResilientCardPaymentCharger implements CardPaymentCharger {
+
+    private final CardPaymentCharger delegate;
+
+    private final ChargeCircuitBreaker circuitBreaker;
+
+    private final ChargeConcurrencyLimit concurrencyLimit;
+
+    ResilientCardPaymentCharger(CardPaymentCharger delegate,
+                                ChargeCircuitBreaker circuitBreaker,
+                                ChargeConcurrencyLimit concurrencyLimit) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    @Override
+    public CardPaymentCharge chargeCard(String cardSource, Money amount, String description) {
+        return call(() -> delegate.chargeCard(cardSource, amount, description));
+    }
+
+    @Override
+    public CardPaymentCharge chargeCard(String cardSource, Money amount, String description,
+                                        ChargeOptions options) {
+        return call(() -> delegate.chargeCard(cardSource, amount, description, options));
+    }
+
+    private CardPaymentCharge call(Supplier<CardPaymentCharge> charge) {
+        acquire();
+        long start = System.nanoTime();
+        try {
+            CardPaymentCharge result = charge.get();
+            onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            onError(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    void acquire() {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new ChargeRejectedException("Card processor circuit breaker is open");
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            circuitBreaker.release();
+            throw new ChargeRejectedException("Too many card charges in flight");
+        }
+    }
+
+    void onSuccess(long durationNanos) {
+        circuitBreaker.onSuccess(durationNanos);
+        concurrencyLimit.onSuccess(durationNanos);
+    }
+
+    void onError(long durationNanos) {
+        circuitBreaker.onError(durationNanos);
+        concurrencyLimit.onDropped();
+    }
+}
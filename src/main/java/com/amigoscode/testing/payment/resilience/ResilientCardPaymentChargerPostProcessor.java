@@ -0,0 +1,45 @@
+package com.amigoscode.testing.payment.resilience;
+
+import com.amigoscode.testing.payment.AsyncCardPaymentCharger;
+import com.amigoscode.testing.payment.CardPaymentCharger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Wraps whichever CardPaymentCharger is active (Stripe or the mock), so the chargers themselves
+// stay unaware of the circuit breaker and the concurrency limit. Both are looked up lazily, as
+// post processors are created before ordinary beans. The reactive mock is wrapped by
+// ResilientReactiveCardPaymentChargerPostProcessor, built with the reactive Maven profile.
+@Component
+@ConditionalOnProperty(value = "payment.charge-resilience.enabled", havingValue = "true", matchIfMissing = true)
+public class ResilientCardPaymentChargerPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<ChargeCircuitBreaker> circuitBreaker;
+
+    private final ObjectProvider<ChargeConcurrencyLimit> concurrencyLimit;
+
+    public ResilientCardPaymentChargerPostProcessor(ObjectProvider<ChargeCircuitBreaker> circuitBreaker,
+                                                    ObjectProvider<ChargeConcurrencyLimit> concurrencyLimit) {
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof CardPaymentCharger)) {
+            return bean;
+        }
+        if (bean instanceof AsyncCardPaymentCharger) {
+            return wrapAsync(bean);
+        }
+        return new ResilientCardPaymentCharger(
+                (CardPaymentCharger) bean, circuitBreaker.getObject(), concurrencyLimit.getObject());
+    }
+
+    private <T extends CardPaymentCharger & AsyncCardPaymentCharger> Object wrapAsync(Object bean) {
+        @SuppressWarnings("unchecked")
+        T charger = (T) bean;
+        return new ResilientAsyncCardPaymentCharger(charger, circuitBreaker.getObject(), concurrencyLimit.getObject());
+    }
+}
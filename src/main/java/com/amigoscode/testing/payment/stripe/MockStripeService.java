@@ -1,20 +1,68 @@
 package com.amigoscode.testing.payment.stripe;
 
+import com.amigoscode.testing.payment.AsyncCardPaymentCharger;
 import com.amigoscode.testing.payment.CardPaymentCharge;
 import com.amigoscode.testing.payment.CardPaymentCharger;
-import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.CardPaymentExecutor;
+import com.amigoscode.testing.payment.Money;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
+// Latency and decline rate let load tests stand the mock in for a real card network
 @Service
 @ConditionalOnProperty(value= "stripe.enabled", havingValue = "false")
-public class MockStripeService implements CardPaymentCharger {
+public class MockStripeService implements CardPaymentCharger, AsyncCardPaymentCharger {
+
+    private final CardPaymentExecutor cardPaymentExecutor;
+
+    private final long latencyNanos;
+
+    private final double declineRate;
+
+    public MockStripeService(CardPaymentExecutor cardPaymentExecutor) {
+        this(cardPaymentExecutor, Duration.ZERO, 0);
+    }
+
+    @Autowired
+    public MockStripeService(CardPaymentExecutor cardPaymentExecutor,
+                             @Value("${stripe.mock.latency:0ms}") Duration latency,
+                             @Value("${stripe.mock.decline-rate:0}") double declineRate) {
+        if (latency.isNegative() || declineRate < 0 || declineRate > 1) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid mock charger latency %s or decline rate %s", latency, declineRate));
+        }
+        this.cardPaymentExecutor = cardPaymentExecutor;
+        this.latencyNanos = latency.toNanos();
+        this.declineRate = declineRate;
+    }
+
+    @Override
+    public CardPaymentCharge chargeCard(String cardSource, Money amount, String description) {
+        if (latencyNanos > 0) {
+            simulateLatency();
+        }
+        boolean declined = declineRate > 0 && ThreadLocalRandom.current().nextDouble() < declineRate;
+        return new CardPaymentCharge(!declined);
+    }
 
     @Override
-    public CardPaymentCharge chargeCard(String cardSource, BigDecimal amout, Currency currency, String description) {
-        return new CardPaymentCharge(true);
+    public CompletableFuture<CardPaymentCharge> chargeCardAsync(String cardSource, Money amount, String description) {
+        return cardPaymentExecutor.supply(() -> chargeCard(cardSource, amount, description));
+    }
+
+    private void simulateLatency() {
+        try {
+            Thread.sleep(latencyNanos / 1_000_000, (int) (latencyNanos % 1_000_000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while charging card", e);
+        }
     }
 
 }
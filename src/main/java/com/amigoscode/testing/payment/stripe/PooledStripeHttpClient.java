@@ -0,0 +1,109 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import org.apache.http.Header;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Stripe SDK transport backed by a pool of keep-alive connections, so charges reuse established
+// TLS sessions instead of opening a connection per request like the SDK's default client.
+class PooledStripeHttpClient extends HttpClient implements Closeable {
+
+    private static final String USER_AGENT = buildUserAgentString();
+    private static final String CLIENT_USER_AGENT = buildXStripeClientUserAgentString();
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpClient;
+
+    PooledStripeHttpClient(StripeProperties.ConnectionPool connectionPool) {
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        this.connectionManager.setMaxTotal(connectionPool.getMaxConnections());
+        this.connectionManager.setDefaultMaxPerRoute(connectionPool.getMaxConnections());
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(connectionPool.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .disableAutomaticRetries()
+                .disableCookieManagement()
+                .disableRedirectHandling()
+                .build();
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws StripeException {
+        RequestBuilder builder = RequestBuilder.create(request.method().name())
+                .setConfig(requestConfig(request.options()))
+                .addHeader("User-Agent", USER_AGENT)
+                .addHeader("X-Stripe-Client-User-Agent", CLIENT_USER_AGENT);
+        try {
+            builder.setUri(request.url().toURI());
+        } catch (URISyntaxException e) {
+            throw new ApiConnectionException(String.format("Invalid Stripe URL %s", request.url()), e);
+        }
+        request.headers().map().forEach((name, values) -> values.forEach(value -> builder.addHeader(name, value)));
+        if (request.content() != null) {
+            builder.setEntity(new ByteArrayEntity(
+                    request.content().byteArrayContent(),
+                    ContentType.parse(request.content().contentType())));
+        }
+
+        try (CloseableHttpResponse response = httpClient.execute(builder.build())) {
+            String body = response.getEntity() == null
+                    ? null
+                    : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            return new StripeResponse(response.getStatusLine().getStatusCode(), headers(response.getAllHeaders()), body);
+        } catch (IOException e) {
+            throw new ApiConnectionException(
+                    String.format("IOException during API request to Stripe (%s): %s", request.url(), e.getMessage()), e);
+        }
+    }
+
+    PoolStats poolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+    private static RequestConfig requestConfig(RequestOptions options) {
+        return RequestConfig.custom()
+                .setConnectTimeout(options.getConnectTimeout())
+                .setSocketTimeout(options.getReadTimeout())
+                .build();
+    }
+
+    private static HttpHeaders headers(Header[] responseHeaders) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (Header header : responseHeaders) {
+            headers.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+        }
+        return HttpHeaders.of(headers);
+    }
+}
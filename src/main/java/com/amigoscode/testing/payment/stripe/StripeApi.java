@@ -2,15 +2,56 @@ package com.amigoscode.testing.payment.stripe;
 
 import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
+import com.stripe.net.ApiResource;
+import com.stripe.net.LiveStripeResponseGetter;
 import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeResponseGetter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
 import java.util.Map;
 
 @Service
-public class StripeApi {
+public class StripeApi implements MeterBinder {
+
+    private final PooledStripeHttpClient httpClient;
+
+    private final StripeResponseGetter responseGetter;
+
+    private final String chargesUrl;
+
+    public StripeApi(StripeProperties properties) {
+        this.httpClient = new PooledStripeHttpClient(properties.getConnectionPool());
+        this.responseGetter = new LiveStripeResponseGetter(httpClient);
+        this.chargesUrl = properties.getApiBase() + "/v1/charges";
+    }
 
     public Charge create(Map<String, Object> params, RequestOptions options) throws StripeException {
-        return Charge.create(params, options);
+        return responseGetter.request(ApiResource.RequestMethod.POST, chargesUrl, params, Charge.class, options);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stripe.http.pool.leased", httpClient, c -> c.poolStats().getLeased())
+                .description("Connections to Stripe currently in use")
+                .register(registry);
+        Gauge.builder("stripe.http.pool.available", httpClient, c -> c.poolStats().getAvailable())
+                .description("Idle keep-alive connections to Stripe")
+                .register(registry);
+        Gauge.builder("stripe.http.pool.pending", httpClient, c -> c.poolStats().getPending())
+                .description("Requests waiting for a connection to Stripe")
+                .register(registry);
+        Gauge.builder("stripe.http.pool.max", httpClient, c -> c.poolStats().getMax())
+                .description("Maximum connections to Stripe")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        httpClient.close();
     }
 }
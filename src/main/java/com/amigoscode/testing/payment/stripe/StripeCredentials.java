@@ -0,0 +1,108 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.stripe.net.RequestOptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Request options are immutable, so one instance per tenant is built up front and shared by
+// every charge for that tenant. A request's tenant is the one whose client token it presents as a
+// bearer token; once tenants are configured, requests without a known token are refused rather
+// than charged to the default account. Work outside of requests uses the default account.
+@Component
+public class StripeCredentials {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final RequestOptions defaultRequestOptions;
+
+    private final Map<String, RequestOptions> tenantRequestOptions = new HashMap<>();
+
+    private final Map<String, byte[]> tenantTokenDigests = new HashMap<>();
+
+    public StripeCredentials(StripeProperties properties) {
+        this.defaultRequestOptions = requestOptions(properties.getApiKey(), properties);
+        properties.getTenants().forEach((tenant, credentials) -> {
+            if (credentials.getClientToken() == null || credentials.getClientToken().isEmpty()) {
+                throw new IllegalStateException(String.format("Stripe tenant %s has no client token", tenant));
+            }
+            tenantRequestOptions.put(tenant, requestOptions(credentials.getApiKey(), properties));
+            tenantTokenDigests.put(tenant, digest(credentials.getClientToken()));
+        });
+    }
+
+    // Netty threads carry no request, so the reactive stack would charge every tenant's payments
+    // to the default account
+    @Autowired
+    public StripeCredentials(StripeProperties properties, Environment environment) {
+        this(properties);
+        if (!tenantRequestOptions.isEmpty() && environment.acceptsProfiles(Profiles.of("reactive"))) {
+            throw new IllegalStateException("Per-tenant Stripe credentials are not supported with the reactive profile");
+        }
+    }
+
+    public RequestOptions requestOptions(String tenant) {
+        if (tenant == null) {
+            return defaultRequestOptions;
+        }
+        RequestOptions requestOptions = tenantRequestOptions.get(tenant);
+        if (requestOptions == null) {
+            throw new IllegalStateException(String.format("No Stripe credentials for tenant %s", tenant));
+        }
+        return requestOptions;
+    }
+
+    public RequestOptions currentRequestOptions() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes) || tenantRequestOptions.isEmpty()) {
+            return defaultRequestOptions;
+        }
+        String authorization = ((ServletRequestAttributes) attributes).getRequest().getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            throw new TenantAuthenticationException("A tenant bearer token is required to charge cards");
+        }
+        return requestOptions(authenticatedTenant(authorization.substring(BEARER_PREFIX.length())));
+    }
+
+    // Every tenant is compared, in constant time, so the response time does not reveal how close a guess was
+    private String authenticatedTenant(String clientToken) {
+        byte[] digest = digest(clientToken);
+        String tenant = null;
+        for (Map.Entry<String, byte[]> tenantToken : tenantTokenDigests.entrySet()) {
+            if (MessageDigest.isEqual(tenantToken.getValue(), digest)) {
+                tenant = tenantToken.getKey();
+            }
+        }
+        if (tenant == null) {
+            throw new TenantAuthenticationException("Unknown tenant token");
+        }
+        return tenant;
+    }
+
+    private static byte[] digest(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RequestOptions requestOptions(String apiKey, StripeProperties properties) {
+        return RequestOptions.builder()
+                .setApiKey(apiKey)
+                .setConnectTimeout((int) properties.getConnectionPool().getConnectTimeout().toMillis())
+                .setReadTimeout((int) properties.getConnectionPool().getReadTimeout().toMillis())
+                .build();
+    }
+}
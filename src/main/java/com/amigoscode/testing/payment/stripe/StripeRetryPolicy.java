@@ -0,0 +1,56 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.ApiException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Decides whether a failed charge may be attempted again and how long to wait first. Only errors
+// where Stripe did not act on the request, or where the idempotency key makes a repeat harmless,
+// are retried: connection failures and timeouts, rate limiting and Stripe's own 5xx errors.
+// Declined cards and invalid requests would fail the same way again.
+class StripeRetryPolicy {
+
+    private final int maxAttempts;
+
+    private final long initialBackoffNanos;
+
+    private final long maxBackoffNanos;
+
+    private final Duration minAttemptTimeout;
+
+    StripeRetryPolicy(StripeProperties.Retry properties) {
+        this.maxAttempts = Math.max(1, properties.getMaxAttempts());
+        this.initialBackoffNanos = properties.getInitialBackoff().toNanos();
+        this.maxBackoffNanos = properties.getMaxBackoff().toNanos();
+        this.minAttemptTimeout = properties.getMinAttemptTimeout();
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    Duration getMinAttemptTimeout() {
+        return minAttemptTimeout;
+    }
+
+    boolean isRetryable(StripeException e, int attempt) {
+        if (attempt >= maxAttempts) {
+            return false;
+        }
+        if (e instanceof ApiConnectionException || e instanceof RateLimitException) {
+            return true;
+        }
+        return e instanceof ApiException && e.getStatusCode() != null && e.getStatusCode() >= 500;
+    }
+
+    // Full jitter: anywhere between zero and an exponentially growing cap, so clients that failed
+    // together do not retry together
+    Duration backoff(int attempt) {
+        long cap = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 20));
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+}
@@ -1,47 +1,170 @@
 package com.amigoscode.testing.payment.stripe;
 
+import com.amigoscode.testing.payment.AsyncCardPaymentCharger;
 import com.amigoscode.testing.payment.CardPaymentCharge;
 import com.amigoscode.testing.payment.CardPaymentCharger;
-import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.CardPaymentExecutor;
+import com.amigoscode.testing.payment.ChargeDeadlineExceededException;
+import com.amigoscode.testing.payment.ChargeOptions;
+import com.amigoscode.testing.payment.Deadline;
+import com.amigoscode.testing.payment.Money;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
 import com.stripe.net.RequestOptions;
-import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
 
 @Service
 @ConditionalOnProperty(value= "stripe.enabled", havingValue = "true")
-public class StripeService implements CardPaymentCharger {
+public class StripeService implements CardPaymentCharger, AsyncCardPaymentCharger {
+
+    // The SDK form-encodes the params before create() returns, so each thread can refill the
+    // same map instead of allocating one per charge.
+    private static final ThreadLocal<Map<String, Object>> CHARGE_PARAMS = ThreadLocal.withInitial(() -> new HashMap<>(8));
 
     private final StripeApi stripeApi;
 
-    private final static RequestOptions requestOptions = RequestOptions.builder()
-            .setApiKey("sk_test_4eC39HqLyjWDarjtT1zdp7dc")
-            .build();
+    private final StripeCredentials stripeCredentials;
+
+    private final CardPaymentExecutor cardPaymentExecutor;
+
+    private final StripeRetryPolicy retryPolicy;
+
+    private final Duration connectTimeout;
 
-    public StripeService(StripeApi stripeApi) {
+    private final Duration readTimeout;
+
+    private final DistributionSummary successfulAttempts;
+
+    private final DistributionSummary failedAttempts;
+
+    public StripeService(StripeApi stripeApi,
+                         StripeCredentials stripeCredentials,
+                         CardPaymentExecutor cardPaymentExecutor,
+                         StripeProperties properties,
+                         MeterRegistry meterRegistry) {
         this.stripeApi = stripeApi;
+        this.stripeCredentials = stripeCredentials;
+        this.cardPaymentExecutor = cardPaymentExecutor;
+        this.retryPolicy = new StripeRetryPolicy(properties.getRetry());
+        this.connectTimeout = properties.getConnectionPool().getConnectTimeout();
+        this.readTimeout = properties.getConnectionPool().getReadTimeout();
+        this.successfulAttempts = attempts(meterRegistry, "success");
+        this.failedAttempts = attempts(meterRegistry, "failure");
+    }
+
+    private DistributionSummary attempts(MeterRegistry meterRegistry, String outcome) {
+        return DistributionSummary.builder("payment.charge.attempts")
+                .description("Stripe calls made per card charge, retries included")
+                .tag("outcome", outcome)
+                .sla(LongStream.rangeClosed(1, retryPolicy.getMaxAttempts()).toArray())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public CardPaymentCharge chargeCard(String cardSource, Money amount, String description) {
+        return chargeCard(cardSource, amount, description, ChargeOptions.none());
+    }
+
+    @Override
+    public CardPaymentCharge chargeCard(String cardSource, Money amount, String description,
+                                        ChargeOptions options) {
+        return chargeCard(cardSource, amount, description, requestOptions(options), options.getDeadline());
     }
 
     @Override
-    public CardPaymentCharge chargeCard(String cardSource, BigDecimal amount, Currency currency, String description) {
+    public CompletableFuture<CardPaymentCharge> chargeCardAsync(String cardSource, Money amount, String description) {
+        return chargeCardAsync(cardSource, amount, description, ChargeOptions.none());
+    }
+
+    @Override
+    public CompletableFuture<CardPaymentCharge> chargeCardAsync(String cardSource, Money amount, String description,
+                                                                ChargeOptions options) {
+        RequestOptions requestOptions = requestOptions(options);
+        return cardPaymentExecutor.supply(
+                () -> chargeCard(cardSource, amount, description, requestOptions, options.getDeadline()));
+    }
 
-        Map<String, Object> params = new HashMap<>();
-        params.put("amount", amount);
-        params.put("currency", currency);
+    // Every charge carries an idempotency key, generated when the client sent none, so a retry
+    // after a timeout cannot charge the card twice.
+    private RequestOptions requestOptions(ChargeOptions options) {
+        String idempotencyKey = options.getIdempotencyKey() == null
+                ? UUID.randomUUID().toString()
+                : options.getIdempotencyKey();
+        return stripeCredentials.currentRequestOptions().toBuilder().setIdempotencyKey(idempotencyKey).build();
+    }
+
+    private CardPaymentCharge chargeCard(String cardSource, Money amount, String description,
+                                         RequestOptions requestOptions, Deadline deadline) {
+
+        Map<String, Object> params = CHARGE_PARAMS.get();
+        params.clear();
+        params.put("amount", amount.getMinorUnits());
+        params.put("currency", amount.getCurrency().getCode());
         params.put("source", cardSource);
         params.put("description", description);
 
+        Duration backoff = Duration.ZERO;
+        StripeException lastError = null;
+        for (int attempt = 1; ; attempt++) {
+            RequestOptions attemptOptions = attemptOptions(requestOptions, deadline, backoff);
+            if (attemptOptions == null) {
+                failedAttempts.record(attempt - 1);
+                throw new ChargeDeadlineExceededException(
+                        String.format("Deadline reached after %d attempts to charge the card", attempt - 1),
+                        lastError);
+            }
+            sleep(backoff);
+            try {
+                Charge charge = stripeApi.create(params, attemptOptions);
+                successfulAttempts.record(attempt);
+                return new CardPaymentCharge(charge.getPaid());
+            } catch (StripeException e) {
+                if (!retryPolicy.isRetryable(e, attempt)) {
+                    failedAttempts.record(attempt);
+                    throw new IllegalStateException("Cannot make stripe charge", e);
+                }
+                lastError = e;
+                backoff = retryPolicy.backoff(attempt);
+            }
+        }
+    }
+
+    // Caps the timeouts of the next attempt at what will be left of the deadline once the backoff
+    // is over, so no call outlives the request waiting for it. Null when too little would be left.
+    private RequestOptions attemptOptions(RequestOptions requestOptions, Deadline deadline, Duration backoff) {
+        if (deadline == null) {
+            return requestOptions;
+        }
+        Duration remaining = deadline.remaining().minus(backoff);
+        if (remaining.compareTo(retryPolicy.getMinAttemptTimeout()) < 0) {
+            return null;
+        }
+        return requestOptions.toBuilder()
+                .setConnectTimeout((int) Math.min(connectTimeout.toMillis(), remaining.toMillis()))
+                .setReadTimeout((int) Math.min(readTimeout.toMillis(), remaining.toMillis()))
+                .build();
+    }
+
+    private static void sleep(Duration backoff) {
+        if (backoff.isZero()) {
+            return;
+        }
         try {
-            Charge charge = stripeApi.create(params, requestOptions);
-            return new CardPaymentCharge(charge.getPaid());
-        }catch (StripeException e) {
-            throw new IllegalStateException("Cannot make stripe charge", e);
+            TimeUnit.NANOSECONDS.sleep(backoff.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry the stripe charge", e);
         }
     }
 }
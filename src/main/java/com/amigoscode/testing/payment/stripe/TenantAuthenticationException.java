@@ -0,0 +1,13 @@
+package com.amigoscode.testing.payment.stripe;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// The caller's tenant could not be established, so no Stripe account was charged
+@ResponseStatus(HttpStatus.UNAUTHORIZED)
+public class TenantAuthenticationException extends IllegalStateException {
+
+    public TenantAuthenticationException(String message) {
+        super(message);
+    }
+}
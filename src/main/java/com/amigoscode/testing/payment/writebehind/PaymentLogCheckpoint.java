@@ -0,0 +1,31 @@
+package com.amigoscode.testing.payment.writebehind;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+// Highest write-ahead log sequence whose payment is in the database. It is written in the same
+// transaction as the payments, so replay never inserts a payment twice.
+@Entity
+public class PaymentLogCheckpoint {
+
+    @Id
+    private String logName;
+
+    private long lastSequence;
+
+    public PaymentLogCheckpoint(String logName, long lastSequence) {
+        this.logName = logName;
+        this.lastSequence = lastSequence;
+    }
+
+    public PaymentLogCheckpoint() {
+    }
+
+    public String getLogName() {
+        return logName;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+}
@@ -0,0 +1,6 @@
+package com.amigoscode.testing.payment.writebehind;
+
+import org.springframework.data.repository.CrudRepository;
+
+public interface PaymentLogCheckpointRepository extends CrudRepository<PaymentLogCheckpoint, String> {
+}
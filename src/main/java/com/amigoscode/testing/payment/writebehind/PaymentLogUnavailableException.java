@@ -0,0 +1,17 @@
+package com.amigoscode.testing.payment.writebehind;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// The payment was not queued for the log, so nothing of it will be persisted later
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PaymentLogUnavailableException extends IllegalStateException {
+
+    public PaymentLogUnavailableException(String message) {
+        super(message);
+    }
+
+    public PaymentLogUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,398 @@
+package com.amigoscode.testing.payment.writebehind;
+
+import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Money;
+import com.amigoscode.testing.payment.Payment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of confirmed payments, split into segment files named after their first sequence.
+ *
+ * Appends from all threads are handed to a single writer thread, which writes whatever has queued
+ * up and then fsyncs once for the whole group. Each record is
+ * {@code [int length][int crc32c][long sequence][payment]}; a record with a short read or a bad
+ * checksum marks the torn tail of a crash and ends replay.
+ */
+class PaymentWriteAheadLog implements Closeable {
+
+    static final class Entry {
+
+        private final long sequence;
+
+        private final Payment payment;
+
+        Entry(long sequence, Payment payment) {
+            this.sequence = sequence;
+            this.payment = payment;
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        Payment getPayment() {
+            return payment;
+        }
+    }
+
+    private static final String SEGMENT_PREFIX = "payments-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String DEAD_LETTER_FILE = "dead-letter.wal";
+
+    private final Path directory;
+
+    private final long segmentSize;
+
+    private final int maxGroupSize;
+
+    private final BlockingQueue<Append> appends;
+
+    private FileChannel segment;
+
+    private long nextSequence;
+
+    private volatile boolean running;
+
+    private volatile IOException failure;
+
+    private Thread writer;
+
+    PaymentWriteAheadLog(Path directory, long segmentSize, int capacity) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxGroupSize = capacity;
+        this.appends = new ArrayBlockingQueue<>(capacity);
+        Files.createDirectories(directory);
+    }
+
+    // Reads every intact entry after the given sequence. Must be called before start.
+    List<Entry> replay(long afterSequence) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long lastSequence = afterSequence;
+        for (Path path : segments()) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+                Entry entry;
+                while ((entry = read(in)) != null) {
+                    lastSequence = Math.max(lastSequence, entry.getSequence());
+                    if (entry.getSequence() > afterSequence) {
+                        entries.add(entry);
+                    }
+                }
+            }
+        }
+        nextSequence = lastSequence + 1;
+        return entries;
+    }
+
+    // Starts a fresh segment and the writer thread. onDurable runs on the writer thread, in
+    // sequence order, after the entries are fsynced and before their appends complete.
+    void start(Consumer<List<Entry>> onDurable) throws IOException {
+        openSegment();
+        running = true;
+        writer = new Thread(() -> writeLoop(onDurable), "payment-wal-writer");
+        writer.start();
+    }
+
+    // Waits at most the timeout for room in the queue. A payment that is not queued by then fails
+    // right away and is never written.
+    CompletableFuture<Long> append(Payment payment, Duration timeout) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Payment log is closed"));
+        }
+        if (failure != null) {
+            return CompletableFuture.failedFuture(new PaymentLogUnavailableException("Payment log failed", failure));
+        }
+        Append append = new Append(payment);
+        try {
+            if (!appends.offer(append, timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return CompletableFuture.failedFuture(new PaymentLogUnavailableException("Payment log is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        return append.durable;
+    }
+
+    boolean isAvailable() {
+        return running && failure == null && appends.remainingCapacity() > 0;
+    }
+
+    // Removes segments whose entries are all at or below the checkpoint. The current segment is kept.
+    void deleteSegmentsUpTo(long checkpoint) throws IOException {
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            long nextFirstSequence = firstSequence(segments.get(i + 1));
+            if (nextFirstSequence - 1 > checkpoint) {
+                break;
+            }
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    private void writeLoop(Consumer<List<Entry>> onDurable) {
+        List<Append> group = new ArrayList<>(maxGroupSize);
+        while (running || !appends.isEmpty()) {
+            try {
+                Append first = appends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                group.add(first);
+                appends.drainTo(group, maxGroupSize - 1);
+                writeGroup(group, onDurable);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (e instanceof IOException) failure = (IOException) e;
+                group.forEach(append -> append.durable.completeExceptionally(e));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void writeGroup(List<Append> group, Consumer<List<Entry>> onDurable) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (segment.size() >= segmentSize) {
+            segment.close();
+            openSegment();
+        }
+
+        // A payment that cannot be encoded fails on its own, without taking the rest of the group with it
+        List<Append> written = new ArrayList<>(group.size());
+        List<Entry> entries = new ArrayList<>(group.size());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(group.size() * 128);
+        for (Append append : group) {
+            Entry entry = new Entry(nextSequence, append.payment);
+            try {
+                write(entry, bytes);
+            } catch (UncheckedIOException e) {
+                append.durable.completeExceptionally(new IllegalArgumentException(
+                        "Payment cannot be written to the payment log: " + e.getCause().getMessage(), e));
+                continue;
+            }
+            nextSequence++;
+            written.add(append);
+            entries.add(entry);
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        segment.force(false);
+
+        try {
+            onDurable.accept(entries);
+        } catch (RuntimeException e) {
+            // The entries are durable and replayed on the next start, but later entries must not
+            // be handed over past them, so the log stops taking appends
+            failure = new IOException("Cannot hand over durable payments", e);
+        }
+        for (int i = 0; i < written.size(); i++) {
+            written.get(i).durable.complete(entries.get(i).getSequence());
+        }
+    }
+
+    // Appends entries the database rejected to the dead-letter file, in the same record format as
+    // the segments, so they survive the segments being deleted. Safe to call from any thread.
+    synchronized void deadLetter(List<Entry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entries.size() * 128);
+        for (Entry entry : entries) {
+            write(entry, bytes);
+        }
+        try (FileChannel deadLetters = FileChannel.open(directory.resolve(DEAD_LETTER_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                deadLetters.write(buffer);
+            }
+            deadLetters.force(false);
+        }
+    }
+
+    synchronized List<Entry> deadLetters() throws IOException {
+        Path path = directory.resolve(DEAD_LETTER_FILE);
+        List<Entry> entries = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return entries;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            Entry entry;
+            while ((entry = read(in)) != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    // Keeps only the given dead letters, swapping the file in whole so a crash leaves either version
+    synchronized void replaceDeadLetters(List<Entry> remaining) throws IOException {
+        Path path = directory.resolve(DEAD_LETTER_FILE);
+        if (remaining.isEmpty()) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(remaining.size() * 128);
+        for (Entry entry : remaining) {
+            write(entry, bytes);
+        }
+        Path temporary = directory.resolve(DEAD_LETTER_FILE + ".tmp");
+        try (FileChannel deadLetters = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                deadLetters.write(buffer);
+            }
+            deadLetters.force(false);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void openSegment() throws IOException {
+        segment = FileChannel.open(directory.resolve(segmentName(nextSequence)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String segmentName(long firstSequence) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX);
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    static void write(Entry entry, ByteArrayOutputStream out) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+            DataOutputStream data = new DataOutputStream(body);
+            Payment payment = entry.getPayment();
+            data.writeLong(entry.getSequence());
+            data.writeLong(payment.getCustomerId().getMostSignificantBits());
+            data.writeLong(payment.getCustomerId().getLeastSignificantBits());
+            Money amount = payment.getMoney();
+            data.writeByte(amount == null ? -1 : amount.getCurrency().ordinal());
+            data.writeLong(amount == null ? 0 : amount.getMinorUnits());
+            writeNullable(data, payment.getSource());
+            writeNullable(data, payment.getDescription());
+
+            byte[] bodyBytes = body.toByteArray();
+            CRC32C crc = new CRC32C();
+            crc.update(bodyBytes);
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(bodyBytes.length);
+            header.writeInt((int) crc.getValue());
+            header.write(bodyBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Entry read(DataInputStream in) throws IOException {
+        int length;
+        int checksum;
+        byte[] body;
+        try {
+            length = in.readInt();
+            checksum = in.readInt();
+            if (length <= 0 || length > 1 << 20) return null;
+            body = in.readNBytes(length);
+        } catch (EOFException e) {
+            return null;
+        }
+        if (body.length != length) return null;
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        if ((int) crc.getValue() != checksum) return null;
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(body));
+        long sequence = data.readLong();
+        UUID customerId = new UUID(data.readLong(), data.readLong());
+        byte currency = data.readByte();
+        long minorUnits = data.readLong();
+        String source = readNullable(data);
+        String description = readNullable(data);
+        return new Entry(sequence, new Payment(
+                null,
+                customerId,
+                currency < 0 ? null : Money.ofMinor(minorUnits, Currency.values()[currency]),
+                source,
+                description));
+    }
+
+    private static void writeNullable(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) data.writeUTF(value);
+    }
+
+    private static String readNullable(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+
+    private static final class Append {
+
+        private final Payment payment;
+
+        private final CompletableFuture<Long> durable = new CompletableFuture<>();
+
+        Append(Payment payment) {
+            this.payment = payment;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.amigoscode.testing.payment.writebehind;
+
+import com.amigoscode.testing.payment.Payment;
+import com.amigoscode.testing.payment.PaymentRecorder;
+import com.amigoscode.testing.payment.PaymentRepository;
+import com.amigoscode.testing.payment.PaymentTotalRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Returns as soon as the payment is fsynced to the local write-ahead log; a background thread then
+// inserts queued payments in batches. Each batch moves the log checkpoint in the same transaction,
+// so after a crash the entries past the checkpoint are replayed exactly once on startup. Transient
+// database errors are retried until they clear, with a capped backoff, while the queues fill up and
+// push back on callers. Only payments the database rejects outright are moved to the dead-letter
+// file, so the batches behind them keep flowing; they are retried on every start. Both queues wait at
+// most record-timeout for room; if the flusher stops while the application runs, the recorder fails
+// every payment with a 503 and reports DOWN until it is restarted.
+@Component
+@ConditionalOnProperty(value = "payment.write-behind.enabled", havingValue = "true")
+public class WriteBehindPaymentRecorder implements PaymentRecorder, HealthIndicator {
+
+    static final String LOG_NAME = "payments";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindPaymentRecorder.class);
+
+    private static final long MIN_RETRY_DELAY_MILLIS = 1000;
+
+    private final PaymentRepository paymentRepository;
+
+    private final PaymentTotalRepository paymentTotalRepository;
+
+    private final PaymentLogCheckpointRepository checkpointRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final PaymentWriteAheadLog log;
+
+    private final BlockingQueue<PaymentWriteAheadLog.Entry> pending;
+
+    private final int batchSize;
+
+    private final long maxRetryDelayMillis;
+
+    private final Duration recordTimeout;
+
+    private volatile boolean running;
+
+    private volatile Throwable failure;
+
+    private Thread flusher;
+
+    public WriteBehindPaymentRecorder(PaymentRepository paymentRepository,
+                                      PaymentTotalRepository paymentTotalRepository,
+                                      PaymentLogCheckpointRepository checkpointRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      WriteBehindProperties properties) throws IOException {
+        this.paymentRepository = paymentRepository;
+        this.paymentTotalRepository = paymentTotalRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.log = new PaymentWriteAheadLog(
+                Paths.get(properties.getDirectory()),
+                properties.getSegmentSize().toBytes(),
+                properties.getQueueCapacity());
+        this.pending = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.batchSize = properties.getBatchSize();
+        this.maxRetryDelayMillis = properties.getMaxRetryDelay().toMillis();
+        this.recordTimeout = properties.getRecordTimeout();
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        long checkpoint = checkpointRepository.findById(LOG_NAME)
+                .map(PaymentLogCheckpoint::getLastSequence)
+                .orElse(0L);
+        running = true;
+        Set<Long> deadLettered = replayDeadLetters();
+        // A crash between dead-lettering and moving the checkpoint leaves an entry in both files
+        List<PaymentWriteAheadLog.Entry> unflushed = log.replay(checkpoint).stream()
+                .filter(entry -> !deadLettered.contains(entry.getSequence()))
+                .collect(Collectors.toList());
+        if (!unflushed.isEmpty()) {
+            LOGGER.info("Replaying {} payments from the write-ahead log after sequence {}", unflushed.size(), checkpoint);
+            for (int from = 0; from < unflushed.size(); from += batchSize) {
+                try {
+                    if (!flushWithRetry(unflushed.subList(from, Math.min(from + batchSize, unflushed.size())))) {
+                        throw new IllegalStateException("Cannot replay payments from the write-ahead log");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while replaying payments", e);
+                }
+            }
+        }
+
+        log.start(this::enqueue);
+        flusher = new Thread(this::flushLoop, "payment-write-behind");
+        flusher.start();
+    }
+
+    @Override
+    public void checkAvailable() {
+        checkNotFailed();
+        if (!log.isAvailable()) {
+            throw new PaymentLogUnavailableException("Payment log is not taking payments");
+        }
+    }
+
+    // Once queued, the payment is either written or failed by the log writer, whose own waits are
+    // bounded, so the wait for it is not timed out: a payment reported as failed is never persisted.
+    @Override
+    public void record(Payment payment) {
+        checkNotFailed();
+        try {
+            log.append(payment, recordTimeout).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Cannot record payment", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while recording payment", e);
+        }
+    }
+
+    @Override
+    public Health health() {
+        Throwable failure = this.failure;
+        return failure == null ? Health.up().build() : Health.down().withException(failure).build();
+    }
+
+    private void checkNotFailed() {
+        if (failure != null) {
+            throw new PaymentLogUnavailableException("Payment write-behind has stopped", failure);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        log.close();
+        running = false;
+        if (flusher != null) {
+            flusher.join();
+        }
+    }
+
+    // Runs on the log writer; failing here makes the log stop taking appends
+    private void enqueue(List<PaymentWriteAheadLog.Entry> entries) {
+        checkNotFailed();
+        try {
+            for (PaymentWriteAheadLog.Entry entry : entries) {
+                if (!pending.offer(entry, recordTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                    throw fail(new IllegalStateException("The flusher is not keeping up with the payment log"));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing payments", e);
+        }
+    }
+
+    private IllegalStateException fail(IllegalStateException e) {
+        if (failure == null) {
+            failure = e;
+            LOGGER.error("Payment write-behind has stopped, unflushed payments are replayed on the next start", e);
+        }
+        return e;
+    }
+
+    private void flushLoop() {
+        List<PaymentWriteAheadLog.Entry> batch = new ArrayList<>(batchSize);
+        while (running || !pending.isEmpty()) {
+            try {
+                PaymentWriteAheadLog.Entry first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                pending.drainTo(batch, batchSize - 1);
+                if (!flushWithRetry(batch)) {
+                    if (running) {
+                        fail(new IllegalStateException("Cannot flush payments up to sequence "
+                                + batch.get(batch.size() - 1).getSequence()));
+                    } else {
+                        LOGGER.warn("Stopping the flusher with unflushed payments, they are replayed from the write-ahead log on startup");
+                    }
+                    return;
+                }
+                log.deleteSegmentsUpTo(batch.get(batch.size() - 1).getSequence());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                LOGGER.warn("Cannot delete flushed write-ahead log segments", e);
+            } catch (RuntimeException e) {
+                fail(new IllegalStateException("The flusher stopped unexpectedly", e));
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Returns false when stopping while the database is unavailable, or when the dead-letter file
+    // cannot be written; the batch then stays in the log. A batch rejected outright is flushed one
+    // payment at a time so only the bad payments are dead-lettered.
+    private boolean flushWithRetry(List<PaymentWriteAheadLog.Entry> batch) throws InterruptedException {
+        long delayMillis = Math.min(MIN_RETRY_DELAY_MILLIS, maxRetryDelayMillis);
+        while (true) {
+            try {
+                flush(batch);
+                return true;
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) {
+                    if (batch.size() == 1) {
+                        return deadLetter(batch, e);
+                    }
+                    LOGGER.warn("Cannot flush {} payments, flushing them one at a time", batch.size(), e);
+                    for (PaymentWriteAheadLog.Entry entry : batch) {
+                        if (!flushWithRetry(Collections.singletonList(entry))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+                if (!running) {
+                    return false;
+                }
+                LOGGER.warn("Cannot flush {} payments, retrying in {}ms", batch.size(), delayMillis, e);
+                TimeUnit.MILLISECONDS.sleep(delayMillis);
+                delayMillis = Math.min(delayMillis * 2, maxRetryDelayMillis);
+            }
+        }
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    // The checkpoint moves past dead-lettered payments so they are not replayed; if it cannot be
+    // saved, the next flushed batch moves it instead.
+    private boolean deadLetter(List<PaymentWriteAheadLog.Entry> batch, RuntimeException cause) {
+        long lastSequence = batch.get(batch.size() - 1).getSequence();
+        try {
+            log.deadLetter(batch);
+        } catch (IOException e) {
+            e.addSuppressed(cause);
+            LOGGER.error("Cannot dead-letter payments up to sequence {}", lastSequence, e);
+            return false;
+        }
+        LOGGER.error("Moved {} payments up to sequence {} to the dead-letter file", batch.size(), lastSequence, cause);
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    checkpointRepository.save(new PaymentLogCheckpoint(LOG_NAME, lastSequence)));
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot move the checkpoint past dead-lettered payments", e);
+        }
+        return true;
+    }
+
+    // Retries every dead-lettered payment in its own transaction, without touching the checkpoint,
+    // and keeps the ones the database still rejects. Returns the sequences found in the file.
+    private Set<Long> replayDeadLetters() throws IOException {
+        Map<Long, PaymentWriteAheadLog.Entry> deadLetters = new LinkedHashMap<>();
+        log.deadLetters().forEach(entry -> deadLetters.putIfAbsent(entry.getSequence(), entry));
+        if (deadLetters.isEmpty()) {
+            return Set.of();
+        }
+        List<PaymentWriteAheadLog.Entry> remaining = new ArrayList<>();
+        for (PaymentWriteAheadLog.Entry entry : deadLetters.values()) {
+            Payment payment = entry.getPayment();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    paymentRepository.insertAll(List.of(payment));
+                    paymentTotalRepository.increment(payment.getCustomerId(), payment.getMoney());
+                });
+            } catch (RuntimeException e) {
+                LOGGER.error("Dead-lettered payment at sequence {} is still rejected", entry.getSequence(), e);
+                remaining.add(entry);
+            }
+        }
+        log.replaceDeadLetters(remaining);
+        LOGGER.info("Replayed {} of {} dead-lettered payments", deadLetters.size() - remaining.size(), deadLetters.size());
+        return deadLetters.keySet();
+    }
+
+    private void flush(List<PaymentWriteAheadLog.Entry> batch) {
+        List<Payment> payments = batch.stream()
+                .map(PaymentWriteAheadLog.Entry::getPayment)
+                .collect(Collectors.toList());
+        long lastSequence = batch.get(batch.size() - 1).getSequence();
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentRepository.insertAll(payments);
+            payments.forEach(p -> paymentTotalRepository.increment(p.getCustomerId(), p.getMoney()));
+            checkpointRepository.save(new PaymentLogCheckpoint(LOG_NAME, lastSequence));
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package com.amigoscode.testing.payment.writebehind;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "payment.write-behind")
+public class WriteBehindProperties {
+
+    private boolean enabled;
+
+    private String directory = "payment-wal";
+
+    private int queueCapacity = 10_000;
+
+    private int batchSize = 500;
+
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    private Duration maxRetryDelay = Duration.ofSeconds(30);
+
+    private Duration recordTimeout = Duration.ofSeconds(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public Duration getMaxRetryDelay() {
+        return maxRetryDelay;
+    }
+
+    public void setMaxRetryDelay(Duration maxRetryDelay) {
+        this.maxRetryDelay = maxRetryDelay;
+    }
+
+    public Duration getRecordTimeout() {
+        return recordTimeout;
+    }
+
+    public void setRecordTimeout(Duration recordTimeout) {
+        this.recordTimeout = recordTimeout;
+    }
+}
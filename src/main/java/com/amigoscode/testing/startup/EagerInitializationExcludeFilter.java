@@ -0,0 +1,22 @@
+package com.amigoscode.testing.startup;
+
+import com.amigoscode.testing.payment.journal.PaymentEventJournal;
+import com.amigoscode.testing.payment.writebehind.WriteBehindPaymentRecorder;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.stereotype.Component;
+
+// Beans that stay eager with spring.main.lazy-initialization. The write-behind recorder replays
+// its log and the journal opens its segment when they start, which has to happen at startup and
+// not on the first payment after a crash.
+@Component
+public class EagerInitializationExcludeFilter implements LazyInitializationExcludeFilter {
+
+    private final LazyInitializationExcludeFilter delegate = LazyInitializationExcludeFilter.forBeanTypes(
+            WriteBehindPaymentRecorder.class, PaymentEventJournal.class, StartupWarmUp.class);
+
+    @Override
+    public boolean isExcluded(String beanName, BeanDefinition beanDefinition, Class<?> beanType) {
+        return delegate.isExcluded(beanName, beanDefinition, beanType);
+    }
+}
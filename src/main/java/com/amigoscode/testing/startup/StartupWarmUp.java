@@ -0,0 +1,103 @@
+package com.amigoscode.testing.startup;
+
+import com.amigoscode.testing.customer.CustomerLookupCache;
+import com.amigoscode.testing.customer.CustomerRegistrationRequest;
+import com.amigoscode.testing.customer.CustomerRepository;
+import com.amigoscode.testing.payment.PaymentRequest;
+import com.amigoscode.testing.utils.PhoneNumberValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Runs the registration and charge request paths before the application reports ready, so the
+// first requests after a scale-out do not pay for lazily created beans, Jackson deserializers,
+// Hibernate query plans and interpreted code. Only the side-effect free parts run: request
+// binding, phone number validation and the customer lookups, never a card charge or an insert.
+// Until it finishes this reports OUT_OF_SERVICE, which fails the readiness health group.
+@Component
+@Order(0)
+@ConditionalOnProperty(value = "startup.warm-up.enabled", havingValue = "true")
+public class StartupWarmUp implements HealthIndicator, ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupWarmUp.class);
+
+    static final String REGISTRATION_JSON = "{\"customer\":{\"id\":\"00000000-0000-0000-0000-000000000000\","
+            + "\"name\":\"Warm Up\",\"phoneNumber\":\"+447000000000\"}}";
+
+    static final String PAYMENT_JSON = "{\"payment\":{\"customerId\":\"00000000-0000-0000-0000-000000000000\","
+            + "\"amount\":10.00,\"currency\":\"USD\",\"source\":\"tok_visa\",\"description\":\"Warm up\"}}";
+
+    private final ObjectMapper objectMapper;
+
+    private final PhoneNumberValidator phoneNumberValidator;
+
+    private final CustomerRepository customerRepository;
+
+    private final CustomerLookupCache customerLookupCache;
+
+    private final int iterations;
+
+    private volatile Health health = Health.outOfService().build();
+
+    public StartupWarmUp(ObjectMapper objectMapper,
+                         PhoneNumberValidator phoneNumberValidator,
+                         CustomerRepository customerRepository,
+                         CustomerLookupCache customerLookupCache,
+                         WarmUpProperties properties) {
+        this.objectMapper = objectMapper;
+        this.phoneNumberValidator = phoneNumberValidator;
+        this.customerRepository = customerRepository;
+        this.customerLookupCache = customerLookupCache;
+        this.iterations = properties.getIterations();
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long start = System.nanoTime();
+        // Creates the controllers and, through them, the services, charger and repositories
+        // that lazy initialization would otherwise leave to the first request
+        event.getApplicationContext().getBeansWithAnnotation(RestController.class);
+        int completed = 0;
+        try {
+            for (; completed < iterations; completed++) {
+                warmUp();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Warm-up stopped after {} of {} iterations", completed, iterations, e);
+        }
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        LOGGER.info("Warmed up in {} ms ({} iterations)", duration.toMillis(), completed);
+        health = Health.up()
+                .withDetail("iterations", completed)
+                .withDetail("duration", duration.toString())
+                .build();
+    }
+
+    @Override
+    public Health health() {
+        return health;
+    }
+
+    void warmUp() throws IOException {
+        CustomerRegistrationRequest registration = objectMapper.readValue(REGISTRATION_JSON, CustomerRegistrationRequest.class);
+        String phoneNumber = registration.getCustomer().getPhoneNumber();
+        if (phoneNumberValidator.test(phoneNumber)) {
+            customerRepository.findCustomerByPhoneNumber(phoneNumber);
+        }
+
+        PaymentRequest payment = objectMapper.readValue(PAYMENT_JSON, PaymentRequest.class);
+        payment.getPayment().getMoney();
+        customerLookupCache.findById(payment.getPayment().getCustomerId());
+    }
+}
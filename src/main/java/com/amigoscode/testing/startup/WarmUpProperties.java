@@ -0,0 +1,28 @@
+package com.amigoscode.testing.startup;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "startup.warm-up")
+public class WarmUpProperties {
+
+    private boolean enabled;
+
+    // Enough passes for the hot methods to be compiled before real traffic arrives
+    private int iterations = 2000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+}
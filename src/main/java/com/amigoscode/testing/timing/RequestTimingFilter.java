@@ -0,0 +1,157 @@
+package com.amigoscode.testing.timing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+// Collects the stages services mark through RequestTimings and returns them in a Server-Timing
+// header, which browser dev tools and most HTTP clients can display. The header is added just
+// before the body is written, when the stages are known but the response is not yet committed.
+// Requests slower than the threshold are also logged as one logfmt line. When the chain throws,
+// both still happen, with the request logged as a 500 since the container has not set a status yet.
+@Component
+@ConditionalOnProperty(value = "request-timing.enabled", havingValue = "true")
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestTimingFilter.class);
+
+    private final long slowThresholdNanos;
+
+    public RequestTimingFilter(RequestTimingProperties properties) {
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTimings timings = RequestTimings.begin();
+        ServerTimingResponse timedResponse = new ServerTimingResponse(response, timings);
+        try {
+            chain.doFilter(request, timedResponse);
+        } catch (ServletException | IOException | RuntimeException e) {
+            timedResponse.addServerTiming();
+            logIfSlow(request, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, timings);
+            throw e;
+        } finally {
+            RequestTimings.end();
+        }
+
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    logIfSlow(request, response.getStatus(), timings);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+            return;
+        }
+        timedResponse.addServerTiming();
+        logIfSlow(request, response.getStatus(), timings);
+    }
+
+    private void logIfSlow(HttpServletRequest request, int status, RequestTimings timings) {
+        long totalNanos = System.nanoTime() - timings.getStartNanos();
+        if (totalNanos < slowThresholdNanos || !LOGGER.isWarnEnabled()) {
+            return;
+        }
+        StringBuilder line = new StringBuilder(128)
+                .append("slow_request method=").append(request.getMethod())
+                .append(" path=").append(request.getRequestURI())
+                .append(" status=").append(status)
+                .append(" total_ms=").append(millis(totalNanos));
+        for (int i = 0; i < timings.size(); i++) {
+            line.append(' ').append(timings.name(i)).append("_ms=").append(millis(timings.durationNanos(i)));
+        }
+        LOGGER.warn(line.toString());
+    }
+
+    static String serverTiming(RequestTimings timings, long nowNanos) {
+        StringBuilder header = new StringBuilder(64);
+        for (int i = 0; i < timings.size(); i++) {
+            header.append(timings.name(i)).append(";dur=").append(millis(timings.durationNanos(i))).append(", ");
+        }
+        return header.append("total;dur=").append(millis(nowNanos - timings.getStartNanos())).toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static class ServerTimingResponse extends HttpServletResponseWrapper {
+
+        private final RequestTimings timings;
+
+        private boolean headerAdded;
+
+        ServerTimingResponse(HttpServletResponse response, RequestTimings timings) {
+            super(response);
+            this.timings = timings;
+        }
+
+        void addServerTiming() {
+            if (headerAdded || isCommitted()) {
+                return;
+            }
+            headerAdded = true;
+            setHeader(SERVER_TIMING_HEADER, serverTiming(timings, System.nanoTime()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+    }
+}
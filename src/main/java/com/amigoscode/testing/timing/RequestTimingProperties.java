@@ -0,0 +1,30 @@
+package com.amigoscode.testing.timing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "request-timing")
+public class RequestTimingProperties {
+
+    private boolean enabled;
+
+    // Requests slower than this are logged with their stage breakdown
+    private Duration slowThreshold = Duration.ofMillis(500);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public void setSlowThreshold(Duration slowThreshold) {
+        this.slowThreshold = slowThreshold;
+    }
+}
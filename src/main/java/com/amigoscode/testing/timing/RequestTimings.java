@@ -0,0 +1,81 @@
+package com.amigoscode.testing.timing;
+
+import java.util.Arrays;
+
+// Durations of the stages a request went through, kept in a thread local by RequestTimingFilter.
+// Services mark stages by chaining the timestamps:
+//
+//     long stage = RequestTimings.start();
+//     ...
+//     stage = RequestTimings.stage("customer_lookup", stage);
+//
+// Without an active request, for example with the feature turned off, both calls are a thread
+// local read and return 0 without reading the clock.
+public final class RequestTimings {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos;
+
+    private String[] names = new String[8];
+
+    private long[] durations = new long[8];
+
+    private int size;
+
+    RequestTimings(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public static long start() {
+        return CURRENT.get() == null ? 0 : System.nanoTime();
+    }
+
+    // Records the time since the given timestamp under name and returns the timestamp the next
+    // stage starts at
+    public static long stage(String name, long sinceNanos) {
+        RequestTimings timings = CURRENT.get();
+        if (timings == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        timings.add(name, now - sinceNanos);
+        return now;
+    }
+
+    static RequestTimings begin() {
+        RequestTimings timings = new RequestTimings(System.nanoTime());
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    int size() {
+        return size;
+    }
+
+    String name(int index) {
+        return names[index];
+    }
+
+    long durationNanos(int index) {
+        return durations[index];
+    }
+
+    private void add(String name, long durationNanos) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            durations = Arrays.copyOf(durations, size * 2);
+        }
+        names[size] = name;
+        durations[size] = durationNanos;
+        size++;
+    }
+}
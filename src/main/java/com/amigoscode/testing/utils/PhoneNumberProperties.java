@@ -0,0 +1,71 @@
+package com.amigoscode.testing.utils;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "phone-number")
+public class PhoneNumberProperties {
+
+    private List<Rule> rules = new ArrayList<>(List.of(new Rule("GB", "+44", List.of(13))));
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    public static class Rule {
+
+        private String country;
+
+        private String prefix;
+
+        private List<Integer> lengths = new ArrayList<>();
+
+        public Rule() {
+        }
+
+        public Rule(String country, String prefix, List<Integer> lengths) {
+            this.country = country;
+            this.prefix = prefix;
+            this.lengths = lengths;
+        }
+
+        public String getCountry() {
+            return country;
+        }
+
+        public void setCountry(String country) {
+            this.country = country;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public void setPrefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public List<Integer> getLengths() {
+            return lengths;
+        }
+
+        public void setLengths(List<Integer> lengths) {
+            this.lengths = lengths;
+        }
+
+        @Override
+        public String toString() {
+            return "Rule{" +
+                    "country='" + country + '\'' +
+                    ", prefix='" + prefix + '\'' +
+                    ", lengths=" + lengths +
+                    '}';
+        }
+    }
+}
@@ -1,16 +1,100 @@
 package com.amigoscode.testing.utils;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Arrays;
 import java.util.function.Predicate;
 
 @Service
 public class PhoneNumberValidator implements Predicate<String> {
 
+    // Symbols 0-9 are the digits, 10 is a leading '+'.
+    private static final int SYMBOLS = 11;
+    private static final int PLUS = 10;
+    private static final int MAX_LENGTH = Long.SIZE - 1;
+    private static final int NO_NODE = -1;
+
+    // The configured prefixes are compiled into a trie stored as a flat transition table. Each
+    // node carries a bit mask of the total lengths accepted for numbers starting with the prefix
+    // spelled by the path to it.
+    private int[] transitions;
+    private long[] acceptedLengths;
+    private long anyAcceptedLength;
+    private int nodes;
+
+    public PhoneNumberValidator() {
+        this(new PhoneNumberProperties());
+    }
+
+    @Autowired
+    public PhoneNumberValidator(PhoneNumberProperties properties) {
+        transitions = new int[SYMBOLS];
+        acceptedLengths = new long[1];
+        Arrays.fill(transitions, NO_NODE);
+        nodes = 1;
+        properties.getRules().forEach(this::compile);
+    }
+
     @Override
     public boolean test(String phoneNumber) {
-        return phoneNumber.startsWith("+44") &&
-                phoneNumber.length() == 13;
+        if (phoneNumber == null) return false;
+        int length = phoneNumber.length();
+        if (length > MAX_LENGTH || (anyAcceptedLength & (1L << length)) == 0) return false;
+
+        int node = 0;
+        long accepted = acceptedLengths[0];
+        for (int i = 0; i < length; i++) {
+            int symbol = symbol(phoneNumber.charAt(i), i);
+            if (symbol == NO_NODE) return false;
+            if (node != NO_NODE) {
+                node = transitions[node * SYMBOLS + symbol];
+                if (node != NO_NODE) {
+                    accepted |= acceptedLengths[node];
+                }
+            }
+        }
+        return (accepted & (1L << length)) != 0;
+    }
+
+    private static int symbol(char c, int position) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c == '+' && position == 0) return PLUS;
+        return NO_NODE;
+    }
+
+    private void compile(PhoneNumberProperties.Rule rule) {
+        String prefix = rule.getPrefix() == null ? "" : rule.getPrefix();
+        int node = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            int symbol = symbol(prefix.charAt(i), i);
+            if (symbol == NO_NODE) {
+                throw new IllegalArgumentException(String.format("Invalid phone number prefix in %s", rule));
+            }
+            int next = transitions[node * SYMBOLS + symbol];
+            if (next == NO_NODE) {
+                next = addNode();
+                transitions[node * SYMBOLS + symbol] = next;
+            }
+            node = next;
+        }
+
+        for (int length : rule.getLengths()) {
+            if (length <= prefix.length() || length > MAX_LENGTH) {
+                throw new IllegalArgumentException(String.format("Invalid phone number length %d in %s", length, rule));
+            }
+            acceptedLengths[node] |= 1L << length;
+            anyAcceptedLength |= 1L << length;
+        }
+    }
+
+    private int addNode() {
+        if (nodes == acceptedLengths.length) {
+            acceptedLengths = Arrays.copyOf(acceptedLengths, nodes * 2);
+            transitions = Arrays.copyOf(transitions, nodes * 2 * SYMBOLS);
+            Arrays.fill(transitions, nodes * SYMBOLS, transitions.length, NO_NODE);
+        }
+        return nodes++;
     }
 
 }
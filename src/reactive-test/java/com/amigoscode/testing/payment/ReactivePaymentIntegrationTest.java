@@ -0,0 +1,158 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.TestPhoneNumbers;
+import com.amigoscode.testing.TestingApplication;
+import com.amigoscode.testing.customer.Customer;
+import com.amigoscode.testing.customer.CustomerRegistrationRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+@ActiveProfiles("reactive")
+class ReactivePaymentIntegrationTest {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentTotalRepository paymentTotalRepository;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    void itShouldCreatePaymentSuccessfully() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        Customer customer = new Customer(customerId, "James", TestPhoneNumbers.next());
+        Payment payment = new Payment(null, customerId, new BigDecimal("1000.00"), Currency.GPD, "0x0x0x0", "Shoes");
+
+        // When
+        webTestClient.post().uri("/api/v1/customer-registration")
+                .bodyValue(new CustomerRegistrationRequest(customer))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.post().uri("/api/v1/payment")
+                .bodyValue(new PaymentRequest(payment))
+                .exchange()
+                .expectStatus().isOk();
+
+        // Then
+        PaymentPage page = webTestClient.get().uri("/api/v1/payment?customerId={customerId}", customerId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(PaymentPage.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(page).isNotNull();
+        assertThat(page.getPayments()).hasSize(1);
+        Payment saved = page.getPayments().get(0);
+        assertThat(saved).isEqualToIgnoringGivenFields(payment, "paymentId");
+        assertThat(paymentRepository.findById(saved.getPaymentId())).hasValue(saved);
+        assertThat(paymentTotalRepository.findCustomerTotals(customerId))
+                .extracting(CustomerTotal::getTotal)
+                .containsExactly(new BigDecimal("1000.00"));
+    }
+
+    @Test
+    void itShouldRejectAlreadyTakenPhoneNumber() {
+        // Given
+        String phoneNumber = TestPhoneNumbers.next();
+        Customer customer = new Customer(UUID.randomUUID(), "Ann", phoneNumber);
+        webTestClient.post().uri("/api/v1/customer-registration")
+                .bodyValue(new CustomerRegistrationRequest(customer))
+                .exchange()
+                .expectStatus().isOk();
+
+        // When
+        Customer other = new Customer(UUID.randomUUID(), "Bob", phoneNumber);
+
+        // Then
+        webTestClient.post().uri("/api/v1/customer-registration")
+                .bodyValue(new CustomerRegistrationRequest(other))
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    void itShouldNotChargeUnknownCustomer() {
+        // Given
+        Payment payment = new Payment(null, UUID.randomUUID(), new BigDecimal("10.00"), Currency.USD, "0x0x0x0", "Shoes");
+
+        // When
+        // Then
+        webTestClient.post().uri("/api/v1/payment/async")
+                .bodyValue(new PaymentRequest(payment))
+                .exchange()
+                .expectStatus().is5xxServerError();
+    }
+
+    @Test
+    void itShouldAcceptBinaryRequestsAndNegotiateBinaryResponses() throws IOException {
+        // Given
+        MediaType smile = MediaType.valueOf("application/x-jackson-smile");
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        UUID customerId = UUID.randomUUID();
+        Customer customer = new Customer(customerId, "Jane", TestPhoneNumbers.next());
+        Payment payment = new Payment(null, customerId, new BigDecimal("25.50"), Currency.USD, "0x0x0x0", "Hat");
+
+        // When
+        webTestClient.post().uri("/api/v1/customer-registration")
+                .contentType(smile)
+                .bodyValue(smileMapper.writeValueAsBytes(new CustomerRegistrationRequest(customer)))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.post().uri("/api/v1/payment")
+                .contentType(smile)
+                .bodyValue(smileMapper.writeValueAsBytes(new PaymentRequest(payment)))
+                .exchange()
+                .expectStatus().isOk();
+
+        // Then
+        byte[] body = webTestClient.get().uri("/api/v1/payment?customerId={customerId}", customerId)
+                .accept(smile)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(smile)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+        PaymentPage page = smileMapper.readValue(body, PaymentPage.class);
+        assertThat(page.getPayments()).hasSize(1);
+        assertThat(page.getPayments().get(0)).isEqualToIgnoringGivenFields(payment, "paymentId");
+    }
+
+    @Test
+    void itShouldRefuseToStartWithWriteBehindEnabled(@TempDir Path directory) {
+        // Given
+        SpringApplicationBuilder application = new SpringApplicationBuilder(TestingApplication.class)
+                .profiles("reactive");
+
+        // When
+        // Then
+        assertThatThrownBy(() -> application.run("--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:reactive-write-behind",
+                "--payment.write-behind.enabled=true",
+                "--payment.write-behind.directory=" + directory))
+                .hasRootCauseInstanceOf(IllegalStateException.class)
+                .hasStackTraceContaining("payment.write-behind.enabled is not supported with the reactive profile");
+    }
+}
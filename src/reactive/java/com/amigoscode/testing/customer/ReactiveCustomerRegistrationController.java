@@ -0,0 +1,37 @@
+package com.amigoscode.testing.customer;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.util.List;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("api/v1/customer-registration")
+public class ReactiveCustomerRegistrationController {
+
+    private final ReactiveCustomerRegistrationService customerRegistrationService;
+
+    public ReactiveCustomerRegistrationController(ReactiveCustomerRegistrationService customerRegistrationService) {
+        this.customerRegistrationService = customerRegistrationService;
+    }
+
+    @PostMapping
+    public Mono<Void> registerNewCustomer(
+          @RequestBody @Valid CustomerRegistrationRequest request
+    ) {
+
+        return customerRegistrationService.registerNewCustomer(request);
+    }
+
+    @PostMapping("bulk")
+    public Mono<List<CustomerRegistrationResult>> registerNewCustomers(
+          @RequestBody @Valid CustomerBulkRegistrationRequest request
+    ) {
+
+        return customerRegistrationService.registerNewCustomers(request);
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.amigoscode.testing.customer;
+
+import com.amigoscode.testing.customer.CustomerRegistrationResult.Status;
+import com.amigoscode.testing.utils.PhoneNumberValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// CustomerRegistrationService for the reactive profile, with the same outcomes, exceptions and
+// customer.registration timer. Bulk registrations go through the single path one customer at a
+// time, which also catches repeated phone numbers within a batch.
+@Service
+@Profile("reactive")
+public class ReactiveCustomerRegistrationService {
+
+    private final ReactiveCustomerRepository customerRepository;
+
+    private final PhoneNumberValidator phoneNumberValidator;
+
+    private final CustomerIdGenerator customerIdGenerator;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Status, Timer> registrationTimers = new EnumMap<>(Status.class);
+
+    public ReactiveCustomerRegistrationService(ReactiveCustomerRepository customerRepository,
+                                               PhoneNumberValidator phoneNumberValidator,
+                                               CustomerIdGenerator customerIdGenerator,
+                                               MeterRegistry meterRegistry) {
+        this.customerRepository = customerRepository;
+        this.phoneNumberValidator = phoneNumberValidator;
+        this.customerIdGenerator = customerIdGenerator;
+        this.meterRegistry = meterRegistry;
+        for (Status status : Status.values()) {
+            registrationTimers.put(status, registrationTimer(status.name().toLowerCase(), "None"));
+        }
+    }
+
+    public Mono<Void> registerNewCustomer(CustomerRegistrationRequest request) {
+        Customer customer = request.getCustomer();
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return register(customer)
+                    .doOnError(e -> sample.stop(registrationTimer("error", e.getClass().getSimpleName())))
+                    .doOnNext(status -> sample.stop(registrationTimers.get(status)));
+        }).flatMap(status -> {
+            if (status == Status.INVALID_PHONE_NUMBER) {
+                return Mono.error(new IllegalStateException(
+                        String.format("Phone number %s is not valid", customer.getPhoneNumber())));
+            }
+            if (status == Status.PHONE_NUMBER_TAKEN) {
+                return Mono.error(new IllegalArgumentException(
+                        String.format("The phone number [%s] is already taken", customer.getPhoneNumber())));
+            }
+            return Mono.empty();
+        });
+    }
+
+    public Mono<List<CustomerRegistrationResult>> registerNewCustomers(CustomerBulkRegistrationRequest request) {
+        return Flux.fromIterable(request.getCustomers())
+                .concatMap(customer -> register(customer)
+                        .map(status -> new CustomerRegistrationResult(customer.getPhoneNumber(), status)))
+                .collectList();
+    }
+
+    private Mono<Status> register(Customer customer) {
+        if (!phoneNumberValidator.test(customer.getPhoneNumber())) {
+            return Mono.just(Status.INVALID_PHONE_NUMBER);
+        }
+        return customerRepository.findCustomerByPhoneNumber(customer.getPhoneNumber())
+                .map(existingCustomer -> registrationStatus(existingCustomer, customer))
+                .switchIfEmpty(Mono.defer(() -> insert(customer)));
+    }
+
+    // A concurrent registration of the same phone number surfaces as a constraint violation
+    private Mono<Status> insert(Customer customer) {
+        if (customer.getId() == null) {
+            customer.setId(customerIdGenerator.generate());
+        }
+        return customerRepository.insert(customer)
+                .thenReturn(Status.REGISTERED)
+                .onErrorResume(DataIntegrityViolationException.class, e -> customerRepository
+                        .findCustomerByPhoneNumber(customer.getPhoneNumber())
+                        .map(existingCustomer -> registrationStatus(existingCustomer, customer))
+                        .switchIfEmpty(Mono.error(e)));
+    }
+
+    private static Status registrationStatus(Customer existingCustomer, Customer customer) {
+        boolean isTheSameCustomer = existingCustomer.getName().equals(customer.getName());
+        return isTheSameCustomer ? Status.ALREADY_REGISTERED : Status.PHONE_NUMBER_TAKEN;
+    }
+
+    private Timer registrationTimer(String outcome, String exception) {
+        return Timer.builder("customer.registration")
+                .description("Single customer registrations by outcome")
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+}
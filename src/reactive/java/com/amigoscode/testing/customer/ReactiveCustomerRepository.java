@@ -0,0 +1,49 @@
+package com.amigoscode.testing.customer;
+
+import com.amigoscode.testing.reactive.ReactiveDatabase;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+@Repository
+@Profile("reactive")
+public class ReactiveCustomerRepository {
+
+    private static final String SELECT_CUSTOMER = "select id, name, phone_number from customer ";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveCustomerRepository(ReactiveDatabase database) {
+        this.databaseClient = database.getDatabaseClient();
+    }
+
+    public Mono<Customer> findById(UUID id) {
+        return databaseClient.execute(SELECT_CUSTOMER + "where id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> customer(row))
+                .one();
+    }
+
+    public Mono<Customer> findCustomerByPhoneNumber(String phoneNumber) {
+        return databaseClient.execute(SELECT_CUSTOMER + "where phone_number = :phone_number")
+                .bind("phone_number", phoneNumber)
+                .map((row, metadata) -> customer(row))
+                .one();
+    }
+
+    public Mono<Void> insert(Customer customer) {
+        return databaseClient.execute("insert into customer (id, name, phone_number) values (:id, :name, :phone_number)")
+                .bind("id", customer.getId())
+                .bind("name", customer.getName())
+                .bind("phone_number", customer.getPhoneNumber())
+                .then();
+    }
+
+    private static Customer customer(Row row) {
+        return new Customer(ReactiveDatabase.uuid(row, "id"), row.get("name", String.class), row.get("phone_number", String.class));
+    }
+}
@@ -0,0 +1,22 @@
+package com.amigoscode.testing.payment;
+
+import reactor.core.publisher.Mono;
+
+// Card charges for the reactive profile. Implementations must not block the subscribing thread,
+// which is one of Netty's event loops.
+public interface ReactiveCardPaymentCharger {
+
+    Mono<CardPaymentCharge> chargeCard(
+            final String cardSource,
+            final Money amount,
+            final String description,
+            final ChargeOptions options
+    );
+
+    // Runs the charge on whatever the async charger completes its futures on, which for the
+    // Stripe SDK is the card payment executor
+    static ReactiveCardPaymentCharger fromAsync(AsyncCardPaymentCharger charger) {
+        return (cardSource, amount, description, options) -> Mono.fromFuture(
+                () -> charger.chargeCardAsync(cardSource, amount, description, options));
+    }
+}
@@ -0,0 +1,64 @@
+package com.amigoscode.testing.payment;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static com.amigoscode.testing.payment.PaymentController.IDEMPOTENCY_KEY_HEADER;
+
+// The payment API for the reactive profile. Every charge is non-blocking, so the async endpoint
+// is the same charge under its servlet path. Totals, their rebuild and the export are only served
+// by the servlet stack.
+@RestController
+@Profile("reactive")
+@RequestMapping("api/v1/payment")
+public class ReactivePaymentController {
+
+    private final ReactivePaymentService paymentService;
+
+    private final PaymentIdempotencyCache paymentIdempotencyCache;
+
+    private final Duration chargeDeadline;
+
+    public ReactivePaymentController(ReactivePaymentService paymentService,
+                                     PaymentIdempotencyCache paymentIdempotencyCache,
+                                     @Value("${payment.charge.deadline:2s}") Duration chargeDeadline) {
+        this.paymentService = paymentService;
+        this.paymentIdempotencyCache = paymentIdempotencyCache;
+        this.chargeDeadline = chargeDeadline;
+    }
+
+    @GetMapping
+    public Mono<PaymentPage> getPayments(@RequestParam UUID customerId,
+                                         @RequestParam(required = false) Long after,
+                                         @RequestParam(defaultValue = "50") int limit) {
+        return paymentService.findPayments(customerId, after, limit);
+    }
+
+    @PostMapping({"", "async"})
+    public Mono<Void> makePayment(@RequestBody PaymentRequest paymentRequest,
+                                  @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        UUID customerId = paymentRequest.getPayment().getCustomerId();
+        ChargeOptions chargeOptions = chargeOptions(customerId, idempotencyKey);
+        if (idempotencyKey == null) {
+            return paymentService.chargeCard(customerId, paymentRequest, chargeOptions);
+        }
+
+        return Mono.fromFuture(() -> paymentIdempotencyCache.executeAsync(cacheKey(customerId, idempotencyKey),
+                paymentRequest.fingerprint(), () -> paymentService.chargeCard(customerId, paymentRequest, chargeOptions).toFuture()));
+    }
+
+    // The deadline starts when the request arrives, so everything before the charge counts against it
+    private ChargeOptions chargeOptions(UUID customerId, String idempotencyKey) {
+        return ChargeOptions.withCustomerIdempotencyKey(customerId, idempotencyKey)
+                .withDeadline(Deadline.after(chargeDeadline));
+    }
+
+    private static String cacheKey(UUID customerId, String idempotencyKey) {
+        return customerId + ":" + idempotencyKey;
+    }
+}
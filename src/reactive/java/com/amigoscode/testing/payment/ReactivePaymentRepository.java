@@ -0,0 +1,113 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.reactive.ReactiveDatabase;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.amigoscode.testing.payment.PaymentTotalCounterRepositoryImpl.SHARDS;
+
+// PaymentRepository and JpaPaymentRecorder for the reactive profile, on the same tables. Payments are
+// written here rather than through the configured PaymentRecorder, so the write-behind recorder
+// cannot be used with this profile and the application refuses to start when it is enabled.
+@Repository
+@Profile("reactive")
+public class ReactivePaymentRepository {
+
+    // Hibernate's pooled optimizer treats every value it takes from the sequence as the top of a
+    // block of 50 ids below it. Using the value itself as the id stays inside a block nobody else
+    // has, at the cost of burning the rest of it.
+    private static final String NEXT_PAYMENT_ID = "select next value for payment_id_sequence";
+
+    private static final String INSERT_PAYMENT = "insert into payment " +
+            "(payment_id, customer_id, amount_minor, currency, source, description) " +
+            "values (:payment_id, :customer_id, :amount, :currency, :source, :description)";
+
+    private static final String SELECT_PAYMENTS_AFTER = "select * from payment " +
+            "where customer_id = :customer_id and payment_id > :after " +
+            "order by payment_id " +
+            "limit :limit";
+
+    private static final String INCREMENT_TOTAL = "merge into payment_total t using (values (1)) v " +
+            "on (t.customer_id = :customer_id and t.currency = :currency and t.shard = :shard) " +
+            "when matched then update set total_minor = t.total_minor + :amount, payment_count = t.payment_count + 1 " +
+            "when not matched then insert (customer_id, currency, shard, total_minor, payment_count) " +
+            "values (:customer_id, :currency, :shard, :amount, 1)";
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactivePaymentRepository(ReactiveDatabase database,
+                                     @Value("${payment.write-behind.enabled:false}") boolean writeBehindEnabled) {
+        if (writeBehindEnabled) {
+            throw new IllegalStateException(
+                    "payment.write-behind.enabled is not supported with the reactive profile, which records payments through R2DBC");
+        }
+        this.databaseClient = database.getDatabaseClient();
+        this.transactionalOperator = database.getTransactionalOperator();
+    }
+
+    public Flux<Payment> findPaymentsAfter(UUID customerId, long after, int limit) {
+        return databaseClient.execute(SELECT_PAYMENTS_AFTER)
+                .bind("customer_id", customerId)
+                .bind("after", after)
+                .bind("limit", limit)
+                .map((row, metadata) -> payment(row))
+                .all();
+    }
+
+    // The payment and its running total are written in one transaction, as JpaPaymentRecorder does
+    public Mono<Payment> record(Payment payment) {
+        return databaseClient.execute(NEXT_PAYMENT_ID)
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .flatMap(paymentId -> {
+                    payment.setPaymentId(paymentId);
+                    return insert(payment).then(incrementTotal(payment.getCustomerId(), payment.getMoney()));
+                })
+                .thenReturn(payment)
+                .as(transactionalOperator::transactional);
+    }
+
+    private Mono<Void> insert(Payment payment) {
+        DatabaseClient.GenericExecuteSpec insert = databaseClient.execute(INSERT_PAYMENT)
+                .bind("payment_id", payment.getPaymentId())
+                .bind("customer_id", payment.getCustomerId())
+                .bind("amount", payment.getMoney().getMinorUnits())
+                .bind("currency", payment.getCurrency().ordinal());
+        insert = payment.getSource() == null
+                ? insert.bindNull("source", String.class) : insert.bind("source", payment.getSource());
+        insert = payment.getDescription() == null
+                ? insert.bindNull("description", String.class) : insert.bind("description", payment.getDescription());
+        return insert.then();
+    }
+
+    // Event loop threads are few and long lived, so the shard is random rather than per thread
+    private Mono<Void> incrementTotal(UUID customerId, Money amount) {
+        return databaseClient.execute(INCREMENT_TOTAL)
+                .bind("customer_id", customerId)
+                .bind("currency", amount.getCurrency().ordinal())
+                .bind("shard", ThreadLocalRandom.current().nextInt(SHARDS))
+                .bind("amount", amount.getMinorUnits())
+                .then();
+    }
+
+    private static Payment payment(Row row) {
+        Currency currency = Currency.values()[row.get("currency", Integer.class)];
+        return new Payment(
+                row.get("payment_id", Long.class),
+                ReactiveDatabase.uuid(row, "customer_id"),
+                Money.ofMinor(row.get("amount_minor", Long.class), currency),
+                row.get("source", String.class),
+                row.get("description", String.class));
+    }
+}
@@ -0,0 +1,163 @@
+package com.amigoscode.testing.payment;
+
+import com.amigoscode.testing.customer.ReactiveCustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+
+// PaymentService for the reactive profile: the same validation, events and payment.charge timer,
+// tagged mode=reactive. Without a reactive card charger (Stripe) the async one is adapted, which
+// keeps the blocking Stripe SDK on the card payment executor. Customers are looked up through R2DBC
+// on every charge; CustomerLookupCache loads through JPA on a miss, which would block the event loop.
+@Service
+@Profile("reactive")
+public class ReactivePaymentService {
+
+    private static final String REACTIVE = "reactive";
+
+    final private List<Currency> ACCEPTED_CURRENCIES = List.of(Currency.USD, Currency.GPD);
+
+    private final ReactivePaymentRepository paymentRepository;
+    private final ReactiveCustomerRepository customerRepository;
+    private final ReactiveCardPaymentCharger cardPaymentCharger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final Map<PaymentEvent.Type, Timer> chargeTimers = new EnumMap<>(PaymentEvent.Type.class);
+
+    public ReactivePaymentService(
+            ReactivePaymentRepository paymentRepository,
+            ReactiveCustomerRepository customerRepository,
+            ObjectProvider<ReactiveCardPaymentCharger> cardPaymentCharger,
+            ObjectProvider<AsyncCardPaymentCharger> asyncCardPaymentCharger,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry
+    ) {
+        this.paymentRepository = paymentRepository;
+        this.customerRepository = customerRepository;
+        this.cardPaymentCharger = cardPaymentCharger.getIfAvailable(
+                () -> ReactiveCardPaymentCharger.fromAsync(asyncCardPaymentCharger.getObject()));
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        for (PaymentEvent.Type type : PaymentEvent.Type.values()) {
+            if (type == PaymentEvent.Type.FAILED) continue;
+            chargeTimers.put(type, chargeTimer(type.name().toLowerCase(), "None"));
+        }
+    }
+
+    Mono<Void> chargeCard(UUID customerId, PaymentRequest paymentRequest, ChargeOptions chargeOptions) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return validate(customerId, paymentRequest)
+                    .then(Mono.defer(() -> charge(paymentRequest, chargeOptions)))
+                    .flatMap(cardPaymentCharge -> savePayment(customerId, paymentRequest, cardPaymentCharge))
+                    .doOnSuccess(ignored -> sample.stop(chargeTimers.get(PaymentEvent.Type.CHARGED)))
+                    .doOnError(e -> {
+                        if (!(e instanceof PaymentFailedException)) {
+                            publish(PaymentEvent.Type.FAILED, customerId, paymentRequest);
+                        }
+                        sample.stop(chargeTimer(e));
+                    });
+        });
+    }
+
+    Mono<PaymentPage> findPayments(UUID customerId, Long after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, PaymentService.MAX_PAGE_SIZE));
+        // One extra row tells us whether there is a next page without a count query.
+        return paymentRepository.findPaymentsAfter(customerId, after == null ? 0L : after, pageSize + 1)
+                .collectList()
+                .map(payments -> {
+                    if (payments.size() <= pageSize) {
+                        return new PaymentPage(payments, null);
+                    }
+                    List<Payment> page = payments.subList(0, pageSize);
+                    return new PaymentPage(page, page.get(pageSize - 1).getPaymentId());
+                });
+    }
+
+    private Mono<Void> validate(UUID customerId, PaymentRequest paymentRequest) {
+        return customerRepository.findById(customerId)
+                .switchIfEmpty(Mono.defer(() -> {
+                    publish(PaymentEvent.Type.CUSTOMER_NOT_FOUND, customerId, paymentRequest);
+                    return Mono.error(new PaymentFailedException(PaymentEvent.Type.CUSTOMER_NOT_FOUND,
+                            String.format("Customer %s not found", customerId)));
+                }))
+                .flatMap(customer -> {
+                    boolean isCurrencyValid = ACCEPTED_CURRENCIES.stream()
+                            .anyMatch(c -> c.equals(paymentRequest.getPayment().getCurrency()));
+                    if (!isCurrencyValid) {
+                        publish(PaymentEvent.Type.CURRENCY_REJECTED, customerId, paymentRequest);
+                        return Mono.error(new PaymentFailedException(PaymentEvent.Type.CURRENCY_REJECTED,
+                                String.format("Invalid currency: the currency %s is not supported",
+                                        paymentRequest.getPayment().getCurrency())));
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    // The deadline bounds the charge itself, not only the check before it as on the servlet path
+    private Mono<CardPaymentCharge> charge(PaymentRequest paymentRequest, ChargeOptions chargeOptions) {
+        Mono<CardPaymentCharge> charge = cardPaymentCharger.chargeCard(
+                paymentRequest.getPayment().getSource(),
+                paymentRequest.getPayment().getMoney(),
+                paymentRequest.getPayment().getDescription(),
+                chargeOptions
+        );
+        Deadline deadline = chargeOptions.getDeadline();
+        if (deadline == null) {
+            return charge;
+        }
+        if (deadline.isExpired()) {
+            return Mono.error(new ChargeDeadlineExceededException("Deadline reached before the card was charged"));
+        }
+        return charge.timeout(deadline.remaining()).onErrorMap(TimeoutException.class,
+                e -> new ChargeDeadlineExceededException("Deadline reached while charging the card", e));
+    }
+
+    private Mono<Void> savePayment(UUID customerId, PaymentRequest paymentRequest, CardPaymentCharge cardPaymentCharge) {
+        if (!cardPaymentCharge.isCardDebited()) {
+            publish(PaymentEvent.Type.CARD_NOT_DEBITED, customerId, paymentRequest);
+            return Mono.error(new PaymentFailedException(PaymentEvent.Type.CARD_NOT_DEBITED,
+                    String.format("Card not debited for customer %s", customerId)));
+        }
+
+        paymentRequest.getPayment().setCustomerId(customerId);
+
+        return paymentRepository.record(paymentRequest.getPayment())
+                .doOnSuccess(payment -> publish(PaymentEvent.Type.CHARGED, customerId, paymentRequest))
+                .then();
+    }
+
+    private Timer chargeTimer(Throwable error) {
+        if (error instanceof PaymentFailedException) {
+            return chargeTimers.get(((PaymentFailedException) error).getType());
+        }
+        return chargeTimer("error", error.getClass().getSimpleName());
+    }
+
+    private Timer chargeTimer(String outcome, String exception) {
+        return Timer.builder("payment.charge")
+                .description("Card payments by mode and outcome")
+                .tag("mode", REACTIVE)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+    private void publish(PaymentEvent.Type type, UUID customerId, PaymentRequest paymentRequest) {
+        eventPublisher.publishEvent(new PaymentEvent(
+                type,
+                System.currentTimeMillis(),
+                customerId,
+                paymentRequest.getPayment().getMoney()));
+    }
+}
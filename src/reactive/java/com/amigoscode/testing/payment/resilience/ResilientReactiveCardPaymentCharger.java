@@ -0,0 +1,61 @@
+package com.amigoscode.testing.payment.resilience;
+
+import com.amigoscode.testing.payment.CardPaymentCharge;
+import com.amigoscode.testing.payment.ChargeOptions;
+import com.amigoscode.testing.payment.Money;
+import com.amigoscode.testing.payment.ReactiveCardPaymentCharger;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// The permit is taken on subscribe and held until the charge completes. A cancelled charge, which
+// is what a deadline timeout looks like from here, counts as a failure.
+class ResilientReactiveCardPaymentCharger implements ReactiveCardPaymentCharger {
+
+    private final ReactiveCardPaymentCharger delegate;
+
+    private final ChargeCircuitBreaker circuitBreaker;
+
+    private final ChargeConcurrencyLimit concurrencyLimit;
+
+    ResilientReactiveCardPaymentCharger(ReactiveCardPaymentCharger delegate,
+                                        ChargeCircuitBreaker circuitBreaker,
+                                        ChargeConcurrencyLimit concurrencyLimit) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    @Override
+    public Mono<CardPaymentCharge> chargeCard(String cardSource, Money amount, String description,
+                                              ChargeOptions options) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquire()) {
+                return Mono.error(new ChargeRejectedException("Card processor circuit breaker is open"));
+            }
+            if (!concurrencyLimit.tryAcquire()) {
+                circuitBreaker.release();
+                return Mono.error(new ChargeRejectedException("Too many card charges in flight"));
+            }
+            long start = System.nanoTime();
+            AtomicBoolean released = new AtomicBoolean();
+            return Mono.defer(() -> delegate.chargeCard(cardSource, amount, description, options))
+                    .doOnSuccess(charge -> {
+                        if (released.compareAndSet(false, true)) {
+                            long durationNanos = System.nanoTime() - start;
+                            circuitBreaker.onSuccess(durationNanos);
+                            concurrencyLimit.onSuccess(durationNanos);
+                        }
+                    })
+                    .doOnError(e -> onError(released, start))
+                    .doOnCancel(() -> onError(released, start));
+        });
+    }
+
+    private void onError(AtomicBoolean released, long start) {
+        if (released.compareAndSet(false, true)) {
+            circuitBreaker.onError(System.nanoTime() - start);
+            concurrencyLimit.onDropped();
+        }
+    }
+}
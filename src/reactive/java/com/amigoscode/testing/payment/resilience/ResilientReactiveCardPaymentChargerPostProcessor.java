@@ -0,0 +1,33 @@
+package com.amigoscode.testing.payment.resilience;
+
+import com.amigoscode.testing.payment.ReactiveCardPaymentCharger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// The reactive counterpart of ResilientCardPaymentChargerPostProcessor, kept apart so the servlet
+// build does not need Reactor on its classpath
+@Component
+@ConditionalOnProperty(value = "payment.charge-resilience.enabled", havingValue = "true", matchIfMissing = true)
+public class ResilientReactiveCardPaymentChargerPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<ChargeCircuitBreaker> circuitBreaker;
+
+    private final ObjectProvider<ChargeConcurrencyLimit> concurrencyLimit;
+
+    public ResilientReactiveCardPaymentChargerPostProcessor(ObjectProvider<ChargeCircuitBreaker> circuitBreaker,
+                                                            ObjectProvider<ChargeConcurrencyLimit> concurrencyLimit) {
+        this.circuitBreaker = circuitBreaker;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof ReactiveCardPaymentCharger)) {
+            return bean;
+        }
+        return new ResilientReactiveCardPaymentCharger(
+                (ReactiveCardPaymentCharger) bean, circuitBreaker.getObject(), concurrencyLimit.getObject());
+    }
+}
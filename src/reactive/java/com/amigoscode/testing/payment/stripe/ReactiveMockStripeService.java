@@ -0,0 +1,46 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.amigoscode.testing.payment.CardPaymentCharge;
+import com.amigoscode.testing.payment.ChargeOptions;
+import com.amigoscode.testing.payment.Money;
+import com.amigoscode.testing.payment.ReactiveCardPaymentCharger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// MockStripeService for the reactive profile. The latency is a timer rather than a sleeping
+// thread, so charges in flight cost no threads, like calls to a non-blocking card network client.
+@Service
+@Profile("reactive")
+@ConditionalOnProperty(value= "stripe.enabled", havingValue = "false")
+public class ReactiveMockStripeService implements ReactiveCardPaymentCharger {
+
+    private final Duration latency;
+
+    private final double declineRate;
+
+    public ReactiveMockStripeService(@Value("${stripe.mock.latency:0ms}") Duration latency,
+                                     @Value("${stripe.mock.decline-rate:0}") double declineRate) {
+        if (latency.isNegative() || declineRate < 0 || declineRate > 1) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid mock charger latency %s or decline rate %s", latency, declineRate));
+        }
+        this.latency = latency;
+        this.declineRate = declineRate;
+    }
+
+    @Override
+    public Mono<CardPaymentCharge> chargeCard(String cardSource, Money amount, String description,
+                                              ChargeOptions options) {
+        Mono<CardPaymentCharge> charge = Mono.fromSupplier(() -> {
+            boolean declined = declineRate > 0 && ThreadLocalRandom.current().nextDouble() < declineRate;
+            return new CardPaymentCharge(!declined);
+        });
+        return latency.isZero() ? charge : Mono.delay(latency).then(charge);
+    }
+}
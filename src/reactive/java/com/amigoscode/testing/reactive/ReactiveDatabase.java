@@ -0,0 +1,62 @@
+package com.amigoscode.testing.reactive;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.spi.Row;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.connectionfactory.R2dbcTransactionManager;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+// R2DBC access to the same database JPA uses. Hibernate still creates the schema, so the reactive
+// repositories only read and write rows. Only H2 is supported, and r2dbc-h2 runs the embedded
+// engine on the subscribing thread, so queries are short blocking calls on the event loop.
+@Component
+@Profile("reactive")
+public class ReactiveDatabase {
+
+    private static final String H2_URL_PREFIX = "jdbc:h2:";
+
+    private final DatabaseClient databaseClient;
+
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactiveDatabase(DataSourceProperties dataSourceProperties) {
+        String url = dataSourceProperties.determineUrl();
+        if (url == null || !url.startsWith(H2_URL_PREFIX)) {
+            throw new IllegalStateException(String.format("The reactive profile needs an H2 database, not %s", url));
+        }
+        H2ConnectionConfiguration.Builder configuration = H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_URL_PREFIX.length()))
+                .username(dataSourceProperties.determineUsername());
+        if (dataSourceProperties.determinePassword() != null) {
+            configuration.password(dataSourceProperties.determinePassword());
+        }
+        H2ConnectionFactory connectionFactory = new H2ConnectionFactory(configuration.build());
+        this.databaseClient = DatabaseClient.create(connectionFactory);
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    public DatabaseClient getDatabaseClient() {
+        return databaseClient;
+    }
+
+    public TransactionalOperator getTransactionalOperator() {
+        return transactionalOperator;
+    }
+
+    // Hibernate maps UUID to binary(16). H2 converts a bound UUID to it, but reads back bytes.
+    public static UUID uuid(Row row, String column) {
+        byte[] bytes = row.get(column, byte[].class);
+        if (bytes == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
@@ -0,0 +1,12 @@
+package com.amigoscode.testing.reactive;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// Boot prefers Tomcat for a reactive application whenever Tomcat is on the classpath, which it is
+// for the servlet stack. The reactive profile serves requests from Netty's event loops instead.
+@Component
+@Profile("reactive")
+public class ReactiveWebServer extends NettyReactiveWebServerFactory {
+}
@@ -0,0 +1,17 @@
+package com.amigoscode.testing;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Phone numbers no other test in this JVM registers. Test classes on the same worker share a cached
+// context and its database, so tests that commit customers take their numbers from here.
+public final class TestPhoneNumbers {
+
+    private static final AtomicLong NEXT = new AtomicLong();
+
+    private TestPhoneNumbers() {
+    }
+
+    public static String next() {
+        return String.format("+447%09d", NEXT.incrementAndGet());
+    }
+}
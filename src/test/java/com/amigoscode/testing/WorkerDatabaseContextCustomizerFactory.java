@@ -0,0 +1,60 @@
+package com.amigoscode.testing;
+
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ContextConfigurationAttributes;
+import org.springframework.test.context.ContextCustomizer;
+import org.springframework.test.context.ContextCustomizerFactory;
+import org.springframework.test.context.MergedContextConfiguration;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Lets test classes run in parallel without sharing a database. The worker thread becomes part of
+// the context cache key, so classes on the same worker reuse each other's contexts while classes
+// running at the same time on other workers never do. Every context also gets an in-memory H2
+// database of its own, so cached contexts on one worker do not drop each other's schema. Classes
+// that reuse a context also see each other's committed rows, which is why tests that register
+// customers take their phone numbers from TestPhoneNumbers.
+public class WorkerDatabaseContextCustomizerFactory implements ContextCustomizerFactory {
+
+    private static final AtomicInteger WORKERS = new AtomicInteger();
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private static final ThreadLocal<Integer> WORKER = ThreadLocal.withInitial(WORKERS::incrementAndGet);
+
+    @Override
+    public ContextCustomizer createContextCustomizer(Class<?> testClass,
+                                                     List<ContextConfigurationAttributes> configAttributes) {
+        return new WorkerDatabaseContextCustomizer(WORKER.get());
+    }
+
+    private static class WorkerDatabaseContextCustomizer implements ContextCustomizer {
+
+        private final int worker;
+
+        WorkerDatabaseContextCustomizer(int worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public void customizeContext(ConfigurableApplicationContext context, MergedContextConfiguration mergedConfig) {
+            String database = "worker" + worker + "-db" + DATABASES.incrementAndGet();
+            TestPropertyValues.of("spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+                    .applyTo(context);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return worker == ((WorkerDatabaseContextCustomizer) o).worker;
+        }
+
+        @Override
+        public int hashCode() {
+            return worker;
+        }
+    }
+}
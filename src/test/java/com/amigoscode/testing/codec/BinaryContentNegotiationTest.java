@@ -0,0 +1,78 @@
+package com.amigoscode.testing.codec;
+
+import com.amigoscode.testing.TestPhoneNumbers;
+import com.amigoscode.testing.customer.Customer;
+import com.amigoscode.testing.customer.CustomerRegistrationRequest;
+import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Payment;
+import com.amigoscode.testing.payment.PaymentPage;
+import com.amigoscode.testing.payment.PaymentRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BinaryContentNegotiationTest {
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
+    private final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void itShouldAcceptBinaryRequestsAndNegotiateBinaryResponses() throws Exception {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        Customer customer = new Customer(customerId, "Nia", TestPhoneNumbers.next());
+        Payment payment = new Payment(null, customerId, new BigDecimal("1000.00"), Currency.GPD, "0x0x0x0", "Shoes");
+
+        // When
+        mockMvc.perform(post("/api/v1/customer-registration")
+                .contentType(SMILE)
+                .content(smileMapper.writeValueAsBytes(new CustomerRegistrationRequest(customer))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/payment")
+                .contentType(SMILE)
+                .content(smileMapper.writeValueAsBytes(new PaymentRequest(payment))))
+                .andExpect(status().isOk());
+
+        // Then
+        MvcResult result = mockMvc.perform(get("/api/v1/payment")
+                .param("customerId", customerId.toString())
+                .accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn();
+        PaymentPage page = smileMapper.readValue(result.getResponse().getContentAsByteArray(), PaymentPage.class);
+        assertThat(page.getPayments()).hasSize(1);
+        assertThat(page.getPayments().get(0)).isEqualToIgnoringGivenFields(payment, "paymentId");
+    }
+
+    @Test
+    void itShouldKeepJsonAsTheDefault() throws Exception {
+        // When
+        // Then
+        mockMvc.perform(get("/api/v1/payment").param("customerId", UUID.randomUUID().toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("{\"payments\":[],\"nextAfter\":null}"));
+    }
+}
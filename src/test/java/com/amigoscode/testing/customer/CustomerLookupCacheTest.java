@@ -0,0 +1,226 @@
+package com.amigoscode.testing.customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+class CustomerLookupCacheTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    private MutableClock clock;
+
+    private CustomerLookupCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        clock = new MutableClock();
+        underTest = new CustomerLookupCache(
+                customerRepository, Duration.ofMinutes(5), Duration.ofSeconds(5), 2, clock);
+    }
+
+    @Test
+    void itShouldQueryRepositoryOnceForRepeatedLookups() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        Customer customer = new Customer(customerId, "Maryam", "+447000000000");
+        given(customerRepository.findById(customerId)).willReturn(Optional.of(customer));
+
+        // When
+        underTest.findById(customerId);
+        Optional<Customer> result = underTest.findById(customerId);
+
+        // Then
+        assertThat(result).contains(customer);
+        then(customerRepository).should(times(1)).findById(customerId);
+    }
+
+    @Test
+    void itShouldShareOneQueryBetweenConcurrentMisses() throws Exception {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        Customer customer = new Customer(customerId, "Maryam", "+447000000000");
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        given(customerRepository.findById(customerId)).willAnswer(invocation -> {
+            queryStarted.countDown();
+            releaseQuery.await();
+            return Optional.of(customer);
+        });
+
+        // When
+        CompletableFuture<Optional<Customer>> first = CompletableFuture.supplyAsync(() -> underTest.findById(customerId));
+        queryStarted.await(5, TimeUnit.SECONDS);
+        CompletableFuture<Optional<Customer>> second = CompletableFuture.supplyAsync(() -> underTest.findById(customerId));
+        releaseQuery.countDown();
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS)).contains(customer);
+        assertThat(second.get(5, TimeUnit.SECONDS)).contains(customer);
+        then(customerRepository).should(times(1)).findById(customerId);
+    }
+
+    @Test
+    void itShouldForgetMissingCustomerAfterNegativeTtl() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        Customer customer = new Customer(customerId, "Maryam", "+447000000000");
+        given(customerRepository.findById(customerId))
+                .willReturn(Optional.empty())
+                .willReturn(Optional.of(customer));
+
+        // When
+        Optional<Customer> missing = underTest.findById(customerId);
+        Optional<Customer> stillMissing = underTest.findById(customerId);
+        clock.advance(Duration.ofSeconds(5));
+        Optional<Customer> found = underTest.findById(customerId);
+
+        // Then
+        assertThat(missing).isEmpty();
+        assertThat(stillMissing).isEmpty();
+        assertThat(found).contains(customer);
+        then(customerRepository).should(times(2)).findById(customerId);
+    }
+
+    @Test
+    void itShouldReloadCustomerAfterInvalidation() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        given(customerRepository.findById(customerId)).willReturn(Optional.empty());
+        underTest.findById(customerId);
+
+        // When
+        underTest.invalidate(customerId);
+        underTest.findById(customerId);
+
+        // Then
+        then(customerRepository).should(times(2)).findById(customerId);
+    }
+
+    @Test
+    void itShouldNotCacheFailedLookups() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        given(customerRepository.findById(customerId))
+                .willThrow(new IllegalStateException("database down"))
+                .willReturn(Optional.empty());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.findById(customerId))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("database down");
+        assertThat(underTest.findById(customerId)).isEmpty();
+    }
+
+    @Test
+    void itShouldFailWaitersOfAFailedLoadWithoutBlockingOtherLookups() throws Exception {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        UUID otherCustomerId = UUID.randomUUID();
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        given(customerRepository.findById(customerId)).willAnswer(invocation -> {
+            queryStarted.countDown();
+            releaseQuery.await();
+            throw new IllegalStateException("Database down");
+        });
+        given(customerRepository.findById(otherCustomerId)).willReturn(Optional.empty());
+
+        // When
+        CompletableFuture<Optional<Customer>> loader = CompletableFuture.supplyAsync(() -> underTest.findById(customerId));
+        queryStarted.await(5, TimeUnit.SECONDS);
+        CompletableFuture<Optional<Customer>> waiter = CompletableFuture.supplyAsync(() -> underTest.findById(customerId));
+        Thread.sleep(100);
+        Optional<Customer> other = CompletableFuture.supplyAsync(() -> underTest.findById(otherCustomerId))
+                .get(5, TimeUnit.SECONDS);
+        releaseQuery.countDown();
+
+        // Then
+        assertThat(other).isEmpty();
+        assertThatThrownBy(() -> loader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(underTest.size()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldEvictLeastRecentlyUsedCustomer() {
+        // Given
+        given(customerRepository.findById(any())).willReturn(Optional.empty());
+
+        // When
+        underTest.findById(UUID.randomUUID());
+        underTest.findById(UUID.randomUUID());
+        underTest.findById(UUID.randomUUID());
+
+        // Then
+        assertThat(underTest.size()).isEqualTo(2);
+    }
+
+    @Test
+    void itShouldReportHitsMissesAndLoads() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        underTest.bindTo(registry);
+        UUID customerId = UUID.randomUUID();
+        given(customerRepository.findById(customerId)).willReturn(Optional.empty());
+
+        // When
+        underTest.findById(customerId);
+        underTest.findById(customerId);
+        underTest.findById(customerId);
+
+        // Then
+        assertThat(registry.get("customer.lookup.cache.gets").tag("result", "hit").functionCounter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("customer.lookup.cache.gets").tag("result", "miss").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("customer.lookup.cache.loads").functionTimer().count())
+                .isEqualTo(1);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.EPOCH;
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,21 +1,28 @@
 package com.amigoscode.testing.customer;
 
 import com.amigoscode.testing.utils.PhoneNumberValidator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
@@ -27,15 +34,27 @@ class CustomerRegistrationServiceTest {
     @Mock
     private PhoneNumberValidator phoneNumberValidator;
 
+    @Mock
+    private PhoneNumberIndex phoneNumberIndex;
+
+    @Mock
+    private CustomerLookupCache customerLookupCache;
+
     @Captor
     private ArgumentCaptor<Customer> customerArgumentCaptor;
 
+    @Captor
+    private ArgumentCaptor<List<Customer>> customerListArgumentCaptor;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private CustomerRegistrationService underTest;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
-        underTest = new CustomerRegistrationService(customerRepository, phoneNumberValidator);
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CustomerRegistrationService(customerRepository, phoneNumberValidator, new RandomCustomerIdGenerator(), customerLookupCache, Optional.empty(), meterRegistry);
     }
 
     @Test
@@ -61,6 +80,7 @@ class CustomerRegistrationServiceTest {
         assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
         assertThat(capturedCustomer.getPhoneNumber()).isEqualTo(customer.getPhoneNumber());
         assertThat(capturedCustomer.getId()).isNotNull();
+        then(customerLookupCache).should().invalidate(capturedCustomer.getId());
     }
 
     @Test
@@ -152,4 +172,224 @@ class CustomerRegistrationServiceTest {
                 .hasMessageContaining(String.format("The phone number [%s] is already taken", phoneNumber))
                 .isInstanceOf(IllegalArgumentException.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    void itShouldTimeRegistrationsByOutcome() {
+        // Given
+        final String phoneNumber = "000558";
+        given(customerRepository.findCustomerByPhoneNumber(phoneNumber))
+                .willReturn(Optional.of(new Customer(UUID.randomUUID(), "Alex", phoneNumber)));
+        given(phoneNumberValidator.test(phoneNumber)).willReturn(true);
+
+        // When
+        underTest.registerNewCustomer(new CustomerRegistrationRequest(new Customer(null, "Alex", phoneNumber)));
+        assertThatThrownBy(() -> underTest.registerNewCustomer(
+                new CustomerRegistrationRequest(new Customer(null, "John", phoneNumber))));
+        assertThatThrownBy(() -> underTest.registerNewCustomer(
+                new CustomerRegistrationRequest(new Customer(null, "John", "not a phone number"))));
+
+        // Then
+        assertThat(meterRegistry.get("customer.registration").tag("outcome", "already_registered").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("customer.registration").tag("outcome", "phone_number_taken").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("customer.registration").tag("outcome", "invalid_phone_number").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void itShouldRegisterNewCustomersInBulk() {
+        // Given
+        final Customer alex = new Customer(null, "Alex", "+447000000001");
+        final Customer maria = new Customer(null, "Maria", "+447000000002");
+        final CustomerBulkRegistrationRequest request = new CustomerBulkRegistrationRequest(List.of(alex, maria));
+
+        given(phoneNumberValidator.test(any())).willReturn(true);
+        given(customerRepository.findCustomersByPhoneNumbers(anyCollection())).willReturn(List.of());
+
+        // When
+        List<CustomerRegistrationResult> results = underTest.registerNewCustomers(request);
+
+        // Then
+        assertThat(results).containsExactly(
+                new CustomerRegistrationResult(alex.getPhoneNumber(), CustomerRegistrationResult.Status.REGISTERED),
+                new CustomerRegistrationResult(maria.getPhoneNumber(), CustomerRegistrationResult.Status.REGISTERED)
+        );
+        then(customerRepository).should().findCustomersByPhoneNumbers(anyCollection());
+        then(customerRepository).should().insertAll(customerListArgumentCaptor.capture());
+        assertThat(customerListArgumentCaptor.getValue())
+                .containsExactly(alex, maria)
+                .allSatisfy(c -> assertThat(c.getId()).isNotNull());
+    }
+
+    @Test
+    void itShouldApplySingleRegistrationRulesInBulk() {
+        // Given
+        final Customer existing = new Customer(UUID.randomUUID(), "Alex", "+447000000001");
+        final Customer sameCustomer = new Customer(null, "Alex", "+447000000001");
+        final Customer phoneTaken = new Customer(null, "John", "+447000000001");
+        final Customer invalidPhone = new Customer(null, "Maria", "000558");
+        final Customer newCustomer = new Customer(null, "Ana", "+447000000002");
+        final Customer duplicateInBatch = new Customer(null, "Bob", "+447000000002");
+        final CustomerBulkRegistrationRequest request = new CustomerBulkRegistrationRequest(
+                List.of(sameCustomer, phoneTaken, invalidPhone, newCustomer, duplicateInBatch)
+        );
+
+        given(phoneNumberValidator.test(any())).willReturn(true);
+        given(phoneNumberValidator.test(invalidPhone.getPhoneNumber())).willReturn(false);
+        given(customerRepository.findCustomersByPhoneNumbers(anyCollection())).willReturn(List.of(existing));
+
+        // When
+        List<CustomerRegistrationResult> results = underTest.registerNewCustomers(request);
+
+        // Then
+        assertThat(results).extracting(CustomerRegistrationResult::getStatus).containsExactly(
+                CustomerRegistrationResult.Status.ALREADY_REGISTERED,
+                CustomerRegistrationResult.Status.PHONE_NUMBER_TAKEN,
+                CustomerRegistrationResult.Status.INVALID_PHONE_NUMBER,
+                CustomerRegistrationResult.Status.REGISTERED,
+                CustomerRegistrationResult.Status.PHONE_NUMBER_TAKEN
+        );
+        then(customerRepository).should().insertAll(customerListArgumentCaptor.capture());
+        assertThat(customerListArgumentCaptor.getValue()).containsExactly(newCustomer);
+    }
+
+    @Test
+    void itShouldRegisterChunkOneByOneWhenAPhoneNumberIsRegisteredConcurrently() {
+        // Given
+        final Customer alex = new Customer(null, "Alex", "+447000000001");
+        final Customer maria = new Customer(null, "Maria", "+447000000002");
+        final Customer concurrentMaria = new Customer(UUID.randomUUID(), "Maria", "+447000000002");
+        final CustomerBulkRegistrationRequest request = new CustomerBulkRegistrationRequest(List.of(alex, maria));
+
+        given(phoneNumberValidator.test(any())).willReturn(true);
+        given(customerRepository.findCustomersByPhoneNumbers(anyCollection())).willReturn(List.of());
+        willThrow(new DuplicateKeyException("phone_number")).given(customerRepository).insertAll(any());
+        given(customerRepository.save(maria)).willThrow(new DuplicateKeyException("phone_number"));
+        given(customerRepository.findCustomerByPhoneNumber(maria.getPhoneNumber())).willReturn(Optional.of(concurrentMaria));
+
+        // When
+        List<CustomerRegistrationResult> results = underTest.registerNewCustomers(request);
+
+        // Then
+        assertThat(results).containsExactly(
+                new CustomerRegistrationResult(alex.getPhoneNumber(), CustomerRegistrationResult.Status.REGISTERED),
+                new CustomerRegistrationResult(maria.getPhoneNumber(), CustomerRegistrationResult.Status.ALREADY_REGISTERED)
+        );
+        then(customerRepository).should().save(alex);
+        then(customerLookupCache).should().invalidate(alex.getId());
+    }
+
+    @Test
+    void itShouldLookUpPhoneNumbersOncePerChunk() {
+        // Given
+        final List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < CustomerRegistrationService.BULK_CHUNK_SIZE + 1; i++) {
+            customers.add(new Customer(null, "Customer " + i, String.format("+44%010d", i)));
+        }
+        final CustomerBulkRegistrationRequest request = new CustomerBulkRegistrationRequest(customers);
+
+        given(phoneNumberValidator.test(any())).willReturn(true);
+        given(customerRepository.findCustomersByPhoneNumbers(anyCollection())).willReturn(List.of());
+
+        // When
+        underTest.registerNewCustomers(request);
+
+        // Then
+        then(customerRepository).should(Mockito.times(2)).findCustomersByPhoneNumbers(anyCollection());
+        then(customerRepository).should(Mockito.times(2)).insertAll(any());
+        then(customerRepository).should(never()).findCustomerByPhoneNumber(any());
+        then(customerRepository).should(never()).save(any());
+    }
+
+    @Test
+    void itShouldNotQueryPhoneNumberWhenIndexHasNoCustomer() {
+        // Given
+        final String phoneNumber = "+447000000000";
+        final Customer customer = new Customer(null, "Alex", phoneNumber);
+        underTest = new CustomerRegistrationService(customerRepository, phoneNumberValidator, new RandomCustomerIdGenerator(), customerLookupCache, Optional.of(phoneNumberIndex), new SimpleMeterRegistry());
+
+        given(phoneNumberValidator.test(phoneNumber)).willReturn(true);
+        given(phoneNumberIndex.covers(phoneNumber)).willReturn(true);
+        given(phoneNumberIndex.get(phoneNumber)).willReturn(null);
+
+        // When
+        underTest.registerNewCustomer(new CustomerRegistrationRequest(customer));
+
+        // Then
+        then(customerRepository).should(never()).findCustomerByPhoneNumber(any());
+        then(customerRepository).should().save(customer);
+        then(phoneNumberIndex).should().put(phoneNumber, customer.getId());
+    }
+
+    @Test
+    void itShouldRecoverBulkPhoneNumbersRegisteredThroughAnotherInstance() {
+        // Given
+        final Customer alex = new Customer(null, "Alex", "+447000000001");
+        final Customer maria = new Customer(null, "Maria", "+447000000002");
+        final Customer registeredElsewhere = new Customer(UUID.randomUUID(), "Maria", "+447000000002");
+        final CustomerBulkRegistrationRequest request = new CustomerBulkRegistrationRequest(List.of(alex, maria));
+        underTest = new CustomerRegistrationService(customerRepository, phoneNumberValidator, new RandomCustomerIdGenerator(), customerLookupCache, Optional.of(phoneNumberIndex), new SimpleMeterRegistry());
+
+        given(phoneNumberValidator.test(any())).willReturn(true);
+        given(phoneNumberIndex.covers(any())).willReturn(true);
+        given(phoneNumberIndex.get(any())).willReturn(null);
+        willThrow(new DuplicateKeyException("phone_number")).willDoNothing().given(customerRepository).insertAll(any());
+        given(customerRepository.findCustomersByPhoneNumbers(anyCollection())).willReturn(List.of(registeredElsewhere));
+
+        // When
+        List<CustomerRegistrationResult> results = underTest.registerNewCustomers(request);
+
+        // Then
+        assertThat(results).containsExactly(
+                new CustomerRegistrationResult(alex.getPhoneNumber(), CustomerRegistrationResult.Status.REGISTERED),
+                new CustomerRegistrationResult(maria.getPhoneNumber(), CustomerRegistrationResult.Status.ALREADY_REGISTERED)
+        );
+        then(customerRepository).should(Mockito.times(2)).insertAll(customerListArgumentCaptor.capture());
+        assertThat(customerListArgumentCaptor.getValue()).containsExactly(alex);
+        then(customerRepository).should(never()).save(any());
+        then(phoneNumberIndex).should().put(registeredElsewhere.getPhoneNumber(), registeredElsewhere.getId());
+        then(phoneNumberIndex).should().put(alex.getPhoneNumber(), alex.getId());
+    }
+
+    @Test
+    void itShouldLoadIndexedCustomerById() {
+        // Given
+        final String phoneNumber = "+447000000000";
+        final Customer existing = new Customer(UUID.randomUUID(), "Alex", phoneNumber);
+        underTest = new CustomerRegistrationService(customerRepository, phoneNumberValidator, new RandomCustomerIdGenerator(), customerLookupCache, Optional.of(phoneNumberIndex), new SimpleMeterRegistry());
+
+        given(phoneNumberValidator.test(phoneNumber)).willReturn(true);
+        given(phoneNumberIndex.covers(phoneNumber)).willReturn(true);
+        given(phoneNumberIndex.get(phoneNumber)).willReturn(existing.getId());
+        given(customerRepository.findById(existing.getId())).willReturn(Optional.of(existing));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.registerNewCustomer(
+                new CustomerRegistrationRequest(new Customer(null, "John", phoneNumber))))
+                .hasMessageContaining(String.format("The phone number [%s] is already taken", phoneNumber))
+                .isInstanceOf(IllegalArgumentException.class);
+        then(customerRepository).should(never()).findCustomerByPhoneNumber(any());
+        then(customerRepository).should(never()).save(any());
+    }
+
+    @Test
+    void itShouldFallBackToDatabaseWhenIndexDoesNotCoverPhoneNumber() {
+        // Given
+        final String phoneNumber = "+447000000000";
+        final Customer customer = new Customer(UUID.randomUUID(), "Alex", phoneNumber);
+        underTest = new CustomerRegistrationService(customerRepository, phoneNumberValidator, new RandomCustomerIdGenerator(), customerLookupCache, Optional.of(phoneNumberIndex), new SimpleMeterRegistry());
+
+        given(phoneNumberValidator.test(phoneNumber)).willReturn(true);
+        given(phoneNumberIndex.covers(phoneNumber)).willReturn(false);
+        given(customerRepository.findCustomerByPhoneNumber(phoneNumber)).willReturn(Optional.of(customer));
+
+        // When
+        underTest.registerNewCustomer(new CustomerRegistrationRequest(customer));
+
+        // Then
+        then(customerRepository).should().findCustomerByPhoneNumber(phoneNumber);
+        then(customerRepository).should(never()).save(any());
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.dao.DataIntegrityViolationException;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -96,4 +97,37 @@ class CustomerRepositoryTest {
                 .isInstanceOf(DataIntegrityViolationException.class);
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void itShouldFindCustomersByPhoneNumbers() {
+        // Given
+        Customer alex = new Customer(UUID.randomUUID(), "Alex", "0001");
+        Customer maria = new Customer(UUID.randomUUID(), "Maria", "0002");
+        underTest.save(alex);
+        underTest.save(maria);
+
+        // When
+        List<Customer> customers = underTest.findCustomersByPhoneNumbers(List.of("0001", "0002", "0003"));
+
+        // Then
+        assertThat(customers)
+                .usingElementComparatorOnFields("id", "name", "phoneNumber")
+                .containsExactlyInAnyOrder(alex, maria);
+    }
+
+    @Test
+    void itShouldInsertAllCustomers() {
+        // Given
+        Customer alex = new Customer(UUID.randomUUID(), "Alex", "0001");
+        Customer maria = new Customer(UUID.randomUUID(), "Maria", "0002");
+
+        // When
+        underTest.insertAll(List.of(alex, maria));
+
+        // Then
+        assertThat(underTest.findCustomerByPhoneNumber("0001"))
+                .hasValueSatisfying(c -> assertThat(c).isEqualToComparingFieldByField(alex));
+        assertThat(underTest.findCustomerByPhoneNumber("0002"))
+                .hasValueSatisfying(c -> assertThat(c).isEqualToComparingFieldByField(maria));
+    }
+}
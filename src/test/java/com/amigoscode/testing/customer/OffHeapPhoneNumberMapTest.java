@@ -0,0 +1,76 @@
+package com.amigoscode.testing.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapPhoneNumberMapTest {
+
+    private OffHeapPhoneNumberMap underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new OffHeapPhoneNumberMap(4);
+    }
+
+    @Test
+    void itShouldKeepLeadingZerosAndPlusSignSignificant() {
+        // Given
+        // When
+        // Then
+        assertThat(OffHeapPhoneNumberMap.encode("0001"))
+                .isNotEqualTo(OffHeapPhoneNumberMap.encode("001"))
+                .isNotEqualTo(OffHeapPhoneNumberMap.encode("+0001"))
+                .isPositive();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "+", "+44 7000", "12345678901234567890", "abc"})
+    void itShouldNotEncodeUnsupportedPhoneNumbers(String phoneNumber) {
+        // When
+        long key = OffHeapPhoneNumberMap.encode(phoneNumber);
+
+        // Then
+        assertThat(key).isEqualTo(OffHeapPhoneNumberMap.NOT_ENCODABLE);
+    }
+
+    @Test
+    void itShouldFindCustomerIdsAfterGrowing() {
+        // Given
+        Map<String, UUID> customers = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            customers.put(String.format("+44%010d", i), UUID.randomUUID());
+        }
+
+        // When
+        customers.forEach((phoneNumber, id) -> underTest.put(OffHeapPhoneNumberMap.encode(phoneNumber), id));
+
+        // Then
+        assertThat(underTest.size()).isEqualTo(customers.size());
+        customers.forEach((phoneNumber, id) ->
+                assertThat(underTest.get(OffHeapPhoneNumberMap.encode(phoneNumber))).isEqualTo(id));
+        assertThat(underTest.get(OffHeapPhoneNumberMap.encode("+449999999999"))).isNull();
+    }
+
+    @Test
+    void itShouldReplaceCustomerIdForSamePhoneNumber() {
+        // Given
+        long key = OffHeapPhoneNumberMap.encode("+447000000000");
+        UUID newId = UUID.randomUUID();
+        underTest.put(key, UUID.randomUUID());
+
+        // When
+        underTest.put(key, newId);
+
+        // Then
+        assertThat(underTest.size()).isEqualTo(1);
+        assertThat(underTest.get(key)).isEqualTo(newId);
+    }
+}
@@ -0,0 +1,72 @@
+package com.amigoscode.testing.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedCustomerIdGeneratorTest {
+
+    private static final Instant NOW = Instant.parse("2020-05-01T10:15:30.123Z");
+
+    private final TimeOrderedCustomerIdGenerator underTest =
+            new TimeOrderedCustomerIdGenerator(Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void itShouldGenerateVersion7Ids() {
+        // When
+        UUID id = underTest.generate();
+
+        // Then
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(NOW.toEpochMilli());
+    }
+
+    @Test
+    void itShouldGenerateIncreasingIdsWithinTheSameMillisecond() {
+        // Given
+        List<UUID> ids = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(underTest.generate());
+        }
+
+        // Then
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(ids).allSatisfy(id -> assertThat(id.version()).isEqualTo(7));
+    }
+
+    @Test
+    void itShouldGenerateUniqueIdsAcrossThreads() throws InterruptedException {
+        // Given
+        int threads = 8;
+        int idsPerThread = 5_000;
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(threads);
+
+        // When
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < idsPerThread; i++) {
+                    ids.add(underTest.generate());
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        // Then
+        assertThat(ids).hasSize(threads * idsPerThread);
+    }
+}
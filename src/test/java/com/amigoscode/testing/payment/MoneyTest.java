@@ -0,0 +1,50 @@
+package com.amigoscode.testing.payment;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    @Test
+    void itShouldConvertDecimalAmountToMinorUnits() {
+        // Given
+        BigDecimal amount = new BigDecimal("10.5");
+
+        // When
+        Money money = Money.of(amount, Currency.USD);
+
+        // Then
+        assertThat(money.getMinorUnits()).isEqualTo(1050L);
+        assertThat(money.toBigDecimal()).isEqualTo(new BigDecimal("10.50"));
+        assertThat(money).isEqualTo(Money.ofMinor(1050, Currency.USD));
+    }
+
+    @Test
+    void itShouldRejectAmountsFinerThanMinorUnits() {
+        // Given
+        BigDecimal amount = new BigDecimal("10.005");
+
+        // When
+        // Then
+        assertThatThrownBy(() -> Money.of(amount, Currency.USD))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("10.005");
+    }
+
+    @Test
+    void itShouldNotAddDifferentCurrencies() {
+        // Given
+        Money dollars = Money.ofMinor(100, Currency.USD);
+        Money euros = Money.ofMinor(100, Currency.EUR);
+
+        // When
+        // Then
+        assertThat(dollars.plus(dollars)).isEqualTo(Money.ofMinor(200, Currency.USD));
+        assertThatThrownBy(() -> dollars.plus(euros))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
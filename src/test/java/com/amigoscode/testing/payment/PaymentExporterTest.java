@@ -0,0 +1,58 @@
+package com.amigoscode.testing.payment;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(
+        properties = {
+                "spring.jpa.properties.javax.persistence.validation.mode=none"
+        }
+)
+@Import(PaymentExporter.class)
+class PaymentExporterTest {
+
+    @Autowired
+    private PaymentExporter underTest;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void itShouldExportNullColumnsAsEmptyCsvFields() throws Exception {
+        // Given
+        jdbcTemplate.update("insert into payment (payment_id, customer_id, amount_minor, currency, source, description) " +
+                "values (1, null, null, null, null, null)");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        underTest.export(PaymentExporter.Format.CSV, 1L, 1L, output);
+
+        // Then
+        assertThat(output.toString(StandardCharsets.UTF_8))
+                .isEqualTo(PaymentExporter.CSV_HEADER + "\n1,,,,,,\n");
+    }
+
+    @Test
+    void itShouldExportNullColumnsAsJsonNullsAndKeepMinorUnitsWithoutCurrency() throws Exception {
+        // Given
+        jdbcTemplate.update("insert into payment (payment_id, customer_id, amount_minor, currency, source, description) " +
+                "values (1, null, 500, null, null, null)");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        underTest.export(PaymentExporter.Format.NDJSON, 1L, 1L, output);
+
+        // Then
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"paymentId\":1,\"customerId\":null,\"amount\":null,\"amountMinor\":500,\"currency\":null,"
+                        + "\"source\":null,\"description\":null}\n");
+    }
+}
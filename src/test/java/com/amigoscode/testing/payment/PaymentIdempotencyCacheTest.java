@@ -0,0 +1,187 @@
+package com.amigoscode.testing.payment;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentIdempotencyCacheTest {
+
+    private static final String FINGERPRINT = "fingerprint";
+
+    private MutableClock clock;
+
+    private PaymentIdempotencyCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        underTest = new PaymentIdempotencyCache(Duration.ofMinutes(1), 2, clock);
+    }
+
+    @Test
+    void itShouldExecutePaymentOnceForSameKey() {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+
+        // When
+        underTest.execute("key", FINGERPRINT, executions::incrementAndGet);
+        underTest.execute("key", FINGERPRINT, executions::incrementAndGet);
+
+        // Then
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void itShouldMakeConcurrentDuplicatesWaitForFirstExecution() {
+        // Given
+        CompletableFuture<Void> firstExecution = new CompletableFuture<>();
+        AtomicInteger executions = new AtomicInteger();
+
+        // When
+        CompletableFuture<Void> first = underTest.executeAsync("key", FINGERPRINT, () -> {
+            executions.incrementAndGet();
+            return firstExecution;
+        });
+        CompletableFuture<Void> duplicate = underTest.executeAsync("key", FINGERPRINT, () -> {
+            executions.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        // Then
+        assertThat(duplicate).isNotDone();
+        firstExecution.complete(null);
+        assertThat(first).isCompleted();
+        assertThat(duplicate).isCompleted();
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void itShouldForgetFailedPayments() {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+
+        // When
+        assertThatThrownBy(() -> underTest.execute("key", FINGERPRINT, () -> {
+            executions.incrementAndGet();
+            throw new IllegalStateException("Card not debited");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("Card not debited");
+        underTest.execute("key", FINGERPRINT, executions::incrementAndGet);
+
+        // Then
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void itShouldExecuteAgainAfterResultExpires() {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        underTest.execute("key", FINGERPRINT, executions::incrementAndGet);
+
+        // When
+        clock.advance(Duration.ofMinutes(1));
+        underTest.execute("key", FINGERPRINT, executions::incrementAndGet);
+
+        // Then
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void itShouldPurgeExpiredEntriesWhenFull() {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        underTest.execute("first", FINGERPRINT, executions::incrementAndGet);
+        clock.advance(Duration.ofSeconds(30));
+        underTest.execute("second", FINGERPRINT, executions::incrementAndGet);
+
+        // When
+        clock.advance(Duration.ofSeconds(30));
+        underTest.execute("third", FINGERPRINT, executions::incrementAndGet);
+        underTest.execute("second", FINGERPRINT, executions::incrementAndGet);
+
+        // Then
+        assertThat(underTest.size()).isEqualTo(2);
+        assertThat(executions).hasValue(3);
+    }
+
+    @Test
+    void itShouldRejectNewKeysRatherThanForgetLiveOnes() {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        CompletableFuture<Void> inFlight = new CompletableFuture<>();
+        underTest.executeAsync("in-flight", FINGERPRINT, () -> inFlight);
+        underTest.execute("done", FINGERPRINT, executions::incrementAndGet);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.execute("new", FINGERPRINT, executions::incrementAndGet))
+                .isInstanceOf(IdempotencyCacheFullException.class);
+        assertThat(underTest.executeAsync("in-flight", FINGERPRINT, () -> CompletableFuture.completedFuture(null)))
+                .isSameAs(underTest.executeAsync("in-flight", FINGERPRINT, () -> CompletableFuture.completedFuture(null)))
+                .isNotDone();
+        underTest.execute("done", FINGERPRINT, executions::incrementAndGet);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void itShouldRejectKeyReusedForDifferentPayment() {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        underTest.execute("key", FINGERPRINT, executions::incrementAndGet);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.execute("key", "other", executions::incrementAndGet))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void itShouldEvictExpiredEntriesBeforeTheCacheIsFull() {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+        underTest.execute("first", FINGERPRINT, executions::incrementAndGet);
+        clock.advance(Duration.ofSeconds(30));
+        underTest.execute("second", FINGERPRINT, executions::incrementAndGet);
+
+        // When
+        clock.advance(Duration.ofSeconds(30));
+        underTest.execute("second", FINGERPRINT, executions::incrementAndGet);
+
+        // Then
+        assertThat(underTest.size()).isEqualTo(1);
+        assertThat(executions).hasValue(2);
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.EPOCH;
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package com.amigoscode.testing.payment;
 
+import com.amigoscode.testing.TestPhoneNumbers;
 import com.amigoscode.testing.customer.Customer;
 import com.amigoscode.testing.customer.CustomerRegistrationRequest;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
 import java.math.BigDecimal;
@@ -18,11 +24,16 @@ import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class PaymentIntegrationTest {
 
     @Autowired
@@ -32,10 +43,11 @@ public class PaymentIntegrationTest {
     private MockMvc mockMvc;
 
     @Test
+    @Order(1)
     void itShouldCreatePaymentSuccessfully() throws Exception {
         // Given
         final UUID customerId = UUID.randomUUID();
-        final Customer customer = new Customer(customerId, "James", "+447000000000");
+        final Customer customer = new Customer(customerId, "James", TestPhoneNumbers.next());
         final CustomerRegistrationRequest customerRegistrationRequest = new CustomerRegistrationRequest(customer);
 
         // When
@@ -71,6 +83,251 @@ public class PaymentIntegrationTest {
                 });
     }
 
+    @Test
+    @Order(2)
+    void itShouldCreatePaymentAsynchronously() throws Exception {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        final Customer customer = new Customer(customerId, "Maria", TestPhoneNumbers.next());
+        mockMvc.perform(post("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(Objects.requireNonNull(objectToJson(new CustomerRegistrationRequest(customer))))
+        ).andExpect(status().isOk());
+
+        final Payment payment = new Payment(
+                null,
+                customerId,
+                new BigDecimal("25.00"),
+                Currency.USD,
+                "0x0x0x1",
+                "Socks"
+        );
+
+        // When
+        final MvcResult mvcResult = mockMvc.perform(post("/api/v1/payment/async")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(Objects.requireNonNull(objectToJson(new PaymentRequest(payment))))
+        ).andExpect(request().asyncStarted()).andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(mvcResult)).andExpect(status().isOk());
+        assertThat(paymentRepository.findAll())
+                .filteredOn(p -> customerId.equals(p.getCustomerId()))
+                .hasSize(1)
+                .allSatisfy(p -> assertThat(p).isEqualToIgnoringGivenFields(payment, "paymentId"));
+    }
+
+    @Test
+    @Order(3)
+    void itShouldChargeOnceForRepeatedIdempotencyKeyAndRejectItForAnotherPayment() throws Exception {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        final Customer customer = new Customer(customerId, "Ana", TestPhoneNumbers.next());
+        mockMvc.perform(post("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(Objects.requireNonNull(objectToJson(new CustomerRegistrationRequest(customer))))
+        ).andExpect(status().isOk());
+
+        final PaymentRequest paymentRequest = new PaymentRequest(new Payment(
+                null,
+                customerId,
+                new BigDecimal("50.00"),
+                Currency.USD,
+                "0x0x0x2",
+                "Hat"
+        ));
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/v1/payment")
+                    .header(PaymentController.IDEMPOTENCY_KEY_HEADER, "order-42")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(Objects.requireNonNull(objectToJson(paymentRequest)))
+            ).andExpect(status().isOk());
+        }
+        final PaymentRequest otherPaymentRequest = new PaymentRequest(new Payment(
+                null, customerId, new BigDecimal("60.00"), Currency.USD, "0x0x0x2", "Hat"));
+        mockMvc.perform(post("/api/v1/payment")
+                .header(PaymentController.IDEMPOTENCY_KEY_HEADER, "order-42")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(Objects.requireNonNull(objectToJson(otherPaymentRequest)))
+        ).andExpect(status().isUnprocessableEntity());
+
+        // Then
+        assertThat(paymentRepository.findAll())
+                .filteredOn(p -> customerId.equals(p.getCustomerId()))
+                .hasSize(1);
+    }
+
+    @Test
+    @Order(4)
+    void itShouldPageThroughCustomerPayments() throws Exception {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        final Customer customer = new Customer(customerId, "Leo", TestPhoneNumbers.next());
+        mockMvc.perform(post("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(Objects.requireNonNull(objectToJson(new CustomerRegistrationRequest(customer))))
+        ).andExpect(status().isOk());
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/v1/payment")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(Objects.requireNonNull(objectToJson(new PaymentRequest(new Payment(
+                            null, customerId, new BigDecimal("5.00"), Currency.USD, "0x0x0x3", "Gum " + i)))))
+            ).andExpect(status().isOk());
+        }
+
+        // When
+        final String firstPageJson = mockMvc.perform(get("/api/v1/payment")
+                .param("customerId", customerId.toString())
+                .param("limit", "2")
+        ).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        final PaymentPage firstPage = new ObjectMapper().readValue(firstPageJson, PaymentPage.class);
+
+        final String secondPageJson = mockMvc.perform(get("/api/v1/payment")
+                .param("customerId", customerId.toString())
+                .param("after", String.valueOf(firstPage.getNextAfter()))
+                .param("limit", "2")
+        ).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        final PaymentPage secondPage = new ObjectMapper().readValue(secondPageJson, PaymentPage.class);
+
+        // Then
+        assertThat(firstPage.getPayments()).extracting(Payment::getDescription).containsExactly("Gum 0", "Gum 1");
+        assertThat(secondPage.getPayments()).extracting(Payment::getDescription).containsExactly("Gum 2");
+        assertThat(secondPage.getNextAfter()).isNull();
+    }
+
+    @Test
+    @Order(5)
+    void itShouldExportPaymentsInIdRange() throws Exception {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        final Customer customer = new Customer(customerId, "Zoe", TestPhoneNumbers.next());
+        mockMvc.perform(post("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(Objects.requireNonNull(objectToJson(new CustomerRegistrationRequest(customer))))
+        ).andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/payment")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(Objects.requireNonNull(objectToJson(new PaymentRequest(new Payment(
+                        null, customerId, new BigDecimal("12.50"), Currency.USD, "0x0x0x4", "Coat, \"wool\"")))))
+        ).andExpect(status().isOk());
+        final Long paymentId = paymentRepository.findPaymentsAfter(customerId, 0L, 1).get(0).getPaymentId();
+
+        // When
+        final MvcResult csvResult = mockMvc.perform(get("/api/v1/payment/export")
+                .param("format", "CSV")
+                .param("fromId", paymentId.toString())
+                .param("toId", paymentId.toString())
+        ).andExpect(request().asyncStarted()).andReturn();
+        final MvcResult ndjsonResult = mockMvc.perform(get("/api/v1/payment/export")
+                .param("fromId", paymentId.toString())
+                .param("toId", paymentId.toString())
+        ).andExpect(request().asyncStarted()).andReturn();
+
+        // Then
+        final String csv = mockMvc.perform(asyncDispatch(csvResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(csv).isEqualTo(PaymentExporter.CSV_HEADER + "\n" +
+                paymentId + "," + customerId + ",12.50,1250,USD,0x0x0x4,\"Coat, \"\"wool\"\"\"\n");
+
+        final String ndjson = mockMvc.perform(asyncDispatch(ndjsonResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(ndjson.split("\n")).hasSize(1);
+        assertThat(new ObjectMapper().readTree(ndjson).get("amountMinor").asLong()).isEqualTo(1250);
+        final Payment exported = new ObjectMapper()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValue(ndjson.trim(), Payment.class);
+        assertThat(exported.getPaymentId()).isEqualTo(paymentId);
+        assertThat(exported.getCustomerId()).isEqualTo(customerId);
+        assertThat(exported.getDescription()).isEqualTo("Coat, \"wool\"");
+    }
+
+    @Test
+    @Order(6)
+    void itShouldServeCustomerTotals() throws Exception {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        final Customer customer = new Customer(customerId, "Ian", TestPhoneNumbers.next());
+        mockMvc.perform(post("/api/v1/customer-registration")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(Objects.requireNonNull(objectToJson(new CustomerRegistrationRequest(customer))))
+        ).andExpect(status().isOk());
+        for (String amount : new String[]{"10.00", "2.50"}) {
+            mockMvc.perform(post("/api/v1/payment")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(Objects.requireNonNull(objectToJson(new PaymentRequest(new Payment(
+                            null, customerId, new BigDecimal(amount), Currency.USD, "0x0x0x5", "Tea")))))
+            ).andExpect(status().isOk());
+        }
+
+        // When
+        mockMvc.perform(post("/api/v1/payment/totals/rebuild")).andExpect(status().isOk());
+        final String json = mockMvc.perform(get("/api/v1/payment/totals")
+                .param("customerId", customerId.toString())
+        ).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        // Then
+        assertThat(new ObjectMapper().readValue(json, CustomerTotal[].class))
+                .containsExactly(new CustomerTotal(Currency.USD, new BigDecimal("12.50"), 2));
+    }
+
+    @Test
+    @Order(7)
+    void itShouldExposeChargeResilienceMetrics() throws Exception {
+        // Given
+        // When
+        final String state = mockMvc.perform(get("/actuator/metrics/payment.charge.circuit.state")
+                .param("tag", "state:closed")
+        ).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        // Then
+        assertThat(new ObjectMapper().readTree(state).at("/measurements/0/value").asDouble()).isEqualTo(1.0);
+        mockMvc.perform(get("/actuator/metrics/payment.charge.concurrency.limit")).andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/payment.charge.rejected")).andExpect(status().isOk());
+    }
+
+    @Test
+    @Order(8)
+    void itShouldExportHotPathTimersInPrometheusFormat() throws Exception {
+        // Given
+        // When
+        final String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Then
+        assertThat(scrape)
+                .contains("customer_registration_seconds_bucket{exception=\"None\",outcome=\"registered\"")
+                .contains("payment_charge_seconds_bucket{exception=\"None\",mode=\"sync\",outcome=\"charged\"")
+                .contains("payment_charger_seconds_count{charger=\"MockStripeService\",exception=\"None\","
+                        + "method=\"chargeCard\",outcome=\"debited\",}")
+                .contains("repository_invocations_seconds_count{exception=\"None\",method=\"findCustomerByPhoneNumber\","
+                        + "outcome=\"success\",repository=\"CustomerRepository\",}")
+                .contains("repository_invocations_seconds_count{exception=\"None\",method=\"findById\","
+                        + "outcome=\"success\",repository=\"PaymentRepository\",}");
+    }
+
+    @Test
+    @Order(9)
+    void itShouldRejectPaymentWithCurrencyButNoAmount() throws Exception {
+        // Given
+        final String paymentJson = "{\"payment\":{\"customerId\":\"" + UUID.randomUUID() + "\","
+                + "\"currency\":\"USD\",\"source\":\"0x0x0x9\",\"description\":\"No amount\"}}";
+
+        // When
+        // Then
+        mockMvc.perform(post("/api/v1/payment")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(paymentJson)
+        ).andExpect(status().isBadRequest());
+    }
+
     private String objectToJson(Object object) {
         try {
             return new ObjectMapper().writeValueAsString(object);
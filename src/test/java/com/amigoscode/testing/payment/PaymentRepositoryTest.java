@@ -5,8 +5,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,7 +27,6 @@ class PaymentRepositoryTest {
     @Test
     void itShouldSavePayment() {
         // Given
-        Long paymentId = 1L;
         Payment payment = new Payment(
                 1L,
                 UUID.randomUUID(),
@@ -34,14 +36,73 @@ class PaymentRepositoryTest {
                 "Payment");
 
         // When
-        underTest.save(payment);
+        // The id comes from the sequence, which other tests sharing this context have advanced
+        Payment saved = underTest.save(payment);
 
         // Then
-        Optional<Payment> optionalPayment = underTest.findById(paymentId);
+        Optional<Payment> optionalPayment = underTest.findById(saved.getPaymentId());
         assertThat(optionalPayment)
                 .isPresent()
                 .hasValueSatisfying(p -> {
-                   assertThat(p).isEqualTo(payment);
+                   assertThat(p).isEqualTo(saved);
+                   assertThat(p).isEqualToIgnoringGivenFields(payment, "paymentId");
                 });
     }
-}
\ No newline at end of file
+
+    @Test
+    void itShouldInsertAllPaymentsWithSequenceIds() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        List<Payment> payments = IntStream.range(0, 120)
+                .mapToObj(i -> new Payment(
+                        null,
+                        customerId,
+                        new BigDecimal("10.00"),
+                        Currency.USD,
+                        "45455",
+                        "Payment " + i))
+                .collect(Collectors.toList());
+
+        // When
+        underTest.insertAll(payments);
+
+        // Then
+        assertThat(payments)
+                .extracting(Payment::getPaymentId)
+                .doesNotContainNull()
+                .doesNotHaveDuplicates();
+        assertThat(underTest.findAllById(payments.stream()
+                .map(Payment::getPaymentId)
+                .collect(Collectors.toList())))
+                .hasSize(120);
+    }
+
+    @Test
+    void itShouldFindCustomerPaymentsAfterGivenPaymentId() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        UUID otherCustomerId = UUID.randomUUID();
+        List<Payment> payments = IntStream.range(0, 10)
+                .mapToObj(i -> new Payment(
+                        null,
+                        i % 2 == 0 ? customerId : otherCustomerId,
+                        new BigDecimal("10.00"),
+                        Currency.USD,
+                        "45455",
+                        "Payment " + i))
+                .collect(Collectors.toList());
+        underTest.insertAll(payments);
+        List<Long> customerPaymentIds = payments.stream()
+                .filter(p -> p.getCustomerId().equals(customerId))
+                .map(Payment::getPaymentId)
+                .collect(Collectors.toList());
+
+        // When
+        List<Payment> firstPage = underTest.findPaymentsAfter(customerId, 0L, 2);
+        List<Payment> secondPage = underTest.findPaymentsAfter(customerId, firstPage.get(1).getPaymentId(), 2);
+
+        // Then
+        assertThat(firstPage).extracting(Payment::getPaymentId).containsExactlyElementsOf(customerPaymentIds.subList(0, 2));
+        assertThat(secondPage).extracting(Payment::getPaymentId).containsExactlyElementsOf(customerPaymentIds.subList(2, 4));
+    }
+}
@@ -1,18 +1,26 @@
 package com.amigoscode.testing.payment;
 
 import com.amigoscode.testing.customer.Customer;
+import com.amigoscode.testing.customer.CustomerLookupCache;
 import com.amigoscode.testing.customer.CustomerRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.mock;
@@ -26,18 +34,38 @@ class PaymentServiceTest {
     @Mock
     private PaymentRepository paymentRepository;
 
+    @Mock
+    private PaymentTotalRepository paymentTotalRepository;
+
     @Mock
     private CardPaymentCharger cardPaymentCharger;
 
+    @Mock
+    private AsyncCardPaymentCharger asyncCardPaymentCharger;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Captor
     private ArgumentCaptor<Payment> paymentArgumentCaptor;
 
+    @Captor
+    private ArgumentCaptor<PaymentEvent> eventArgumentCaptor;
+
     private PaymentService underTest;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
-        underTest = new PaymentService(paymentRepository, customerRepository, cardPaymentCharger);
+        underTest = new PaymentService(
+                paymentRepository,
+                paymentTotalRepository,
+                new JpaPaymentRecorder(paymentRepository, paymentTotalRepository),
+                new CustomerLookupCache(customerRepository, Duration.ofMinutes(5), Duration.ofSeconds(5), 100),
+                cardPaymentCharger,
+                asyncCardPaymentCharger,
+                eventPublisher,
+                new SimpleMeterRegistry());
     }
 
     @Test
@@ -81,6 +109,33 @@ class PaymentServiceTest {
         then(customerRepository).should(Mockito.times(1)).findById(customerId);
         then(paymentRepository).shouldHaveNoMoreInteractions();
         then(cardPaymentCharger).shouldHaveNoMoreInteractions();
+        then(eventPublisher).should().publishEvent(eventArgumentCaptor.capture());
+        assertThat(eventArgumentCaptor.getValue().getType()).isEqualTo(PaymentEvent.Type.CURRENCY_REJECTED);
+    }
+
+    @Test
+    void itShouldNotChargeOnceTheDeadlineHasPassed() {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        PaymentRequest paymentRequest = new PaymentRequest(new Payment(
+                null,
+                null,
+                new BigDecimal("10"),
+                Currency.USD,
+                "23123",
+                "Description"
+        ));
+        ChargeOptions chargeOptions = ChargeOptions.none().withDeadline(Deadline.after(Duration.ZERO));
+
+        // When
+        final Customer customer = new Customer(customerId, "Alex", "1111");
+        given(customerRepository.findById(customerId)).willReturn(Optional.of(customer));
+
+        // Then
+        assertThatThrownBy(() -> underTest.chargeCard(customerId, paymentRequest, chargeOptions))
+                .isInstanceOf(ChargeDeadlineExceededException.class);
+        then(cardPaymentCharger).shouldHaveNoInteractions();
+        then(paymentRepository).shouldHaveNoInteractions();
     }
 
     @Test
@@ -108,6 +163,60 @@ class PaymentServiceTest {
         then(customerRepository).should(Mockito.times(1)).findById(customerId);
         then(cardPaymentCharger).should(Mockito.times(1)).chargeCard(any(), any(), any(), any());
         then(paymentRepository).shouldHaveNoMoreInteractions();
+        then(eventPublisher).should().publishEvent(eventArgumentCaptor.capture());
+        assertThat(eventArgumentCaptor.getValue().getType()).isEqualTo(PaymentEvent.Type.CARD_NOT_DEBITED);
+    }
+
+    @Test
+    void itShouldPublishFailedEventWhenTheChargeThrows() {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        PaymentRequest paymentRequest = new PaymentRequest(new Payment(
+                null,
+                null,
+                new BigDecimal("10"),
+                Currency.USD,
+                "23123",
+                "Description"
+        ));
+        given(customerRepository.findById(customerId)).willReturn(Optional.of(mock(Customer.class)));
+        given(cardPaymentCharger.chargeCard(any(), any(), any(), any()))
+                .willThrow(new ChargeDeadlineExceededException("Deadline reached while charging the card"));
+
+        // When
+        assertThatThrownBy(() -> underTest.chargeCard(customerId, paymentRequest))
+                .isInstanceOf(ChargeDeadlineExceededException.class);
+
+        // Then
+        then(paymentRepository).shouldHaveNoInteractions();
+        then(eventPublisher).should().publishEvent(eventArgumentCaptor.capture());
+        assertThat(eventArgumentCaptor.getValue().getType()).isEqualTo(PaymentEvent.Type.FAILED);
+        assertThat(eventArgumentCaptor.getValue().getCustomerId()).isEqualTo(customerId);
+    }
+
+    @Test
+    void itShouldPublishFailedEventWhenTheAsynchronousChargeFails() {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        PaymentRequest paymentRequest = new PaymentRequest(new Payment(
+                null,
+                null,
+                new BigDecimal("10"),
+                Currency.USD,
+                "23123",
+                "Description"
+        ));
+        given(customerRepository.findById(customerId)).willReturn(Optional.of(mock(Customer.class)));
+        given(asyncCardPaymentCharger.chargeCardAsync(any(), any(), any(), any()))
+                .willReturn(CompletableFuture.failedFuture(new IllegalStateException("Card processor unavailable")));
+
+        // When
+        CompletableFuture<Void> result = underTest.chargeCardAsync(customerId, paymentRequest);
+
+        // Then
+        assertThatThrownBy(result::join).hasCauseInstanceOf(IllegalStateException.class);
+        then(eventPublisher).should().publishEvent(eventArgumentCaptor.capture());
+        assertThat(eventArgumentCaptor.getValue().getType()).isEqualTo(PaymentEvent.Type.FAILED);
     }
 
     @Test
@@ -135,5 +244,107 @@ class PaymentServiceTest {
         Payment capturedPayment = paymentArgumentCaptor.getValue();
         assertThat(capturedPayment).isEqualToIgnoringGivenFields(paymentRequest.getPayment(), "customerId");
         assertThat(capturedPayment.getCustomerId()).isEqualTo(customerId);
+        then(paymentTotalRepository).should().increment(customerId, Money.ofMinor(1000, Currency.USD));
+        then(eventPublisher).should().publishEvent(eventArgumentCaptor.capture());
+        assertThat(eventArgumentCaptor.getValue().getType()).isEqualTo(PaymentEvent.Type.CHARGED);
+        assertThat(eventArgumentCaptor.getValue().getCustomerId()).isEqualTo(customerId);
+    }
+
+    @Test
+    void itShouldChargeCustomerAsynchronously() {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        PaymentRequest paymentRequest = new PaymentRequest(new Payment(
+                null,
+                null,
+                new BigDecimal("10"),
+                Currency.USD,
+                "23123",
+                "Description"
+        ));
+        given(customerRepository.findById(customerId)).willReturn(Optional.of(mock(Customer.class)));
+        given(asyncCardPaymentCharger.chargeCardAsync(any(), any(), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(new CardPaymentCharge(true)));
+
+        // When
+        underTest.chargeCardAsync(customerId, paymentRequest).join();
+
+        // Then
+        then(cardPaymentCharger).shouldHaveNoInteractions();
+        then(paymentRepository).should(Mockito.times(1)).save(paymentArgumentCaptor.capture());
+        assertThat(paymentArgumentCaptor.getValue().getCustomerId()).isEqualTo(customerId);
+    }
+
+    @Test
+    void itShouldFailAsynchronousChargeIfCardIsNotDebited() {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        PaymentRequest paymentRequest = new PaymentRequest(new Payment(
+                null,
+                null,
+                new BigDecimal("10"),
+                Currency.USD,
+                "23123",
+                "Description"
+        ));
+        given(customerRepository.findById(customerId)).willReturn(Optional.of(mock(Customer.class)));
+        given(asyncCardPaymentCharger.chargeCardAsync(any(), any(), any(), any()))
+                .willReturn(CompletableFuture.completedFuture(new CardPaymentCharge(false)));
+
+        // When
+        CompletableFuture<Void> result = underTest.chargeCardAsync(customerId, paymentRequest);
+
+        // Then
+        assertThatThrownBy(result::join)
+                .hasCauseInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(String.format("Card not debited for customer %s", customerId));
+        then(paymentRepository).shouldHaveNoInteractions();
+    }
+
+    @Test
+    void itShouldReturnNextAfterWhenMorePaymentsExist() {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        given(paymentRepository.findPaymentsAfter(customerId, 10L, 3)).willReturn(List.of(
+                new Payment(11L, customerId, new BigDecimal("10"), Currency.USD, "1", "a"),
+                new Payment(12L, customerId, new BigDecimal("10"), Currency.USD, "2", "b"),
+                new Payment(15L, customerId, new BigDecimal("10"), Currency.USD, "3", "c")
+        ));
+
+        // When
+        PaymentPage page = underTest.findPayments(customerId, 10L, 2);
+
+        // Then
+        assertThat(page.getPayments()).extracting(Payment::getPaymentId).containsExactly(11L, 12L);
+        assertThat(page.getNextAfter()).isEqualTo(12L);
+    }
+
+    @Test
+    void itShouldNotReturnNextAfterOnLastPage() {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        given(paymentRepository.findPaymentsAfter(customerId, 0L, 3)).willReturn(List.of(
+                new Payment(1L, customerId, new BigDecimal("10"), Currency.USD, "1", "a")
+        ));
+
+        // When
+        PaymentPage page = underTest.findPayments(customerId, null, 2);
+
+        // Then
+        assertThat(page.getPayments()).hasSize(1);
+        assertThat(page.getNextAfter()).isNull();
+    }
+
+    @Test
+    void itShouldCapPageSize() {
+        // Given
+        final UUID customerId = UUID.randomUUID();
+        given(paymentRepository.findPaymentsAfter(any(), anyLong(), anyInt())).willReturn(List.of());
+
+        // When
+        underTest.findPayments(customerId, null, 1_000_000);
+
+        // Then
+        then(paymentRepository).should().findPaymentsAfter(customerId, 0L, PaymentService.MAX_PAGE_SIZE + 1);
     }
-}
\ No newline at end of file
+}
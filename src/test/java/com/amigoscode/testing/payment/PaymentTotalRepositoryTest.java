@@ -0,0 +1,78 @@
+package com.amigoscode.testing.payment;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(
+        properties = {
+                "spring.jpa.properties.javax.persistence.validation.mode=none"
+        }
+)
+class PaymentTotalRepositoryTest {
+
+    @Autowired
+    private PaymentTotalRepository underTest;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Test
+    void itShouldSumIncrementsPerCurrency() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        underTest.increment(customerId, Money.of(new BigDecimal("10.00"), Currency.USD));
+        underTest.increment(customerId, Money.of(new BigDecimal("5.50"), Currency.USD));
+        underTest.increment(customerId, Money.of(new BigDecimal("1.00"), Currency.GPD));
+        underTest.increment(UUID.randomUUID(), Money.of(new BigDecimal("99.00"), Currency.USD));
+
+        // When
+        List<CustomerTotal> totals = underTest.findCustomerTotals(customerId);
+
+        // Then
+        assertThat(totals).containsExactlyInAnyOrder(
+                new CustomerTotal(Currency.USD, new BigDecimal("15.50"), 2),
+                new CustomerTotal(Currency.GPD, new BigDecimal("1.00"), 1));
+    }
+
+    @Test
+    void itShouldRebuildTotalsFromPayments() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        paymentRepository.insertAll(List.of(
+                new Payment(null, customerId, new BigDecimal("10.00"), Currency.USD, "1", "a"),
+                new Payment(null, customerId, new BigDecimal("2.00"), Currency.USD, "2", "b")));
+        underTest.increment(customerId, Money.of(new BigDecimal("1000.00"), Currency.USD));
+
+        // When
+        underTest.rebuild();
+
+        // Then
+        assertThat(underTest.findCustomerTotals(customerId)).containsExactly(
+                new CustomerTotal(Currency.USD, new BigDecimal("12.00"), 2));
+    }
+
+    @Test
+    void itShouldReconcileCountersWithoutPaymentsAndKeepRebuildsIdempotent() {
+        // Given
+        UUID customerId = UUID.randomUUID();
+        paymentRepository.insertAll(List.of(
+                new Payment(null, customerId, new BigDecimal("3.00"), Currency.GPD, "1", "a")));
+        underTest.increment(customerId, Money.of(new BigDecimal("3.00"), Currency.GPD));
+        underTest.increment(customerId, Money.of(new BigDecimal("7.00"), Currency.USD));
+
+        // When
+        underTest.rebuild();
+        underTest.rebuild();
+
+        // Then
+        assertThat(underTest.findCustomerTotals(customerId)).containsExactly(
+                new CustomerTotal(Currency.GPD, new BigDecimal("3.00"), 1));
+    }
+}
@@ -0,0 +1,180 @@
+package com.amigoscode.testing.payment.journal;
+
+import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Money;
+import com.amigoscode.testing.payment.PaymentEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentEventJournalTest {
+
+    private static final Duration OFFER_TIMEOUT = Duration.ofSeconds(5);
+
+    @TempDir
+    Path directory;
+
+    private PaymentEventJournal underTest;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (underTest != null) {
+            underTest.close();
+        }
+    }
+
+    @Test
+    void itShouldReplayJournaledEvents() throws Exception {
+        // Given
+        underTest = new PaymentEventJournal(directory, 4096, 16, OFFER_TIMEOUT);
+        underTest.start();
+        List<PaymentEvent> events = List.of(
+                new PaymentEvent(PaymentEvent.Type.CHARGED, 1L, UUID.randomUUID(), Money.of(new BigDecimal("10.50"), Currency.USD)),
+                new PaymentEvent(PaymentEvent.Type.CURRENCY_REJECTED, 2L, UUID.randomUUID(), Money.of(new BigDecimal("3"), Currency.EUR)),
+                new PaymentEvent(PaymentEvent.Type.CARD_NOT_DEBITED, 3L, UUID.randomUUID(), null));
+
+        // When
+        events.forEach(underTest::onPaymentEvent);
+        underTest.close();
+
+        // Then
+        List<PaymentEvent> replayed = new ArrayList<>();
+        new PaymentEventJournalReader(directory).replay(replayed::add);
+        assertThat(replayed).containsExactlyElementsOf(events);
+    }
+
+    @Test
+    void itShouldRotateSegmentsAndReplayAcrossThem() throws Exception {
+        // Given
+        underTest = new PaymentEventJournal(directory, 256, 16, OFFER_TIMEOUT);
+        underTest.start();
+        List<PaymentEvent> events = IntStream.range(0, 50)
+                .mapToObj(PaymentEventJournalTest::event)
+                .collect(Collectors.toList());
+
+        // When
+        events.forEach(underTest::onPaymentEvent);
+        underTest.close();
+
+        // Then
+        List<PaymentEvent> replayed = new ArrayList<>();
+        new PaymentEventJournalReader(directory).replay(replayed::add);
+        assertThat(replayed).containsExactlyElementsOf(events);
+        assertThat(segmentCount()).isGreaterThan(1);
+    }
+
+    @Test
+    void itShouldTailEventsAppendedAfterReplay() throws Exception {
+        // Given
+        underTest = new PaymentEventJournal(directory, 256, 16, OFFER_TIMEOUT);
+        underTest.start();
+        underTest.onPaymentEvent(event(0));
+        PaymentEventJournalReader reader = new PaymentEventJournalReader(directory);
+        List<PaymentEvent> seen = new ArrayList<>();
+        awaitEvents(reader, seen, 1);
+
+        // When
+        IntStream.range(1, 20).mapToObj(PaymentEventJournalTest::event).forEach(underTest::onPaymentEvent);
+
+        // Then
+        awaitEvents(reader, seen, 20);
+        assertThat(seen).extracting(PaymentEvent::getTimestamp)
+                .containsExactlyElementsOf(LongStream.range(0, 20).boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    void itShouldRemapSegmentMappedBeforeTheWriterSizedIt() throws Exception {
+        // Given
+        Files.createFile(PaymentEventSegments.path(directory, 0));
+        PaymentEventJournalReader reader = new PaymentEventJournalReader(directory);
+        List<PaymentEvent> seen = new ArrayList<>();
+        assertThat(reader.poll(seen::add, 100)).isZero();
+
+        // When
+        underTest = new PaymentEventJournal(directory, 4096, 16, OFFER_TIMEOUT);
+        underTest.start();
+        underTest.onPaymentEvent(event(0));
+
+        // Then
+        awaitEvents(reader, seen, 1);
+        assertThat(seen).containsExactly(event(0));
+    }
+
+    @Test
+    void itShouldContinueAfterExistingEventsOnRestart() throws Exception {
+        // Given
+        underTest = new PaymentEventJournal(directory, 4096, 16, OFFER_TIMEOUT);
+        underTest.start();
+        underTest.onPaymentEvent(event(0));
+        underTest.close();
+
+        // When
+        underTest = new PaymentEventJournal(directory, 4096, 16, OFFER_TIMEOUT);
+        underTest.start();
+        underTest.onPaymentEvent(event(1));
+        underTest.close();
+
+        // Then
+        List<PaymentEvent> replayed = new ArrayList<>();
+        new PaymentEventJournalReader(directory).replay(replayed::add);
+        assertThat(replayed).containsExactly(event(0), event(1));
+    }
+
+    @Test
+    void itShouldDropAndCountEventsThatDoNotFitInTheQueue() {
+        // Given
+        // not started, so nothing drains the queue
+        underTest = new PaymentEventJournal(directory, 4096, 1, Duration.ofMillis(10));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        underTest.bindTo(meterRegistry);
+
+        // When
+        underTest.onPaymentEvent(event(0));
+        underTest.onPaymentEvent(event(1));
+
+        // Then
+        assertThat(meterRegistry.get("payment.journal.dropped").tag("reason", "queue_full").functionCounter().count())
+                .isEqualTo(1);
+        Health health = underTest.health();
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails()).containsEntry("droppedQueueFull", 1L);
+    }
+
+    private static void awaitEvents(PaymentEventJournalReader reader, List<PaymentEvent> seen, int count)
+            throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (seen.size() < count && System.currentTimeMillis() < deadline) {
+            if (reader.poll(seen::add, 100) == 0) {
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private static PaymentEvent event(int i) {
+        return new PaymentEvent(PaymentEvent.Type.CHARGED, i, new UUID(1, i), Money.ofMinor(i * 100L + 25, Currency.GPD));
+    }
+}
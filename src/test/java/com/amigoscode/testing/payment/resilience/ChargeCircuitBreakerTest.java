@@ -0,0 +1,147 @@
+package com.amigoscode.testing.payment.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChargeCircuitBreakerTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(3).toNanos();
+
+    private MutableClock clock;
+
+    private ChargeCircuitBreaker underTest;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        ChargeResilienceProperties.CircuitBreaker properties = new ChargeResilienceProperties.CircuitBreaker();
+        properties.setWindowSize(10);
+        properties.setMinimumCalls(4);
+        properties.setFailureRateThreshold(50);
+        properties.setSlowCallDuration(Duration.ofSeconds(2));
+        properties.setSlowCallRateThreshold(75);
+        properties.setOpenDuration(Duration.ofSeconds(30));
+        properties.setHalfOpenCalls(2);
+        underTest = new ChargeCircuitBreaker(properties, clock);
+    }
+
+    @Test
+    void itShouldStayClosedUntilMinimumCallsAreRecorded() {
+        // Given
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertThat(underTest.tryAcquire()).isTrue();
+            underTest.onError(FAST);
+        }
+
+        // Then
+        assertThat(underTest.getState()).isEqualTo(ChargeCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void itShouldOpenAndRejectWhenFailureRateCrossesThreshold() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        underTest.bindTo(registry);
+        record(FAST, false, 2);
+
+        // When
+        record(FAST, true, 2);
+
+        // Then
+        assertThat(underTest.getState()).isEqualTo(ChargeCircuitBreaker.State.OPEN);
+        assertThat(underTest.tryAcquire()).isFalse();
+        assertThat(registry.get("payment.charge.circuit.state").tag("state", "open").gauge().value())
+                .isEqualTo(1.0);
+        assertThat(registry.get("payment.charge.rejected").tag("reason", "circuit_open")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void itShouldOpenWhenMostCallsAreSlow() {
+        // Given
+        record(FAST, false, 1);
+
+        // When
+        record(SLOW, false, 3);
+
+        // Then
+        assertThat(underTest.getState()).isEqualTo(ChargeCircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void itShouldCloseAfterSuccessfulTrialCalls() {
+        // Given
+        record(FAST, true, 4);
+        clock.advance(Duration.ofSeconds(30));
+
+        // When
+        assertThat(underTest.tryAcquire()).isTrue();
+        assertThat(underTest.tryAcquire()).isTrue();
+        boolean thirdTrialPermitted = underTest.tryAcquire();
+        underTest.onSuccess(FAST);
+        underTest.onSuccess(FAST);
+
+        // Then
+        assertThat(thirdTrialPermitted).isFalse();
+        assertThat(underTest.getState()).isEqualTo(ChargeCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void itShouldReopenWhenTrialCallsFail() {
+        // Given
+        record(FAST, true, 4);
+        clock.advance(Duration.ofSeconds(30));
+
+        // When
+        record(FAST, true, 2);
+
+        // Then
+        assertThat(underTest.getState()).isEqualTo(ChargeCircuitBreaker.State.OPEN);
+        assertThat(underTest.tryAcquire()).isFalse();
+    }
+
+    private void record(long durationNanos, boolean failed, int times) {
+        for (int i = 0; i < times; i++) {
+            assertThat(underTest.tryAcquire()).isTrue();
+            if (failed) {
+                underTest.onError(durationNanos);
+            } else {
+                underTest.onSuccess(durationNanos);
+            }
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.EPOCH;
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
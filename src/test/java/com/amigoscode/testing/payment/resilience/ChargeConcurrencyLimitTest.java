@@ -0,0 +1,111 @@
+package com.amigoscode.testing.payment.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChargeConcurrencyLimitTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    private ChargeConcurrencyLimit underTest;
+
+    @BeforeEach
+    void setUp() {
+        ChargeResilienceProperties.ConcurrencyLimit properties = new ChargeResilienceProperties.ConcurrencyLimit();
+        properties.setInitialLimit(4);
+        properties.setMinLimit(1);
+        properties.setMaxLimit(5);
+        properties.setLatencyThreshold(Duration.ofSeconds(1));
+        properties.setBackoffRatio(0.5);
+        underTest = new ChargeConcurrencyLimit(properties);
+    }
+
+    @Test
+    void itShouldRejectChargesBeyondTheLimit() {
+        // Given
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        underTest.bindTo(registry);
+        for (int i = 0; i < 4; i++) {
+            assertThat(underTest.tryAcquire()).isTrue();
+        }
+
+        // When
+        boolean acquired = underTest.tryAcquire();
+
+        // Then
+        assertThat(acquired).isFalse();
+        assertThat(registry.get("payment.charge.concurrency.in.flight").gauge().value()).isEqualTo(4.0);
+        assertThat(registry.get("payment.charge.rejected").tag("reason", "concurrency_limit")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void itShouldGrowAdditivelyWhileChargesAreFastAndTheLimitIsUsed() {
+        // Given
+        underTest.tryAcquire();
+        underTest.tryAcquire();
+
+        // When
+        underTest.onSuccess(FAST);
+        underTest.onSuccess(FAST);
+
+        // Then
+        // The second charge completed with only itself in flight, below half the limit
+        assertThat(underTest.getLimit()).isEqualTo(5);
+        assertThat(underTest.getInFlight()).isZero();
+    }
+
+    @Test
+    void itShouldNotGrowPastMaxLimit() {
+        // Given
+        // When
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 4; j++) {
+                underTest.tryAcquire();
+            }
+            for (int j = 0; j < 4; j++) {
+                underTest.onSuccess(FAST);
+            }
+        }
+
+        // Then
+        assertThat(underTest.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void itShouldBackOffMultiplicativelyOnSlowOrFailedCharges() {
+        // Given
+        underTest.tryAcquire();
+        underTest.tryAcquire();
+        underTest.tryAcquire();
+
+        // When
+        underTest.onSuccess(SLOW);
+        underTest.onDropped();
+        underTest.onDropped();
+
+        // Then
+        assertThat(underTest.getLimit()).isEqualTo(1);
+        assertThat(underTest.tryAcquire()).isTrue();
+        assertThat(underTest.tryAcquire()).isFalse();
+    }
+
+    @Test
+    void itShouldNotAdjustTheLimitForIgnoredCharges() {
+        // Given
+        underTest.tryAcquire();
+
+        // When
+        underTest.onIgnore();
+
+        // Then
+        assertThat(underTest.getLimit()).isEqualTo(4);
+        assertThat(underTest.getInFlight()).isZero();
+    }
+}
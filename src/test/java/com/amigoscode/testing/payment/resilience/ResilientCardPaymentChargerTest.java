@@ -0,0 +1,108 @@
+package com.amigoscode.testing.payment.resilience;
+
+import com.amigoscode.testing.payment.AsyncCardPaymentCharger;
+import com.amigoscode.testing.payment.CardPaymentCharge;
+import com.amigoscode.testing.payment.CardPaymentCharger;
+import com.amigoscode.testing.payment.ChargeOptions;
+import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.withSettings;
+
+class ResilientCardPaymentChargerTest {
+
+    private static final Money AMOUNT = Money.ofMinor(1000, Currency.USD);
+
+    @Mock
+    private CardPaymentCharger cardPaymentCharger;
+
+    private ChargeCircuitBreaker circuitBreaker;
+
+    private ChargeConcurrencyLimit concurrencyLimit;
+
+    private ResilientCardPaymentCharger underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ChargeResilienceProperties properties = new ChargeResilienceProperties();
+        properties.getCircuitBreaker().setMinimumCalls(2);
+        properties.getCircuitBreaker().setHalfOpenCalls(1);
+        properties.getConcurrencyLimit().setInitialLimit(1);
+        circuitBreaker = new ChargeCircuitBreaker(properties.getCircuitBreaker(), Clock.systemUTC());
+        concurrencyLimit = new ChargeConcurrencyLimit(properties.getConcurrencyLimit());
+        underTest = new ResilientCardPaymentCharger(cardPaymentCharger, circuitBreaker, concurrencyLimit);
+    }
+
+    @Test
+    void itShouldChargeThroughTheDelegate() {
+        // Given
+        ChargeOptions options = ChargeOptions.withIdempotencyKey("order-42");
+        given(cardPaymentCharger.chargeCard("0x0x0x0", AMOUNT, "Shoes", options))
+                .willReturn(new CardPaymentCharge(true));
+
+        // When
+        CardPaymentCharge charge = underTest.chargeCard("0x0x0x0", AMOUNT, "Shoes", options);
+
+        // Then
+        assertThat(charge.isCardDebited()).isTrue();
+        assertThat(concurrencyLimit.getInFlight()).isZero();
+    }
+
+    @Test
+    void itShouldFailFastWithoutChargingOnceTheCircuitIsOpen() {
+        // Given
+        given(cardPaymentCharger.chargeCard(any(), any(), any()))
+                .willThrow(new IllegalStateException("Cannot make stripe charge"));
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> underTest.chargeCard("0x0x0x0", AMOUNT, "Shoes"))
+                    .hasMessage("Cannot make stripe charge");
+        }
+
+        // When
+        // Then
+        assertThat(circuitBreaker.getState()).isEqualTo(ChargeCircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> underTest.chargeCard("0x0x0x0", AMOUNT, "Shoes"))
+                .isInstanceOf(ChargeRejectedException.class);
+        then(cardPaymentCharger).should(times(2)).chargeCard(any(), any(), any());
+    }
+
+    @Test
+    void itShouldHoldTheAsyncPermitUntilTheChargeCompletes() throws Exception {
+        // Given
+        CardPaymentCharger asyncCharger = mock(CardPaymentCharger.class,
+                withSettings().extraInterfaces(AsyncCardPaymentCharger.class));
+        CompletableFuture<CardPaymentCharge> pending = new CompletableFuture<>();
+        given(((AsyncCardPaymentCharger) asyncCharger).chargeCardAsync(any(), any(), any())).willReturn(pending);
+        ResilientAsyncCardPaymentCharger asyncUnderTest = new ResilientAsyncCardPaymentCharger(
+                (CardPaymentCharger & AsyncCardPaymentCharger) asyncCharger, circuitBreaker, concurrencyLimit);
+
+        // When
+        CompletableFuture<CardPaymentCharge> first = asyncUnderTest.chargeCardAsync("0x0x0x0", AMOUNT, "Shoes");
+        CompletableFuture<CardPaymentCharge> second = asyncUnderTest.chargeCardAsync("0x0x0x0", AMOUNT, "Shoes");
+
+        // Then
+        assertThat(second).isCompletedExceptionally();
+        assertThatThrownBy(second::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ChargeRejectedException.class);
+        pending.complete(new CardPaymentCharge(true));
+        assertThat(first.get().isCardDebited()).isTrue();
+        assertThat(concurrencyLimit.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,59 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.amigoscode.testing.payment.CardPaymentCharge;
+import com.amigoscode.testing.payment.CardPaymentExecutor;
+import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class MockStripeServiceTest {
+
+    private final CardPaymentExecutor cardPaymentExecutor = mock(CardPaymentExecutor.class);
+
+    @Test
+    void itShouldDebitCardByDefault() {
+        // Given
+        MockStripeService underTest = new MockStripeService(cardPaymentExecutor);
+
+        // When
+        CardPaymentCharge charge = underTest.chargeCard("card", amount(), "Shoes");
+
+        // Then
+        assertThat(charge.isCardDebited()).isTrue();
+    }
+
+    @Test
+    void itShouldDeclineAtTheConfiguredRateAfterTheConfiguredLatency() {
+        // Given
+        MockStripeService underTest = new MockStripeService(cardPaymentExecutor, Duration.ofMillis(20), 1);
+
+        // When
+        long start = System.nanoTime();
+        CardPaymentCharge charge = underTest.chargeCard("card", amount(), "Shoes");
+
+        // Then
+        assertThat(charge.isCardDebited()).isFalse();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(Duration.ofMillis(20).toNanos());
+    }
+
+    @Test
+    void itShouldRejectADeclineRateAboveOne() {
+        // Given
+        // When
+        // Then
+        assertThatThrownBy(() -> new MockStripeService(cardPaymentExecutor, Duration.ZERO, 1.5))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("decline rate 1.5");
+    }
+
+    private static Money amount() {
+        return Money.of(new BigDecimal("10.00"), Currency.USD);
+    }
+}
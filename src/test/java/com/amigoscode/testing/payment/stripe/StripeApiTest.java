@@ -0,0 +1,82 @@
+package com.amigoscode.testing.payment.stripe;
+
+import com.stripe.model.Charge;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripeApiTest {
+
+    private static final String CHARGE = "{\"id\":\"ch_1\",\"object\":\"charge\",\"paid\":true}";
+
+    private HttpServer stripeStandIn;
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    private StripeApi underTest;
+
+    private StripeCredentials stripeCredentials;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stripeStandIn = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stripeStandIn.createContext("/v1/charges", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " "
+                    + exchange.getRequestHeaders().getFirst("Authorization") + " "
+                    + new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] body = CHARGE.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        stripeStandIn.start();
+
+        StripeProperties properties = new StripeProperties();
+        properties.setApiBase("http://localhost:" + stripeStandIn.getAddress().getPort());
+        properties.setApiKey("sk_test_default");
+        underTest = new StripeApi(properties);
+        stripeCredentials = new StripeCredentials(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        underTest.close();
+        stripeStandIn.stop(0);
+    }
+
+    @Test
+    void itShouldCreateChargeThroughPooledConnections() throws Exception {
+        // Given
+        Map<String, Object> params = Map.of("amount", 1000, "currency", "usd", "source", "tok_visa");
+
+        // When
+        Charge first = underTest.create(params, stripeCredentials.requestOptions(null));
+        Charge second = underTest.create(params, stripeCredentials.requestOptions(null));
+
+        // Then
+        assertThat(first.getPaid()).isTrue();
+        assertThat(second.getPaid()).isTrue();
+        assertThat(requests).hasSize(2).allSatisfy(request -> assertThat(request)
+                .startsWith("POST /v1/charges Bearer sk_test_default ")
+                .contains("amount=1000", "currency=usd", "source=tok_visa"));
+        assertThat(clientPorts).hasSize(1);
+    }
+}
@@ -0,0 +1,110 @@
+package com.amigoscode.testing.payment.stripe;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripeCredentialsTest {
+
+    private StripeCredentials underTest;
+
+    @BeforeEach
+    void setUp() {
+        StripeProperties.Tenant acme = new StripeProperties.Tenant();
+        acme.setApiKey("sk_test_acme");
+        acme.setClientToken("acme-token");
+        StripeProperties properties = new StripeProperties();
+        properties.setApiKey("sk_test_default");
+        properties.setTenants(Map.of("acme", acme));
+        underTest = new StripeCredentials(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void itShouldUseDefaultApiKeyOutsideOfRequests() {
+        // When
+        String apiKey = underTest.currentRequestOptions().getApiKey();
+
+        // Then
+        assertThat(apiKey).isEqualTo("sk_test_default");
+    }
+
+    @Test
+    void itShouldUseApiKeyOfRequestTenant() {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer acme-token");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        // When
+        String apiKey = underTest.currentRequestOptions().getApiKey();
+
+        // Then
+        assertThat(apiKey).isEqualTo("sk_test_acme");
+        assertThat(underTest.currentRequestOptions()).isSameAs(underTest.requestOptions("acme"));
+    }
+
+    @Test
+    void itShouldRejectRequestWithUnknownTenantToken() {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer acme-tokne");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.currentRequestOptions())
+                .isInstanceOf(TenantAuthenticationException.class)
+                .hasMessage("Unknown tenant token");
+    }
+
+    @Test
+    void itShouldRejectRequestWithoutTenantToken() {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-Tenant-Id", "acme");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.currentRequestOptions())
+                .isInstanceOf(TenantAuthenticationException.class);
+    }
+
+    @Test
+    void itShouldUseDefaultApiKeyForRequestsWhenNoTenantsAreConfigured() {
+        // Given
+        StripeProperties properties = new StripeProperties();
+        properties.setApiKey("sk_test_default");
+        StripeCredentials singleTenant = new StripeCredentials(properties);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        // When
+        String apiKey = singleTenant.currentRequestOptions().getApiKey();
+
+        // Then
+        assertThat(apiKey).isEqualTo("sk_test_default");
+    }
+
+    @Test
+    void itShouldThrowForUnknownTenant() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.requestOptions("unknown"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("No Stripe credentials for tenant unknown");
+    }
+}
@@ -1,10 +1,20 @@
 package com.amigoscode.testing.payment.stripe;
 
 import com.amigoscode.testing.payment.CardPaymentCharge;
+import com.amigoscode.testing.payment.CardPaymentExecutor;
+import com.amigoscode.testing.payment.ChargeDeadlineExceededException;
+import com.amigoscode.testing.payment.ChargeOptions;
 import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Deadline;
+import com.amigoscode.testing.payment.Money;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.CardException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
 import com.stripe.net.RequestOptions;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -12,7 +22,11 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -23,33 +37,50 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 
 class StripeServiceTest {
 
     @Mock
     private StripeApi stripeApi;
 
+    private CardPaymentExecutor cardPaymentExecutor;
+
+    private SimpleMeterRegistry meterRegistry;
+
     private StripeService underTest;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.initMocks(this);
-        underTest = new StripeService(stripeApi);
+        cardPaymentExecutor = new CardPaymentExecutor(1, 1);
+        StripeProperties stripeProperties = new StripeProperties();
+        stripeProperties.setApiKey("sk_test_default");
+        stripeProperties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+        stripeProperties.getRetry().setMaxBackoff(Duration.ofMillis(5));
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new StripeService(stripeApi, new StripeCredentials(stripeProperties), cardPaymentExecutor,
+                stripeProperties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardPaymentExecutor.shutdown();
     }
 
     @Test
     void itShouldChargeCardSuccessfully() throws StripeException {
         // Given
         final String cardSource = "4544";
-        final BigDecimal amount = new BigDecimal("1000");
-        final Currency currency = Currency.USD;
+        final Money amount = Money.of(new BigDecimal("1000"), Currency.USD);
         final String description = "some description";
 
         // When
         var charge = new Charge();
         charge.setPaid(true);
         given(stripeApi.create(any(), any())).willReturn(charge);
-        CardPaymentCharge cardPaymentCharge = underTest.chargeCard(cardSource, amount, currency, description);
+        CardPaymentCharge cardPaymentCharge = underTest.chargeCard(cardSource, amount, description);
         final ArgumentCaptor<Map<String, Object>> mapCaptor = ArgumentCaptor.forClass(Map.class);
 
         final ArgumentCaptor<RequestOptions> requestOptionsCaptor = ArgumentCaptor.forClass(RequestOptions.class);
@@ -61,8 +92,8 @@ class StripeServiceTest {
         assertThat(params.keySet().size()).isEqualTo(4);
         assertThat(params.get("source")).isEqualTo(cardSource);
         assertThat(params.get("description")).isEqualTo(description);
-        assertThat(params.get("amount")).isEqualTo(amount);
-        assertThat(params.get("currency")).isEqualTo(currency);
+        assertThat(params.get("amount")).isEqualTo(100000L);
+        assertThat(params.get("currency")).isEqualTo("usd");
 
         assertThat(options).isNotNull();
 
@@ -74,8 +105,7 @@ class StripeServiceTest {
     void itShouldThrowIfCardIsNotCharged() throws StripeException {
         // Given
         final String cardSource = "4544";
-        final BigDecimal amount = new BigDecimal("1000");
-        final Currency currency = Currency.USD;
+        final Money amount = Money.of(new BigDecimal("1000"), Currency.USD);
         final String description = "some description";
 
         // When
@@ -84,9 +114,163 @@ class StripeServiceTest {
         doThrow(stripeException).when(stripeApi).create(anyMap(), any());
 
         // Then
-        assertThatThrownBy(() -> underTest.chargeCard(cardSource, amount, currency, description))
+        assertThatThrownBy(() -> underTest.chargeCard(cardSource, amount, description))
                 .isInstanceOf(IllegalStateException.class)
                 .hasRootCause(stripeException)
                 .hasMessageContaining("Cannot make stripe charge");
     }
-}
\ No newline at end of file
+
+    @Test
+    void itShouldChargeCardOnCardPaymentExecutor() throws StripeException {
+        // Given
+        final String cardSource = "4544";
+        final Money amount = Money.of(new BigDecimal("1000"), Currency.USD);
+        final String description = "some description";
+
+        var charge = new Charge();
+        charge.setPaid(true);
+        final String[] chargingThread = new String[1];
+        given(stripeApi.create(any(), any())).willAnswer(invocation -> {
+            chargingThread[0] = Thread.currentThread().getName();
+            return charge;
+        });
+
+        // When
+        CardPaymentCharge cardPaymentCharge = underTest.chargeCardAsync(cardSource, amount, description).join();
+
+        // Then
+        assertThat(cardPaymentCharge.isCardDebited()).isTrue();
+        assertThat(chargingThread[0]).startsWith("card-payment-");
+    }
+
+    @Test
+    void itShouldForwardIdempotencyKeyToStripe() throws StripeException {
+        // Given
+        var charge = new Charge();
+        charge.setPaid(true);
+        given(stripeApi.create(any(), any())).willReturn(charge);
+
+        // When
+        underTest.chargeCard("4544", Money.of(new BigDecimal("1000"), Currency.USD), "some description",
+                ChargeOptions.withIdempotencyKey("order-42"));
+
+        // Then
+        final ArgumentCaptor<RequestOptions> requestOptionsCaptor = ArgumentCaptor.forClass(RequestOptions.class);
+        then(stripeApi).should().create(anyMap(), requestOptionsCaptor.capture());
+        assertThat(requestOptionsCaptor.getValue().getIdempotencyKey()).isEqualTo("order-42");
+        assertThat(requestOptionsCaptor.getValue().getApiKey()).isEqualTo("sk_test_default");
+    }
+
+    @Test
+    void itShouldScopeClientIdempotencyKeysToTheCustomer() throws StripeException {
+        // Given
+        var charge = new Charge();
+        charge.setPaid(true);
+        given(stripeApi.create(any(), any())).willReturn(charge);
+        UUID customerId = UUID.randomUUID();
+
+        // When
+        underTest.chargeCard("4544", Money.of(new BigDecimal("1000"), Currency.USD), "some description",
+                ChargeOptions.withCustomerIdempotencyKey(customerId, "order-42"));
+        underTest.chargeCard("4544", Money.of(new BigDecimal("1000"), Currency.USD), "some description",
+                ChargeOptions.withCustomerIdempotencyKey(UUID.randomUUID(), "order-42"));
+        underTest.chargeCard("4544", Money.of(new BigDecimal("1000"), Currency.USD), "some description",
+                ChargeOptions.withCustomerIdempotencyKey(customerId, "order-42"));
+
+        // Then
+        final ArgumentCaptor<RequestOptions> requestOptionsCaptor = ArgumentCaptor.forClass(RequestOptions.class);
+        then(stripeApi).should(times(3)).create(anyMap(), requestOptionsCaptor.capture());
+        List<String> keys = requestOptionsCaptor.getAllValues().stream()
+                .map(RequestOptions::getIdempotencyKey)
+                .collect(Collectors.toList());
+        assertThat(keys.get(0)).isNotEqualTo("order-42").isNotEqualTo(keys.get(1)).isEqualTo(keys.get(2));
+    }
+
+    @Test
+    void itShouldRetryConnectionFailuresWithTheSameIdempotencyKey() throws StripeException {
+        // Given
+        var charge = new Charge();
+        charge.setPaid(true);
+        given(stripeApi.create(anyMap(), any()))
+                .willThrow(new ApiConnectionException("Read timed out"))
+                .willReturn(charge);
+
+        // When
+        CardPaymentCharge cardPaymentCharge = underTest.chargeCard(
+                "4544", Money.ofMinor(1000, Currency.USD), "some description");
+
+        // Then
+        assertThat(cardPaymentCharge.isCardDebited()).isTrue();
+        final ArgumentCaptor<RequestOptions> requestOptionsCaptor = ArgumentCaptor.forClass(RequestOptions.class);
+        then(stripeApi).should(times(2)).create(anyMap(), requestOptionsCaptor.capture());
+        List<RequestOptions> attempts = requestOptionsCaptor.getAllValues();
+        assertThat(attempts.get(0).getIdempotencyKey()).isNotNull();
+        assertThat(attempts.get(1).getIdempotencyKey()).isEqualTo(attempts.get(0).getIdempotencyKey());
+
+        DistributionSummary attemptsSummary = meterRegistry.get("payment.charge.attempts")
+                .tag("outcome", "success").summary();
+        assertThat(attemptsSummary.count()).isEqualTo(1);
+        assertThat(attemptsSummary.totalAmount()).isEqualTo(2.0);
+    }
+
+    @Test
+    void itShouldNotRetryDeclinedCards() throws StripeException {
+        // Given
+        CardException declined = new CardException(
+                "Your card was declined.", "req_1", "card_declined", null, "generic_decline", null, 402, null);
+        doThrow(declined).when(stripeApi).create(anyMap(), any());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.chargeCard("4544", Money.ofMinor(1000, Currency.USD), "some description"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCause(declined);
+        then(stripeApi).should(times(1)).create(anyMap(), any());
+    }
+
+    @Test
+    void itShouldGiveUpRetryingAfterMaxAttempts() throws StripeException {
+        // Given
+        doThrow(new ApiConnectionException("Connection refused")).when(stripeApi).create(anyMap(), any());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.chargeCard("4544", Money.ofMinor(1000, Currency.USD), "some description"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCauseInstanceOf(ApiConnectionException.class);
+        then(stripeApi).should(times(3)).create(anyMap(), any());
+        assertThat(meterRegistry.get("payment.charge.attempts").tag("outcome", "failure").summary().max())
+                .isEqualTo(3.0);
+    }
+
+    @Test
+    void itShouldCapTimeoutsAtTheRemainingDeadline() throws StripeException {
+        // Given
+        var charge = new Charge();
+        charge.setPaid(true);
+        given(stripeApi.create(anyMap(), any())).willReturn(charge);
+
+        // When
+        underTest.chargeCard("4544", Money.ofMinor(1000, Currency.USD), "some description",
+                ChargeOptions.none().withDeadline(Deadline.after(Duration.ofSeconds(1))));
+
+        // Then
+        final ArgumentCaptor<RequestOptions> requestOptionsCaptor = ArgumentCaptor.forClass(RequestOptions.class);
+        then(stripeApi).should().create(anyMap(), requestOptionsCaptor.capture());
+        assertThat(requestOptionsCaptor.getValue().getReadTimeout()).isBetween(1, 1000);
+        assertThat(requestOptionsCaptor.getValue().getConnectTimeout()).isBetween(1, 1000);
+    }
+
+    @Test
+    void itShouldNotCallStripeWhenTooLittleOfTheDeadlineIsLeft() throws StripeException {
+        // Given
+        ChargeOptions options = ChargeOptions.none().withDeadline(Deadline.after(Duration.ofMillis(100)));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.chargeCard(
+                "4544", Money.ofMinor(1000, Currency.USD), "some description", options))
+                .isInstanceOf(ChargeDeadlineExceededException.class);
+        then(stripeApi).should(never()).create(anyMap(), any());
+    }
+}
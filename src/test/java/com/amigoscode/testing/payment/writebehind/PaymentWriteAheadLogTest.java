@@ -0,0 +1,225 @@
+package com.amigoscode.testing.payment.writebehind;
+
+import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Payment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentWriteAheadLogTest {
+
+    private static final Duration APPEND_TIMEOUT = Duration.ofSeconds(5);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void itShouldReplayAppendedPayments() throws IOException {
+        // Given
+        Payment payment = new Payment(null, UUID.randomUUID(), new BigDecimal("10.50"), Currency.USD, "card", null);
+        PaymentWriteAheadLog log = new PaymentWriteAheadLog(directory, 1024, 16);
+        log.replay(0);
+        log.start(entries -> {});
+
+        // When
+        long sequence = log.append(payment, APPEND_TIMEOUT).join();
+        log.close();
+
+        // Then
+        List<PaymentWriteAheadLog.Entry> replayed = new PaymentWriteAheadLog(directory, 1024, 16).replay(0);
+        assertThat(sequence).isEqualTo(1);
+        assertThat(replayed).hasSize(1);
+        assertThat(replayed.get(0).getSequence()).isEqualTo(1);
+        assertThat(replayed.get(0).getPayment()).isEqualToComparingFieldByField(payment);
+    }
+
+    @Test
+    void itShouldHandDurableEntriesOverInSequenceOrder() throws IOException {
+        // Given
+        List<Long> durable = new CopyOnWriteArrayList<>();
+        PaymentWriteAheadLog log = new PaymentWriteAheadLog(directory, 1024, 16);
+        log.replay(0);
+        log.start(entries -> entries.forEach(e -> durable.add(e.getSequence())));
+
+        // When
+        List<CompletableFuture<Long>> appends = IntStream.range(0, 100)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> log.append(payment(i), APPEND_TIMEOUT).join()))
+                .collect(Collectors.toList());
+        appends.forEach(CompletableFuture::join);
+        log.close();
+
+        // Then
+        assertThat(durable).isSorted().hasSize(100).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void itShouldFailOnlyTheAppendThatCannotBeEncoded() throws IOException {
+        // Given
+        List<Long> durable = new CopyOnWriteArrayList<>();
+        PaymentWriteAheadLog log = new PaymentWriteAheadLog(directory, 1024, 16);
+        log.replay(0);
+        log.start(entries -> entries.forEach(e -> durable.add(e.getSequence())));
+        String tooLong = Stream.generate(() -> "x").limit(70_000).collect(Collectors.joining());
+
+        // When
+        CompletableFuture<Long> before = log.append(payment(1), APPEND_TIMEOUT);
+        CompletableFuture<Long> oversized = log.append(
+                new Payment(null, UUID.randomUUID(), BigDecimal.ONE, Currency.USD, "card", tooLong), APPEND_TIMEOUT);
+        CompletableFuture<Long> after = log.append(payment(2), APPEND_TIMEOUT);
+
+        // Then
+        assertThat(before.join()).isEqualTo(1);
+        assertThat(after.join()).isEqualTo(2);
+        assertThatThrownBy(oversized::join).hasCauseInstanceOf(IllegalArgumentException.class);
+        log.close();
+        assertThat(durable).containsExactly(1L, 2L);
+        assertThat(new PaymentWriteAheadLog(directory, 1024, 16).replay(0))
+                .extracting(entry -> entry.getPayment().getDescription())
+                .containsExactly(payment(1).getDescription(), payment(2).getDescription());
+    }
+
+    @Test
+    void itShouldOnlyReplayEntriesAfterCheckpointAndContinueSequence() throws IOException {
+        // Given
+        PaymentWriteAheadLog log = new PaymentWriteAheadLog(directory, 1024, 16);
+        log.replay(0);
+        log.start(entries -> {});
+        for (int i = 0; i < 3; i++) {
+            log.append(payment(i), APPEND_TIMEOUT).join();
+        }
+        log.close();
+
+        // When
+        PaymentWriteAheadLog reopened = new PaymentWriteAheadLog(directory, 1024, 16);
+        List<PaymentWriteAheadLog.Entry> replayed = reopened.replay(1);
+        reopened.start(entries -> {});
+        long next = reopened.append(payment(3), APPEND_TIMEOUT).join();
+        reopened.close();
+
+        // Then
+        assertThat(replayed).extracting(PaymentWriteAheadLog.Entry::getSequence).containsExactly(2L, 3L);
+        assertThat(next).isEqualTo(4);
+    }
+
+    @Test
+    void itShouldStopReplayAtTornTail() throws IOException {
+        // Given
+        PaymentWriteAheadLog log = new PaymentWriteAheadLog(directory, 1024, 16);
+        log.replay(0);
+        log.start(entries -> {});
+        log.append(payment(0), APPEND_TIMEOUT).join();
+        log.append(payment(1), APPEND_TIMEOUT).join();
+        log.close();
+        Path segment = segments().get(0);
+        long size = Files.size(segment);
+        try (var channel = Files.newByteChannel(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        // When
+        List<PaymentWriteAheadLog.Entry> replayed = new PaymentWriteAheadLog(directory, 1024, 16).replay(0);
+
+        // Then
+        assertThat(replayed).extracting(PaymentWriteAheadLog.Entry::getSequence).containsExactly(1L);
+    }
+
+    @Test
+    void itShouldDeleteSegmentsCoveredByCheckpoint() throws IOException {
+        // Given
+        PaymentWriteAheadLog log = new PaymentWriteAheadLog(directory, 1, 16);
+        log.replay(0);
+        log.start(entries -> {});
+        for (int i = 0; i < 3; i++) {
+            log.append(payment(i), APPEND_TIMEOUT).join();
+        }
+
+        // When
+        log.deleteSegmentsUpTo(2);
+        log.close();
+
+        // Then
+        assertThat(new PaymentWriteAheadLog(directory, 1, 16).replay(0))
+                .extracting(PaymentWriteAheadLog.Entry::getSequence)
+                .containsExactly(3L);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void itShouldRejectAppendsWhenTheQueueStaysFull() throws Exception {
+        // Given
+        CountDownLatch handingOver = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PaymentWriteAheadLog log = new PaymentWriteAheadLog(directory, 1024, 1);
+        log.replay(0);
+        log.start(entries -> {
+            handingOver.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CompletableFuture<Long> written = log.append(payment(1), APPEND_TIMEOUT);
+        handingOver.await();
+        CompletableFuture<Long> queued = log.append(payment(2), APPEND_TIMEOUT);
+
+        // When
+        CompletableFuture<Long> rejected = log.append(payment(3), Duration.ofMillis(50));
+
+        // Then
+        assertThat(log.isAvailable()).isFalse();
+        assertThatThrownBy(rejected::join)
+                .hasCauseInstanceOf(PaymentLogUnavailableException.class)
+                .hasMessageContaining("Payment log is full");
+        release.countDown();
+        assertThat(written.join()).isEqualTo(1);
+        assertThat(queued.join()).isEqualTo(2);
+        log.close();
+    }
+
+    @Test
+    void itShouldStopTakingAppendsWhenDurableEntriesCannotBeHandedOver() throws Exception {
+        // Given
+        PaymentWriteAheadLog log = new PaymentWriteAheadLog(directory, 1024, 16);
+        log.replay(0);
+        log.start(entries -> {
+            throw new IllegalStateException("Flusher is gone");
+        });
+
+        // When
+        long sequence = log.append(payment(1), APPEND_TIMEOUT).join();
+
+        // Then
+        assertThat(sequence).isEqualTo(1);
+        assertThatThrownBy(() -> log.append(payment(2), APPEND_TIMEOUT).join())
+                .hasCauseInstanceOf(PaymentLogUnavailableException.class);
+        log.close();
+        assertThat(new PaymentWriteAheadLog(directory, 1024, 16).replay(0)).hasSize(1);
+    }
+
+    private static Payment payment(int i) {
+        return new Payment(null, UUID.randomUUID(), new BigDecimal("1.00"), Currency.GPD, "card", "Payment " + i);
+    }
+}
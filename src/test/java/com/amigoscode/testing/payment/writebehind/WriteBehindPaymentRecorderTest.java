@@ -0,0 +1,278 @@
+package com.amigoscode.testing.payment.writebehind;
+
+import com.amigoscode.testing.payment.Currency;
+import com.amigoscode.testing.payment.Money;
+import com.amigoscode.testing.payment.Payment;
+import com.amigoscode.testing.payment.PaymentRepository;
+import com.amigoscode.testing.payment.PaymentTotalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+class WriteBehindPaymentRecorderTest {
+
+    private static final Duration APPEND_TIMEOUT = Duration.ofSeconds(5);
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentTotalRepository paymentTotalRepository;
+
+    @Mock
+    private PaymentLogCheckpointRepository checkpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<Payment>> paymentsCaptor;
+
+    @Captor
+    private ArgumentCaptor<PaymentLogCheckpoint> checkpointCaptor;
+
+    private WriteBehindProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        given(checkpointRepository.findById(WriteBehindPaymentRecorder.LOG_NAME)).willReturn(Optional.empty());
+        properties = new WriteBehindProperties();
+        properties.setDirectory(directory.toString());
+        properties.setBatchSize(10);
+        properties.setQueueCapacity(10);
+        properties.setMaxRetryDelay(Duration.ofMillis(10));
+    }
+
+    @Test
+    void itShouldFlushRecordedPaymentWithCheckpoint() throws Exception {
+        // Given
+        WriteBehindPaymentRecorder underTest = newRecorder();
+        underTest.start();
+        UUID customerId = UUID.randomUUID();
+        Payment payment = new Payment(null, customerId, new BigDecimal("10.00"), Currency.USD, "card", "Shoes");
+
+        // When
+        underTest.record(payment);
+        underTest.stop();
+
+        // Then
+        then(paymentRepository).should().insertAll(paymentsCaptor.capture());
+        assertThat(paymentsCaptor.getValue()).hasSize(1);
+        assertThat(paymentsCaptor.getValue().get(0)).isEqualToComparingFieldByField(payment);
+        then(paymentTotalRepository).should().increment(customerId, Money.of(new BigDecimal("10.00"), Currency.USD));
+        then(checkpointRepository).should().save(checkpointCaptor.capture());
+        assertThat(checkpointCaptor.getValue().getLastSequence()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldReplayPaymentsAfterCheckpointOnStart() throws Exception {
+        // Given
+        PaymentWriteAheadLog log = new PaymentWriteAheadLog(directory, 1024, 10);
+        log.replay(0);
+        log.start(entries -> {});
+        for (int i = 0; i < 3; i++) {
+            log.append(new Payment(null, UUID.randomUUID(), BigDecimal.ONE, Currency.USD, "card", "Payment " + i), APPEND_TIMEOUT).join();
+        }
+        log.close();
+        given(checkpointRepository.findById(WriteBehindPaymentRecorder.LOG_NAME))
+                .willReturn(Optional.of(new PaymentLogCheckpoint(WriteBehindPaymentRecorder.LOG_NAME, 1)));
+        WriteBehindPaymentRecorder underTest = newRecorder();
+
+        // When
+        underTest.start();
+        underTest.stop();
+
+        // Then
+        then(paymentRepository).should().insertAll(paymentsCaptor.capture());
+        assertThat(paymentsCaptor.getValue())
+                .extracting(Payment::getDescription)
+                .containsExactly("Payment 1", "Payment 2");
+        then(checkpointRepository).should().save(checkpointCaptor.capture());
+        assertThat(checkpointCaptor.getValue().getLastSequence()).isEqualTo(3);
+    }
+
+    @Test
+    void itShouldDeadLetterOnlyTheRejectedPaymentOfABatch() throws Exception {
+        // Given
+        WriteBehindPaymentRecorder underTest = newRecorder();
+        willThrow(new DataIntegrityViolationException("Bad payment"))
+                .given(paymentRepository).insertAll(argThat(payments -> payments.stream()
+                        .anyMatch(p -> p.getDescription().equals("Bad"))));
+        PaymentWriteAheadLog log = appendBeforeStart("Good", "Bad", "Later");
+
+        // When
+        underTest.start();
+        underTest.stop();
+
+        // Then
+        then(paymentRepository).should(atLeastOnce()).insertAll(paymentsCaptor.capture());
+        assertThat(paymentsCaptor.getAllValues())
+                .filteredOn(payments -> payments.size() == 1)
+                .extracting(payments -> payments.get(0).getDescription())
+                .containsExactly("Good", "Bad", "Later");
+        assertThat(log.deadLetters())
+                .extracting(entry -> entry.getPayment().getDescription())
+                .containsExactly("Bad");
+        then(checkpointRepository).should(times(3)).save(checkpointCaptor.capture());
+        assertThat(checkpointCaptor.getAllValues())
+                .extracting(PaymentLogCheckpoint::getLastSequence)
+                .containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void itShouldRetryTransientFailuresUntilTheyClearWithoutDeadLettering() throws Exception {
+        // Given
+        WriteBehindPaymentRecorder underTest = newRecorder();
+        given(paymentRepository.insertAll(anyList()))
+                .willThrow(new QueryTimeoutException("Timed out"), new QueryTimeoutException("Timed out"))
+                .willReturn(List.of());
+        PaymentWriteAheadLog log = appendBeforeStart("Slow");
+
+        // When
+        underTest.start();
+        underTest.stop();
+
+        // Then
+        then(paymentRepository).should(times(3)).insertAll(anyList());
+        assertThat(log.deadLetters()).isEmpty();
+        then(checkpointRepository).should().save(checkpointCaptor.capture());
+        assertThat(checkpointCaptor.getValue().getLastSequence()).isEqualTo(1);
+    }
+
+    @Test
+    void itShouldReplayDeadLettersOnStartAndKeepTheOnesStillRejected() throws Exception {
+        // Given
+        PaymentWriteAheadLog log = new PaymentWriteAheadLog(directory, 1024, 10);
+        log.deadLetter(List.of(
+                new PaymentWriteAheadLog.Entry(1, new Payment(null, UUID.randomUUID(), BigDecimal.ONE, Currency.USD, "card", "Fixed")),
+                new PaymentWriteAheadLog.Entry(2, new Payment(null, UUID.randomUUID(), BigDecimal.ONE, Currency.USD, "card", "Bad"))));
+        willThrow(new DataIntegrityViolationException("Bad payment"))
+                .given(paymentRepository).insertAll(argThat(payments -> payments.stream()
+                        .anyMatch(p -> p.getDescription().equals("Bad"))));
+        WriteBehindPaymentRecorder underTest = newRecorder();
+
+        // When
+        underTest.start();
+        underTest.stop();
+
+        // Then
+        then(paymentRepository).should(times(2)).insertAll(paymentsCaptor.capture());
+        assertThat(paymentsCaptor.getAllValues())
+                .extracting(payments -> payments.get(0).getDescription())
+                .containsExactly("Fixed", "Bad");
+        assertThat(log.deadLetters())
+                .extracting(entry -> entry.getPayment().getDescription())
+                .containsExactly("Bad");
+        then(checkpointRepository).should(never()).save(checkpointCaptor.capture());
+    }
+
+    @Test
+    void itShouldStopWhileTheDatabaseIsUnavailable() throws Exception {
+        // Given
+        WriteBehindPaymentRecorder underTest = newRecorder();
+        willThrow(new QueryTimeoutException("Timed out")).given(paymentRepository).insertAll(anyList());
+        underTest.start();
+        underTest.record(new Payment(null, UUID.randomUUID(), BigDecimal.ONE, Currency.USD, "card", "Stuck"));
+
+        // When
+        underTest.stop();
+
+        // Then
+        then(checkpointRepository).should(times(0)).save(checkpointCaptor.capture());
+        assertThat(new PaymentWriteAheadLog(directory, 1024, 10).replay(0))
+                .extracting(entry -> entry.getPayment().getDescription())
+                .containsExactly("Stuck");
+    }
+
+    @Test
+    void itShouldRejectPaymentsAfterStop() throws Exception {
+        // Given
+        WriteBehindPaymentRecorder underTest = newRecorder();
+        underTest.start();
+        underTest.stop();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.record(
+                new Payment(null, UUID.randomUUID(), BigDecimal.ONE, Currency.USD, "card", "Late")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Payment log is closed");
+    }
+
+    @Test
+    void itShouldFailFastAndReportDownOnceTheFlusherCannotKeepUp() throws Exception {
+        // Given
+        properties.setRecordTimeout(Duration.ofMillis(50));
+        WriteBehindPaymentRecorder underTest = newRecorder();
+        willThrow(new QueryTimeoutException("Timed out")).given(paymentRepository).insertAll(anyList());
+        underTest.start();
+        assertThat(underTest.health().getStatus()).isEqualTo(Status.UP);
+
+        // When
+        // the flusher keeps retrying its first batch while the queue behind it fills up; the payment
+        // that does not fit is still durable, so it is recorded
+        int recorded = 0;
+        while (underTest.health().getStatus().equals(Status.UP)
+                && recorded <= properties.getQueueCapacity() + properties.getBatchSize()) {
+            underTest.record(new Payment(null, UUID.randomUUID(), BigDecimal.ONE, Currency.USD, "card", "Payment " + recorded));
+            recorded++;
+        }
+
+        // Then
+        assertThat(underTest.health().getStatus()).isEqualTo(Status.DOWN);
+        assertThatThrownBy(underTest::checkAvailable).isInstanceOf(PaymentLogUnavailableException.class);
+        assertThatThrownBy(() -> underTest.record(
+                new Payment(null, UUID.randomUUID(), BigDecimal.ONE, Currency.USD, "card", "Rejected")))
+                .isInstanceOf(PaymentLogUnavailableException.class);
+        underTest.stop();
+        assertThat(new PaymentWriteAheadLog(directory, 1024, 10).replay(0)).hasSize(recorded);
+    }
+
+    // Leaves the payments in the log past the checkpoint, so start() replays them one batch at a time
+    private PaymentWriteAheadLog appendBeforeStart(String... descriptions) throws IOException {
+        PaymentWriteAheadLog log = new PaymentWriteAheadLog(directory, 1024, 10);
+        log.replay(0);
+        log.start(entries -> {});
+        for (String description : descriptions) {
+            log.append(new Payment(null, UUID.randomUUID(), BigDecimal.ONE, Currency.USD, "card", description), APPEND_TIMEOUT).join();
+        }
+        log.close();
+        return log;
+    }
+
+    private WriteBehindPaymentRecorder newRecorder() throws IOException {
+        return new WriteBehindPaymentRecorder(
+                paymentRepository, paymentTotalRepository, checkpointRepository, transactionManager, properties);
+    }
+}
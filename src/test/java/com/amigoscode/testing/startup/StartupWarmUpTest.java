@@ -0,0 +1,83 @@
+package com.amigoscode.testing.startup;
+
+import com.amigoscode.testing.customer.CustomerLookupCache;
+import com.amigoscode.testing.customer.CustomerRepository;
+import com.amigoscode.testing.utils.PhoneNumberValidator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.times;
+
+class StartupWarmUpTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private CustomerLookupCache customerLookupCache;
+
+    @Mock
+    private ConfigurableApplicationContext context;
+
+    private StartupWarmUp underTest;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.initMocks(this);
+        WarmUpProperties properties = new WarmUpProperties();
+        properties.setIterations(3);
+        underTest = new StartupWarmUp(new ObjectMapper(), new PhoneNumberValidator(),
+                customerRepository, customerLookupCache, properties);
+    }
+
+    @Test
+    void itShouldBeOutOfServiceUntilWarmedUp() {
+        // Given
+        given(customerRepository.findCustomerByPhoneNumber(any())).willReturn(Optional.empty());
+        given(customerLookupCache.findById(any())).willReturn(Optional.empty());
+        assertThat(underTest.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        // When
+        underTest.onApplicationEvent(readyEvent());
+
+        // Then
+        assertThat(underTest.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(underTest.health().getDetails()).containsEntry("iterations", 3);
+        then(context).should().getBeansWithAnnotation(RestController.class);
+        then(customerRepository).should(times(3)).findCustomerByPhoneNumber("+447000000000");
+        then(customerLookupCache).should(times(3)).findById(new UUID(0, 0));
+        then(customerRepository).shouldHaveNoMoreInteractions();
+    }
+
+    @Test
+    void itShouldReportReadyWhenTheWarmUpFails() {
+        // Given
+        given(customerRepository.findCustomerByPhoneNumber(any())).willThrow(new IllegalStateException("Database down"));
+
+        // When
+        underTest.onApplicationEvent(readyEvent());
+
+        // Then
+        assertThat(underTest.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(underTest.health().getDetails()).containsEntry("iterations", 0);
+    }
+
+    private ApplicationReadyEvent readyEvent() {
+        return new ApplicationReadyEvent(new SpringApplication(), new String[0], context);
+    }
+}
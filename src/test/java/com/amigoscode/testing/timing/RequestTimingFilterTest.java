@@ -0,0 +1,109 @@
+package com.amigoscode.testing.timing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.parallel.ResourceLock;
+import org.junit.jupiter.api.parallel.Resources;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(OutputCaptureExtension.class)
+@ResourceLock(Resources.SYSTEM_OUT)
+class RequestTimingFilterTest {
+
+    @Test
+    void itShouldReturnStagesInServerTimingHeaderBeforeTheBody() throws Exception {
+        // Given
+        RequestTimingFilter underTest = new RequestTimingFilter(properties(Duration.ofMinutes(1)));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/payment");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        underTest.doFilter(request, response, (req, res) -> {
+            long stage = RequestTimings.start();
+            stage = RequestTimings.stage("customer_lookup", stage);
+            RequestTimings.stage("card_charge", stage);
+            res.getWriter().write("{}");
+            res.flushBuffer();
+        });
+
+        // Then
+        assertThat(response.isCommitted()).isTrue();
+        assertThat(response.getHeader(RequestTimingFilter.SERVER_TIMING_HEADER))
+                .matches("customer_lookup;dur=\\d+\\.\\d{3}, card_charge;dur=\\d+\\.\\d{3}, total;dur=\\d+\\.\\d{3}");
+    }
+
+    @Test
+    void itShouldAddServerTimingWhenThereIsNoBody() throws Exception {
+        // Given
+        RequestTimingFilter underTest = new RequestTimingFilter(properties(Duration.ofMinutes(1)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        underTest.doFilter(new MockHttpServletRequest("POST", "/api/v1/customer-registration"), response,
+                (req, res) -> RequestTimings.stage("phone_lookup", RequestTimings.start()));
+
+        // Then
+        assertThat(response.getHeader(RequestTimingFilter.SERVER_TIMING_HEADER)).startsWith("phone_lookup;dur=");
+    }
+
+    @Test
+    void itShouldLogSlowRequestsAsOneLine(CapturedOutput output) throws Exception {
+        // Given
+        RequestTimingFilter underTest = new RequestTimingFilter(properties(Duration.ZERO));
+
+        // When
+        underTest.doFilter(new MockHttpServletRequest("POST", "/api/v1/payment"), new MockHttpServletResponse(),
+                (req, res) -> RequestTimings.stage("card_charge", RequestTimings.start()));
+
+        // Then
+        assertThat(output).containsPattern(
+                "slow_request method=POST path=/api/v1/payment status=200 total_ms=\\d+\\.\\d{3} card_charge_ms=\\d+\\.\\d{3}");
+    }
+
+    @Test
+    void itShouldAddServerTimingAndLogWhenTheChainThrows(CapturedOutput output) {
+        // Given
+        RequestTimingFilter underTest = new RequestTimingFilter(properties(Duration.ZERO));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        assertThatThrownBy(() -> underTest.doFilter(new MockHttpServletRequest("POST", "/api/v1/payment"), response,
+                (req, res) -> {
+                    RequestTimings.stage("card_charge", RequestTimings.start());
+                    throw new IllegalStateException("Card processor failed");
+                }))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Card processor failed");
+
+        // Then
+        assertThat(response.getHeader(RequestTimingFilter.SERVER_TIMING_HEADER)).startsWith("card_charge;dur=");
+        assertThat(output).containsPattern(
+                "slow_request method=POST path=/api/v1/payment status=500 total_ms=\\d+\\.\\d{3} card_charge_ms=\\d+\\.\\d{3}");
+    }
+
+    @Test
+    void itShouldNotRecordStagesOutsideAFilteredRequest() {
+        // Given
+        // When
+        long stage = RequestTimings.start();
+
+        // Then
+        assertThat(stage).isZero();
+        assertThat(RequestTimings.stage("customer_lookup", stage)).isZero();
+    }
+
+    private static RequestTimingProperties properties(Duration slowThreshold) {
+        RequestTimingProperties properties = new RequestTimingProperties();
+        properties.setEnabled(true);
+        properties.setSlowThreshold(slowThreshold);
+        return properties;
+    }
+}
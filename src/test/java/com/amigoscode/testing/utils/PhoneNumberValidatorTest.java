@@ -1,10 +1,14 @@
 package com.amigoscode.testing.utils;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class PhoneNumberValidatorTest {
 
@@ -28,4 +32,56 @@ public class PhoneNumberValidatorTest {
         // Then
         assertThat(isValid).isEqualTo(expected);
     }
+
+    @ParameterizedTest
+    @CsvSource({
+            "+447000000000, true",
+            "+35312345678, true",
+            "+353123456789, true",
+            "+3531234567890, false",
+            "+12025550123, true",
+            "+1202555012, false",
+            "+4470000000a0, false",
+            "+44+700000000, false",
+            "+497000000000, false",
+            "'', false"
+    })
+    void itShouldValidatePhoneNumbersForConfiguredCountries(String phoneNumber, boolean expected) {
+        // Given
+        PhoneNumberProperties properties = new PhoneNumberProperties();
+        properties.setRules(List.of(
+                new PhoneNumberProperties.Rule("GB", "+44", List.of(13)),
+                new PhoneNumberProperties.Rule("IE", "+353", List.of(12, 13)),
+                new PhoneNumberProperties.Rule("US", "+1", List.of(12))
+        ));
+        underTest = new PhoneNumberValidator(properties);
+
+        // When
+        boolean isValid = underTest.test(phoneNumber);
+
+        // Then
+        assertThat(isValid).isEqualTo(expected);
+    }
+
+    @Test
+    void itShouldNotValidateNullPhoneNumber() {
+        // When
+        boolean isValid = underTest.test(null);
+
+        // Then
+        assertThat(isValid).isFalse();
+    }
+
+    @Test
+    void itShouldRejectRuleWithInvalidPrefix() {
+        // Given
+        PhoneNumberProperties properties = new PhoneNumberProperties();
+        properties.setRules(List.of(new PhoneNumberProperties.Rule("GB", "+44-", List.of(13))));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> new PhoneNumberValidator(properties))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid phone number prefix");
+    }
 }